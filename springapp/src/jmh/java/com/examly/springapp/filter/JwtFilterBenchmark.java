@@ -0,0 +1,141 @@
+package com.examly.springapp.filter;
+
+import com.examly.springapp.model.User;
+import com.examly.springapp.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the JWT filter for an authenticated request, before and after the
+ * parser and verified tokens were cached. {@code legacyFilter} reproduces the filter
+ * as it was: a new key and parser per parse, and two parses per request.
+ *
+ * <pre>
+ * mvn -P benchmark test-compile exec:exec -Dbenchmark=JwtFilterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "mySecretKeymySecretKeymySecretKeymySecretKeymySecretKeymySecretKey";
+
+    private JwtAuthenticationFilter filter;
+    private OncePerRequestFilter legacyFilter;
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "EXPIRATION", 86400000);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheSize", 10000);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        legacyFilter = new LegacyJwtAuthenticationFilter();
+        User user = new User();
+        user.setId(1L);
+        user.setEmail("bench@example.com");
+        user.setRole(User.Role.USER);
+        authorization = "Bearer " + jwtUtil.generateToken(user);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public Object filter() throws Exception {
+        return run(filter);
+    }
+
+    @Benchmark
+    public Object legacyFilter() throws Exception {
+        return run(legacyFilter);
+    }
+
+    private Object run(OncePerRequestFilter target) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/documents");
+        request.addHeader("Authorization", authorization);
+        target.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    /** The filter and JwtUtil before the parser and verified tokens were cached. */
+    static class LegacyJwtAuthenticationFilter extends OncePerRequestFilter {
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                FilterChain filterChain) throws ServletException, IOException {
+            String authHeader = request.getHeader("Authorization");
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                String token = authHeader.substring(7);
+                if (isTokenValid(token)) {
+                    String email = extractClaims(token).getSubject();
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(email, null, new ArrayList<>()));
+                }
+            }
+            filterChain.doFilter(request, response);
+        }
+
+        private static boolean isTokenValid(String token) {
+            try {
+                extractClaims(token);
+                return true;
+            } catch (JwtException e) {
+                return false;
+            }
+        }
+
+        private static Claims extractClaims(String token) {
+            Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
+            return Jwts.parserBuilder()
+                    .setSigningKey(key)
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+        }
+    }
+}
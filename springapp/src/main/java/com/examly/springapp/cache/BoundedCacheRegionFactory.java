@@ -0,0 +1,96 @@
+package com.examly.springapp.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hibernate second-level cache kept in process, in size- and TTL-bounded regions
+ * ({@link BoundedCacheStorage}). Selected with
+ * {@code hibernate.cache.region.factory_class}; bounds are read from
+ * {@code hibernate.cache.bounded.max_entries} and {@code .ttl_seconds}, and can be set
+ * per region as {@code hibernate.cache.bounded.<region>.max_entries}.
+ *
+ * <p>Each instance caches for one node only. Changes made through another node
+ * reach this one when its entries expire, so the TTL bounds how stale a read can be
+ * when the application runs on more than one node.
+ */
+public class BoundedCacheRegionFactory extends RegionFactoryTemplate {
+
+    public static final String PREFIX = "hibernate.cache.bounded.";
+    public static final String MAX_ENTRIES = "max_entries";
+    public static final String TTL_SECONDS = "ttl_seconds";
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+    private static final long DEFAULT_TTL_SECONDS = 600;
+
+    private Map<String, Object> settings = Map.of();
+    private final List<BoundedCacheStorage> storages = new CopyOnWriteArrayList<>();
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions options, Map<String, Object> configValues) {
+        settings = configValues;
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        storages.forEach(BoundedCacheStorage::release);
+        storages.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+            DomainDataRegionBuildingContext buildingContext) {
+        return register(regionConfig.getRegionName());
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        return register(regionName);
+    }
+
+    /**
+     * Unbounded and never expiring: a query result is only trusted while the update
+     * timestamps of its tables are known, so losing one would serve stale results.
+     * There is one entry per table.
+     */
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        BoundedCacheStorage storage = new BoundedCacheStorage(regionName, 0, 0);
+        storages.add(storage);
+        return storage;
+    }
+
+    /**
+     * @return the storage of every region, for the cache metrics
+     */
+    public List<BoundedCacheStorage> getStorages() {
+        return List.copyOf(storages);
+    }
+
+    private BoundedCacheStorage register(String regionName) {
+        BoundedCacheStorage storage = new BoundedCacheStorage(regionName,
+                (int) setting(regionName, MAX_ENTRIES, DEFAULT_MAX_ENTRIES),
+                setting(regionName, TTL_SECONDS, DEFAULT_TTL_SECONDS));
+        storages.add(storage);
+        return storage;
+    }
+
+    private long setting(String regionName, String key, long defaultValue) {
+        Object value = settings.get(PREFIX + regionName + "." + key);
+        if (value == null) {
+            value = settings.get(PREFIX + key);
+        }
+        return value != null ? Long.parseLong(value.toString().trim()) : defaultValue;
+    }
+}
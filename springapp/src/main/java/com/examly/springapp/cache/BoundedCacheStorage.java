@@ -0,0 +1,176 @@
+package com.examly.springapp.cache;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Storage behind one second-level cache region: an LRU map holding at most
+ * {@code maxEntries} entries, each for at most {@code ttl} after it was written.
+ * Counts hits and misses for the cache metrics.
+ *
+ * <p>Hibernate keeps entries consistent with the database itself (soft locks for
+ * read-write entities, invalidation on bulk statements); the bounds only limit memory
+ * and how long an entry can outlive a change made outside Hibernate.
+ */
+public class BoundedCacheStorage implements DomainDataStorageAccess {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maxEntries {@code 0} for no bound
+     * @param ttlSeconds {@code 0} for no expiry
+     */
+    public BoundedCacheStorage(String name, int maxEntries, long ttlSeconds) {
+        this(name, maxEntries, ttlSeconds, System::nanoTime);
+    }
+
+    BoundedCacheStorage(String name, int maxEntries, long ttlSeconds, LongSupplier clock) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.clock = clock;
+    }
+
+    @Override
+    public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && isExpired(entry)) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    @Override
+    public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        synchronized (entries) {
+            entries.put(key, new Entry(value, clock.getAsLong()));
+            puts.increment();
+            if (maxEntries > 0 && entries.size() > maxEntries) {
+                Iterator<Map.Entry<Object, Entry>> eldest = entries.entrySet().iterator();
+                while (entries.size() > maxEntries) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+        evictData(key);
+    }
+
+    @Override
+    public void clearCache(SharedSessionContractImplementor session) {
+        evictData();
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            return entry != null && !isExpired(entry);
+        }
+    }
+
+    @Override
+    public void evictData() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void evictData(Object key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public void release() {
+        evictData();
+    }
+
+    private boolean isExpired(Entry entry) {
+        return ttlNanos > 0 && clock.getAsLong() - entry.writtenAt >= ttlNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total > 0 ? (double) hitCount / total : 0.0;
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long writtenAt;
+
+        Entry(Object value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.examly.springapp.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Timeout for the async part of a handler that streams its response, such as a
+ * {@code StreamingResponseBody}, in place of the container default that every other
+ * async request keeps. Applied by {@link AsyncTimeoutConfig}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AsyncTimeout {
+
+    /**
+     * A duration such as {@code 30m}; property placeholders are resolved.
+     */
+    String value();
+}
@@ -0,0 +1,47 @@
+package com.examly.springapp.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Applies {@link AsyncTimeout} to the handler's async request just before it starts,
+ * so long downloads and exports are not cut off while a lowered global timeout still
+ * bounds everything else.
+ */
+@Configuration
+public class AsyncTimeoutConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private Environment environment;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                        RequestAttributes.SCOPE_REQUEST);
+                if (!(handler instanceof HandlerMethod method) || !(request instanceof AsyncWebRequest asyncRequest)) {
+                    return;
+                }
+                AsyncTimeout timeout = method.getMethodAnnotation(AsyncTimeout.class);
+                if (timeout != null) {
+                    String value = environment.resolveRequiredPlaceholders(timeout.value());
+                    asyncRequest.setTimeout(DurationStyle.detectAndParse(value).toMillis());
+                }
+            }
+        });
+    }
+}
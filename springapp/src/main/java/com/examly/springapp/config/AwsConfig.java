@@ -1,14 +1,23 @@
 package com.examly.springapp.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
+/**
+ * S3 clients, only created when {@code file.storage.type} is {@code s3}. Region and
+ * endpoint come from configuration so S3-compatible stores can be used as well.
+ */
 @Configuration
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "s3", matchIfMissing = true)
 public class AwsConfig {
 
     @Value("${aws.access-key-id:}")
@@ -20,20 +29,82 @@ public class AwsConfig {
     @Value("${aws.s3.region:ap-south-1}")
     private String region;
 
+    // Empty means the regional AWS endpoint
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.s3.path-style:true}")
+    private boolean pathStyle;
+
+    private java.net.URI endpointUri() {
+        return java.net.URI.create(endpoint.isBlank()
+                ? "https://s3." + region + ".amazonaws.com"
+                : endpoint);
+    }
+
     @Bean
     public S3Client s3Client() {
         AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
         
         try {
             return S3Client.builder()
-                    .region(Region.AP_SOUTH_1)
+                    .region(Region.of(region))
                     .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-                    .endpointOverride(java.net.URI.create("https://s3.ap-south-1.amazonaws.com"))
-                    .forcePathStyle(true)
+                    .endpointOverride(endpointUri())
+                    .forcePathStyle(pathStyle)
                     .build();
         } catch (Exception e) {
             System.err.println("Failed to create S3 client: " + e.getMessage());
             throw new RuntimeException("S3 configuration failed", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Signs URLs locally; no request is made to S3 until the client uses the URL.
+     */
+    @Bean(destroyMethod = "close")
+    public S3Presigner s3Presigner() {
+        AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
+
+        return S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .endpointOverride(endpointUri())
+                .serviceConfiguration(software.amazon.awssdk.services.s3.S3Configuration.builder()
+                        .pathStyleAccessEnabled(pathStyle)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Non-blocking client used by the transfer manager. Multipart is handled by the
+     * SDK itself: bodies above the threshold are split and their parts sent concurrently.
+     */
+    @Bean(destroyMethod = "close")
+    public S3AsyncClient s3AsyncClient(@Value("${upload.streaming.part-size:8388608}") long partSize) {
+        AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKeyId, secretAccessKey);
+
+        try {
+            return S3AsyncClient.builder()
+                    .region(Region.of(region))
+                    .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                    .endpointOverride(endpointUri())
+                    .forcePathStyle(pathStyle)
+                    .multipartEnabled(true)
+                    .multipartConfiguration(multipart -> multipart
+                            .thresholdInBytes(partSize)
+                            .minimumPartSizeInBytes(partSize))
+                    .build();
+        } catch (Exception e) {
+            System.err.println("Failed to create async S3 client: " + e.getMessage());
+            throw new RuntimeException("S3 configuration failed", e);
+        }
+    }
+
+    @Bean(destroyMethod = "close")
+    public S3TransferManager s3TransferManager(S3AsyncClient s3AsyncClient) {
+        return S3TransferManager.builder()
+                .s3Client(s3AsyncClient)
+                .build();
+    }
+}
@@ -1,7 +1,14 @@
 package com.examly.springapp.config;
 
+import com.examly.springapp.ratelimit.RateLimitPolicy;
+import com.examly.springapp.ratelimit.RateLimitStore;
+import com.examly.springapp.ratelimit.TokenBucketTable;
+import com.examly.springapp.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import jakarta.servlet.FilterChain;
@@ -9,80 +16,184 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class RateLimitingConfig {
 
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rate-limit.auth.per-minute:20}")
+    private int authPerMinute;
+
+    @Value("${rate-limit.auth.burst:10}")
+    private int authBurst;
+
+    @Value("${rate-limit.upload.per-minute:60}")
+    private int uploadPerMinute;
+
+    @Value("${rate-limit.upload.burst:20}")
+    private int uploadBurst;
+
+    @Value("${rate-limit.default.per-minute:300}")
+    private int defaultPerMinute;
+
+    @Value("${rate-limit.default.burst:100}")
+    private int defaultBurst;
+
+    // Signed-in users are limited per account rather than per address, with this much more headroom
+    @Value("${rate-limit.user-multiplier:2}")
+    private int userMultiplier;
+
+    // Addresses of the reverse proxies in front of the application, the only peers whose
+    // X-Forwarded-For and X-Real-IP headers are believed
+    @Value("${rate-limit.trusted-proxies:}")
+    private String[] trustedProxies;
+
     @Bean
-    public RateLimitingFilter rateLimitingFilter() {
-        return new RateLimitingFilter();
+    public RateLimitingFilter rateLimitingFilter(RateLimitStore store) {
+        RouteGroup[] groups = {
+                group("auth", 0, "/api/auth/", authPerMinute, authBurst),
+                group("upload", 2, "/api/documents/upload", uploadPerMinute, uploadBurst),
+                group("default", 4, "/", defaultPerMinute, defaultBurst)
+        };
+        return new RateLimitingFilter(enabled, groups, store, trustedProxies);
     }
 
+    private RouteGroup group(String name, int id, String pathPrefix, int perMinute, int burst) {
+        return new RouteGroup(pathPrefix,
+                new RateLimitPolicy(name, id, perMinute, burst),
+                new RateLimitPolicy(name + "/user", id + 1, perMinute * userMultiplier, burst * userMultiplier));
+    }
+
+    /**
+     * Routes sharing one limit: anonymous callers are limited per client address, signed-in
+     * callers per user.
+     */
+    static final class RouteGroup {
+        private final String pathPrefix;
+        private final RateLimitPolicy anonymous;
+        private final RateLimitPolicy user;
+
+        RouteGroup(String pathPrefix, RateLimitPolicy anonymous, RateLimitPolicy user) {
+            this.pathPrefix = pathPrefix;
+            this.anonymous = anonymous;
+            this.user = user;
+        }
+    }
+
+    /**
+     * Token-bucket limit per route group and caller, counted in the configured
+     * {@link RateLimitStore}. Finding the caller's bucket key allocates nothing.
+     */
     public static class RateLimitingFilter extends OncePerRequestFilter {
-        private final ConcurrentHashMap<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
-        private final ConcurrentHashMap<String, Long> requestTimes = new ConcurrentHashMap<>();
-        private final int MAX_REQUESTS_PER_MINUTE = 100;
-        private final long TIME_WINDOW = 60000; // 1 minute
+        private final boolean enabled;
+        private final RouteGroup[] groups;
+        private final RateLimitStore store;
+        private final String[] trustedProxies;
+
+        RateLimitingFilter(boolean enabled, RouteGroup[] groups, RateLimitStore store, String[] trustedProxies) {
+            this.enabled = enabled;
+            this.groups = groups;
+            this.store = store;
+            this.trustedProxies = java.util.Arrays.stream(trustedProxies).map(String::trim)
+                    .filter(proxy -> !proxy.isEmpty()).toArray(String[]::new);
+        }
 
         @Override
-        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                 FilterChain filterChain) throws ServletException, IOException {
-            
-            String clientIp = getClientIp(request);
-            String key = clientIp + ":" + request.getRequestURI();
-            
+            String uri = request.getRequestURI();
+
             // Skip rate limiting for static resources
-            if (request.getRequestURI().startsWith("/static/") || 
-                request.getRequestURI().startsWith("/css/") ||
-                request.getRequestURI().startsWith("/js/")) {
+            if (!enabled || uri.startsWith("/static/") || uri.startsWith("/css/") || uri.startsWith("/js/")) {
                 filterChain.doFilter(request, response);
                 return;
             }
-            
-            long currentTime = System.currentTimeMillis();
-            
-            // Clean up old entries
-            requestTimes.entrySet().removeIf(entry -> 
-                currentTime - entry.getValue() > TIME_WINDOW);
-            requestCounts.entrySet().removeIf(entry -> 
-                !requestTimes.containsKey(entry.getKey()));
-            
-            // Check rate limit
-            AtomicInteger count = requestCounts.computeIfAbsent(key, k -> new AtomicInteger(0));
-            Long firstRequestTime = requestTimes.get(key);
-            
-            if (firstRequestTime == null) {
-                requestTimes.put(key, currentTime);
-                count.set(1);
-            } else if (currentTime - firstRequestTime < TIME_WINDOW) {
-                if (count.incrementAndGet() > MAX_REQUESTS_PER_MINUTE) {
-                    response.setStatus(429); // Too Many Requests
-                    response.getWriter().write("{\"error\":\"Rate limit exceeded\"}");
-                    return;
-                }
+
+            RouteGroup group = groupFor(uri);
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            RateLimitPolicy policy;
+            long key;
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                policy = group.user;
+                key = TokenBucketTable.key(policy, true, user.getId());
             } else {
-                // Reset window
-                requestTimes.put(key, currentTime);
-                count.set(1);
+                policy = group.anonymous;
+                key = TokenBucketTable.key(policy, false, clientIpHash(request));
             }
-            
+
+            long waitNanos = store.tryAcquire(key, policy);
+            if (waitNanos > 0) {
+                response.setStatus(429); // Too Many Requests
+                // Whole seconds, rounded up
+                response.setHeader("Retry-After", Long.toString(TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+                response.setContentType("application/json");
+                response.getWriter().write("{\"error\":\"Rate limit exceeded\"}");
+                return;
+            }
+
             filterChain.doFilter(request, response);
         }
-        
-        private String getClientIp(HttpServletRequest request) {
+
+        private RouteGroup groupFor(String uri) {
+            for (RouteGroup group : groups) {
+                if (uri.startsWith(group.pathPrefix)) {
+                    return group;
+                }
+            }
+            return groups[groups.length - 1];
+        }
+
+        /**
+         * Hash of the client's address, read in place. Forwarding headers are only
+         * believed from a trusted proxy, since any client can send them: then the client
+         * is the last X-Forwarded-For entry not itself a trusted proxy, or X-Real-IP.
+         * Otherwise it is the peer address.
+         */
+        long clientIpHash(HttpServletRequest request) {
+            String remoteAddr = request.getRemoteAddr();
+            if (!isTrustedProxy(remoteAddr, 0, remoteAddr.length())) {
+                return TokenBucketTable.hash(remoteAddr, 0, remoteAddr.length());
+            }
+
             String xForwardedFor = request.getHeader("X-Forwarded-For");
-            if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-                return xForwardedFor.split(",")[0].trim();
+            if (xForwardedFor != null && !xForwardedFor.isBlank()) {
+                // Walk back from the proxy nearest to us; entries left of the first untrusted one are the client's own
+                int end = xForwardedFor.length();
+                while (true) {
+                    int comma = xForwardedFor.lastIndexOf(',', end - 1);
+                    int start = comma + 1;
+                    int from = start;
+                    int to = end;
+                    while (from < to && xForwardedFor.charAt(from) == ' ') {
+                        from++;
+                    }
+                    while (to > from && xForwardedFor.charAt(to - 1) == ' ') {
+                        to--;
+                    }
+                    if (comma < 0 || (from < to && !isTrustedProxy(xForwardedFor, from, to))) {
+                        return TokenBucketTable.hash(xForwardedFor, from, to);
+                    }
+                    end = comma;
+                }
             }
-            
+
             String xRealIp = request.getHeader("X-Real-IP");
             if (xRealIp != null && !xRealIp.isEmpty()) {
-                return xRealIp;
+                return TokenBucketTable.hash(xRealIp, 0, xRealIp.length());
+            }
+            return TokenBucketTable.hash(remoteAddr, 0, remoteAddr.length());
+        }
+
+        private boolean isTrustedProxy(String address, int from, int to) {
+            for (String proxy : trustedProxies) {
+                if (proxy.length() == to - from && address.regionMatches(from, proxy, 0, proxy.length())) {
+                    return true;
+                }
             }
-            
-            return request.getRemoteAddr();
+            return false;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,227 @@
+package com.examly.springapp.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the versioned SQL scripts under {@code db/migration} that have not run yet,
+ * in version order, and records each in {@code schema_migrations}. Hibernate still
+ * creates tables and columns ({@code ddl-auto=update}); the scripts add what it does
+ * not manage, such as the indexes behind the hot queries. A script is named
+ * {@code V<version>__<description>.sql} and must not change once released: startup
+ * fails if an applied script's checksum no longer matches.
+ * <p>
+ * Scripts that run on every supported database sit in the location itself. DDL whose
+ * syntax differs goes in a subdirectory named for the database ({@code mysql},
+ * {@code postgresql}), one copy per database under the same version.
+ * <p>
+ * A script runs one statement at a time outside a transaction (MySQL commits DDL as it
+ * goes anyway), so a failure part-way leaves the earlier statements applied and the
+ * version unrecorded. The next start runs the whole script again: a {@code CREATE INDEX}
+ * whose index already exists is skipped, and every other statement must be safe to
+ * repeat ({@code UPDATE ... WHERE column IS NULL}, a column change to the definition it
+ * already has). To recover, fix the cause the startup log names and restart. Do not
+ * insert the {@code schema_migrations} row by hand unless every statement of the
+ * script is in place.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class SchemaMigrations {
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(\\w+)\\s+ON\\s+(\\w+)\\b.*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${schema.migrations.enabled:true}")
+    private boolean enabled;
+
+    @Value("${schema.migrations.location:classpath:db/migration}")
+    private String location;
+
+    // Empty to go by the connected database
+    @Value("${schema.migrations.vendor:}")
+    private String vendor;
+
+    @PostConstruct
+    public void migrate() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS schema_migrations ("
+                + "version INT NOT NULL PRIMARY KEY, "
+                + "description VARCHAR(200) NOT NULL, "
+                + "checksum VARCHAR(64) NOT NULL, "
+                + "applied_at TIMESTAMP NOT NULL)");
+
+        Map<Integer, String> applied = new HashMap<>();
+        jdbc.query("SELECT version, checksum FROM schema_migrations",
+                (RowCallbackHandler) row -> applied.put(row.getInt("version"), row.getString("checksum")));
+
+        for (Migration migration : scripts(vendor.isEmpty() ? detectVendor(jdbc) : vendor)) {
+            String recorded = applied.get(migration.version);
+            if (recorded != null) {
+                if (!recorded.equals(migration.checksum)) {
+                    throw new IllegalStateException("Migration V" + migration.version
+                            + " was changed after it was applied");
+                }
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            List<String> statements = statements(migration.script);
+            jdbc.execute((ConnectionCallback<Void>) connection -> {
+                for (int i = 0; i < statements.size(); i++) {
+                    String sql = statements.get(i);
+                    Matcher index = CREATE_INDEX.matcher(sql);
+                    if (index.matches() && indexExists(connection, index.group(2), index.group(1))) {
+                        continue;
+                    }
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(sql);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Migration V" + migration.version + " failed at statement "
+                                + (i + 1) + " of " + statements.size() + "; the ones before it stay applied and"
+                                + " the script runs again on the next start: " + sql, e);
+                    }
+                }
+                return null;
+            });
+            jdbc.update("INSERT INTO schema_migrations (version, description, checksum, applied_at) VALUES (?, ?, ?, ?)",
+                    migration.version, migration.description, migration.checksum,
+                    Timestamp.valueOf(LocalDateTime.now()));
+            System.out.println("Applied schema migration V" + migration.version + " (" + migration.description
+                    + ") in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    private List<Migration> scripts(String database) throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        List<Resource> resources = new ArrayList<>(List.of(resolver.getResources(location + "/V*__*.sql")));
+        resources.addAll(List.of(resolver.getResources(location + "/" + database + "/V*__*.sql")));
+        for (Resource resource : resources) {
+            Matcher name = SCRIPT_NAME.matcher(resource.getFilename());
+            if (!name.matches()) {
+                throw new IllegalStateException("Unexpected migration file name: " + resource.getFilename());
+            }
+            migrations.add(new Migration(Integer.parseInt(name.group(1)), name.group(2).replace('_', ' '),
+                    resource, checksum(resource)));
+        }
+        migrations.sort(Comparator.comparingInt(migration -> migration.version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new IllegalStateException("Two migrations share version " + migrations.get(i).version);
+            }
+        }
+        return migrations;
+    }
+
+    /**
+     * Scripts hold plain statements, each ended by {@code ;}, and whole-line {@code --}
+     * comments.
+     */
+    private static List<String> statements(Resource script) throws IOException {
+        StringBuilder sql = new StringBuilder();
+        for (String line : script.getContentAsString(StandardCharsets.UTF_8).split("\\R")) {
+            if (!line.trim().startsWith("--")) {
+                sql.append(line).append('\n');
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String statement : sql.toString().split(";")) {
+            if (!statement.isBlank()) {
+                statements.add(statement.trim());
+            }
+        }
+        return statements;
+    }
+
+    private static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT)
+                : metaData.storesLowerCaseIdentifiers() ? table.toLowerCase(Locale.ROOT) : table;
+        try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), name,
+                false, true)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the subdirectory for the connected database; MariaDB takes the MySQL scripts
+     */
+    private static String detectVendor(JdbcTemplate jdbc) {
+        String product = jdbc.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        String name = product == null ? "" : product.toLowerCase(Locale.ROOT);
+        if (name.contains("mysql") || name.contains("mariadb")) {
+            return "mysql";
+        }
+        if (name.contains("postgresql")) {
+            return "postgresql";
+        }
+        return name.replace(' ', '_');
+    }
+
+    private static String checksum(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(in.readAllBytes()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final Resource script;
+        private final String checksum;
+
+        Migration(int version, String description, Resource script, String checksum) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            this.checksum = checksum;
+        }
+    }
+}
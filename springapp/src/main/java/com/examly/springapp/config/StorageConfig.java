@@ -0,0 +1,37 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.service.StreamingUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class StorageConfig {
+
+    // Shared by every storage backend for parallel part uploads and async upload bookkeeping
+    @Bean(name = "uploadExecutor", destroyMethod = "shutdown")
+    public ExecutorService uploadExecutor(@Value("${upload.streaming.upload-threads:8}") int threads) {
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * The standard resolver, except that the streaming upload's body is left unparsed
+     * for {@link StreamingUploadService} to read as it arrives.
+     */
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public StandardServletMultipartResolver multipartResolver() {
+        return new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                return !StreamingUploadService.PATH.equals(path) && super.isMultipart(request);
+            }
+        };
+    }
+}
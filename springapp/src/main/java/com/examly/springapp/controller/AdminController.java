@@ -1,9 +1,11 @@
 package com.examly.springapp.controller;
 
+import com.examly.springapp.dto.AdminDocumentDTO;
 import com.examly.springapp.model.User;
 import com.examly.springapp.model.Document;
 import com.examly.springapp.model.ActivityLog;
 import com.examly.springapp.service.UserService;
+import com.examly.springapp.service.DocumentExportService;
 import com.examly.springapp.service.DocumentService;
 import com.examly.springapp.service.ActivityLogService;
 import com.examly.springapp.service.FileStorageService;
@@ -39,6 +41,12 @@ public class AdminController {
     @Autowired
     private SettingsService settingsService;
 
+    @Autowired
+    private DocumentExportService documentExportService;
+
+    @Autowired
+    private com.examly.springapp.service.CacheMetricsService cacheMetricsService;
+
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getAdminStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -117,36 +125,17 @@ public class AdminController {
     }
 
     @GetMapping("/documents")
-    public ResponseEntity<List<Map<String, Object>>> getAllDocuments() {
+    public ResponseEntity<List<AdminDocumentDTO>> getAllDocuments() {
         try {
-            List<Document> documents = documentService.getAllActiveDocuments();
-            List<Map<String, Object>> documentList = documents.stream()
-                    .map(doc -> {
-                        Map<String, Object> docMap = new HashMap<>();
-                        docMap.put("id", doc.getId());
-                        docMap.put("name", doc.getTitle());
-                        docMap.put("title", doc.getTitle());
-                        docMap.put("fileName", doc.getFileName());
-                        docMap.put("type", doc.getFileType());
-                        docMap.put("fileType", doc.getFileType());
-                        docMap.put("size", doc.getSize());
-                        docMap.put("owner", doc.getOwnerId() != null ? "User " + doc.getOwnerId() : "Unknown");
-                        docMap.put("ownerId", doc.getOwnerId());
-                        docMap.put("uploadedAt", doc.getCreatedAt() != null ? doc.getCreatedAt().toString() : null);
-                        docMap.put("createdAt", doc.getCreatedAt() != null ? doc.getCreatedAt().toString() : null);
-                        // Add S3 URLs for direct access
-                        if (doc.getFileUrl() != null) {
-                            String s3Url = fileStorageService.getDirectUrl(doc.getFileUrl());
-                            String downloadUrl = fileStorageService.getDownloadUrl(doc.getFileUrl(), doc.getFileName());
-                            docMap.put("s3Url", s3Url);
-                            docMap.put("directUrl", s3Url);
-                            docMap.put("downloadUrl", downloadUrl);
-                            docMap.put("fileUrl", doc.getFileUrl());
-                        }
-                        return docMap;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-            return ResponseEntity.ok(documentList);
+            List<AdminDocumentDTO> documents = documentService.getAdminDocumentList();
+            // Add S3 URLs for direct access
+            for (AdminDocumentDTO doc : documents) {
+                if (doc.getFileUrl() != null) {
+                    doc.setUrls(fileStorageService.getDirectUrl(doc.getFileUrl()),
+                            fileStorageService.getDownloadUrl(doc.getFileUrl(), doc.getFileName()));
+                }
+            }
+            return ResponseEntity.ok(documents);
         } catch (Exception e) {
             System.err.println("Error getting all documents for admin: " + e.getMessage());
             e.printStackTrace();
@@ -154,6 +143,36 @@ public class AdminController {
         }
     }
 
+    /**
+     * Streams the whole active inventory as NDJSON (default) or CSV. Unlike
+     * {@code /documents} it holds one row in memory at a time, so it works however many
+     * documents there are.
+     */
+    @GetMapping("/documents/export")
+    @com.examly.springapp.config.AsyncTimeout("${export.async-timeout:30m}")
+    public ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> exportDocuments(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        DocumentExportService.Format exportFormat;
+        try {
+            exportFormat = DocumentExportService.Format.valueOf(format.toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            // Declared as a streamed body, which is what lets Spring write it asynchronously
+            return ResponseEntity.badRequest().build();
+        }
+
+        org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody body = out -> {
+            long start = System.currentTimeMillis();
+            long rows = documentExportService.writeActiveDocuments(out, exportFormat);
+            System.out.println("Exported " + rows + " documents as " + exportFormat + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        };
+        String fileName = "documents-" + java.time.LocalDate.now() + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=\"" + fileName + "\"")
+                .header("Content-Type", exportFormat.getContentType())
+                .body(body);
+    }
+
     @GetMapping("/activities")
     public ResponseEntity<List<Map<String, Object>>> getRecentActivities() {
         try {
@@ -319,4 +338,12 @@ public class AdminController {
             return ResponseEntity.status(500).build();
         }
     }
+
+    /**
+     * Hit ratio, size and evictions of each second-level cache region on this instance.
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<List<Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(cacheMetricsService.getRegionStats());
+    }
 }
@@ -6,12 +6,13 @@ import com.examly.springapp.dto.UserRegisterRequestDTO;
 import com.examly.springapp.dto.UserResponseDTO;
 import com.examly.springapp.model.User;
 import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.security.PasswordHashingService;
+import com.examly.springapp.service.UserService;
 import com.examly.springapp.util.JwtUtil;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import java.util.Map;
 
@@ -23,11 +24,20 @@ public class AuthController {
     private UserRepository userRepository;
 
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private UserService userService;
+
+    @org.springframework.beans.factory.annotation.Value("${search.users.max-results:50}")
+    private int maxUserSearchResults;
+
+    @Autowired
+    private com.examly.springapp.search.UserSearchIndexService userSearchIndexService;
+
     @PostMapping("/register")
     public ResponseEntity<?> register(@Valid @RequestBody UserRegisterRequestDTO registerRequest) {
         try {
@@ -41,18 +51,21 @@ public class AuthController {
             User user = new User();
             user.setName(registerRequest.getName());
             user.setEmail(registerRequest.getEmail());
-            user.setPasswordHash(passwordEncoder.encode(registerRequest.getPassword()));
+            user.setPasswordHash(passwordHashingService.encode(registerRequest.getPassword()));
             user.setRole(User.Role.USER);
 
             System.out.println("Saving user to database...");
             User savedUser = userRepository.save(user);
             System.out.println("User saved with ID: " + savedUser.getId());
+            userSearchIndexService.index(savedUser);
 
-            String token = jwtUtil.generateToken(savedUser.getEmail());
+            String token = jwtUtil.generateToken(savedUser);
             System.out.println("JWT token generated successfully");
 
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(new LoginResponseDTO(token, savedUser));
+        } catch (PasswordHashingService.BusyException e) {
+            return busy(e);
         } catch (Exception e) {
             System.err.println("Registration error: " + e.getMessage());
             e.printStackTrace();
@@ -78,15 +91,24 @@ public class AuthController {
             }
 
             User user = userOpt.get();
-            if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPasswordHash())) {
+            if (!passwordHashingService.matches(loginRequest.getPassword(), user.getPasswordHash())) {
                 System.out.println("Password mismatch for user: " + loginRequest.getEmail());
                 return ResponseEntity.badRequest().body(Map.of("message", "Invalid credentials"));
             }
 
-            String token = jwtUtil.generateToken(user.getEmail());
+            String upgradedHash = passwordHashingService.upgrade(loginRequest.getPassword(), user.getPasswordHash());
+            if (upgradedHash != null) {
+                user.setPasswordHash(upgradedHash);
+                user = userRepository.save(user);
+                System.out.println("Password rehashed at the current strength for user: " + loginRequest.getEmail());
+            }
+
+            String token = jwtUtil.generateToken(user);
             System.out.println("Login successful for user: " + loginRequest.getEmail());
 
             return ResponseEntity.ok(new LoginResponseDTO(token, user));
+        } catch (PasswordHashingService.BusyException e) {
+            return busy(e);
         } catch (Exception e) {
             System.err.println("Login error: " + e.getMessage());
             e.printStackTrace();
@@ -95,14 +117,22 @@ public class AuthController {
         }
     }
 
+    private static ResponseEntity<?> busy(PasswordHashingService.BusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", Integer.toString(e.getRetryAfterSeconds()))
+                .body(Map.of("message", e.getMessage()));
+    }
+
     @GetMapping("/users/search")
-    public ResponseEntity<?> searchUsers(@RequestParam String q) {
+    public ResponseEntity<?> searchUsers(@RequestParam String q,
+                                         @RequestParam(defaultValue = "10") int limit) {
         try {
             if (q == null || q.trim().isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("message", "Search query is required"));
             }
 
-            java.util.List<User> users = userRepository.findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(q, q);
+            int bounded = Math.max(1, Math.min(limit, maxUserSearchResults));
+            java.util.List<User> users = userService.searchUsers(q.trim(), bounded);
 
             // Convert to UserResponseDTO list
             java.util.List<UserResponseDTO> userDTOs = users.stream()
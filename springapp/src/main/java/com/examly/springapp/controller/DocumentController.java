@@ -5,6 +5,7 @@ import com.examly.springapp.dto.DocumentResponseDTO;
 import com.examly.springapp.model.Document;
 import com.examly.springapp.model.DocumentPermission;
 import com.examly.springapp.model.User;
+import com.examly.springapp.security.AuthenticatedUser;
 import com.examly.springapp.service.DocumentService;
 import com.examly.springapp.service.DocumentPermissionService;
 import com.examly.springapp.service.UserService;
@@ -13,6 +14,7 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -50,10 +52,22 @@ public class DocumentController {
     private UserService userService;
 
     @Autowired
-    private com.examly.springapp.service.S3StorageService s3StorageService;
+    private com.examly.springapp.service.StreamingUploadService streamingUploadService;
 
     @Autowired
-    private com.examly.springapp.util.JwtUtil jwtUtil;
+    private com.examly.springapp.service.AsyncUploadService asyncUploadService;
+
+    @Autowired
+    private com.examly.springapp.service.UploadSessionService uploadSessionService;
+
+    @Autowired
+    private com.examly.springapp.service.DocumentPurgeService documentPurgeService;
+
+    @Autowired
+    private com.examly.springapp.service.StorageQuotaService storageQuotaService;
+
+    @org.springframework.beans.factory.annotation.Value("${upload.streaming.part-size:8388608}")
+    private long recommendedChunkSize;
 
     @GetMapping
     public ResponseEntity<Map<String, Object>> getAllDocuments(
@@ -62,36 +76,21 @@ public class DocumentController {
             @RequestParam(defaultValue = "id") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDir,
             @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
             jakarta.servlet.http.HttpServletRequest request) {
 
+        // Passing cursor (empty for the first page) switches to keyset pagination
+        if (cursor != null) {
+            return getDocumentsByCursor(cursor, size, sortBy, sortDir, search);
+        }
+
         try {
             // For now, get all documents (will fix user filtering later)
-            Page<Document> documentPage = documentService.getAllDocuments(page, size, sortBy, sortDir, search);
+            Page<com.examly.springapp.dto.DocumentListItemDTO> documentPage = documentService.getAllDocuments(page, size,
+                    sortBy, sortDir, search);
 
-            List<Map<String, Object>> documents = documentPage.getContent().stream()
-                    .map(doc -> {
-                        Map<String, Object> docMap = new java.util.HashMap<>();
-                        docMap.put("id", doc.getId());
-                        docMap.put("title", doc.getTitle());
-                        docMap.put("fileName", doc.getFileName());
-                        docMap.put("fileType", doc.getFileType());
-                        docMap.put("size", doc.getSize());
-                        docMap.put("ownerId", doc.getOwnerId());
-                        docMap.put("visibility",
-                                doc.getVisibility() != null ? doc.getVisibility().toString() : "PRIVATE");
-                        docMap.put("createdAt", doc.getCreatedAt() != null ? doc.getCreatedAt().toString() : null);
-                        docMap.put("updatedAt", doc.getUpdatedAt() != null ? doc.getUpdatedAt().toString() : null);
-                        // Add S3 URLs for direct access
-                        if (doc.getFileUrl() != null) {
-                            String s3Url = fileStorageService.getDirectUrl(doc.getFileUrl());
-                            String downloadUrl = fileStorageService.getDownloadUrl(doc.getFileUrl(), doc.getFileName());
-                            docMap.put("directUrl", s3Url);
-                            docMap.put("s3Url", s3Url);
-                            docMap.put("downloadUrl", downloadUrl);
-                        }
-                        return docMap;
-                    })
-                    .collect(Collectors.toList());
+            List<com.examly.springapp.dto.DocumentListItemDTO> documents = documentPage.getContent();
+            documents.forEach(this::addUrls);
 
             Map<String, Object> response = new java.util.HashMap<>();
             response.put("content", documents);
@@ -119,6 +118,42 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Cursor mode of {@link #getAllDocuments}: pages are fetched by seeking past the
+     * previous page's last row and carry no totals, so deep pages are as cheap as the
+     * first. Follow {@code nextCursor} until {@code hasNext} is false.
+     */
+    private ResponseEntity<Map<String, Object>> getDocumentsByCursor(String cursor, int size, String sortBy,
+            String sortDir, String search) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Page size must be at least 1"));
+        }
+        try {
+            DocumentService.CursorPage documentPage = documentService.getDocumentsAfter(null, cursor, size, sortBy,
+                    sortDir, search);
+
+            documentPage.getContent().forEach(this::addUrls);
+
+            Map<String, Object> response = new java.util.HashMap<>();
+            response.put("content", documentPage.getContent());
+            response.put("size", size);
+            response.put("nextCursor", documentPage.getNextCursor());
+            response.put("hasNext", documentPage.isHasNext());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException | org.springframework.dao.InvalidDataAccessApiUsageException e) {
+            // Malformed or mismatched cursor, or a sort column cursors cannot seek on
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid cursor or sort: " + e.getMessage()));
+        }
+    }
+
+    private void addUrls(com.examly.springapp.dto.DocumentListItemDTO doc) {
+        // Add S3 URLs for direct access
+        if (doc.getFileUrl() != null) {
+            doc.setUrls(fileStorageService.getDirectUrl(doc.getFileUrl()),
+                    fileStorageService.getDownloadUrl(doc.getFileUrl(), doc.getFileName()));
+        }
+    }
+
     @GetMapping("/{id}")
     public DocumentResponseDTO getDocumentById(@PathVariable Long id) {
         return new DocumentResponseDTO(documentService.getDocumentById(id));
@@ -198,67 +233,600 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Streams the document, honouring {@code Range} so seeks and resumed downloads only
+     * fetch the requested bytes from S3. A single range maps onto one ranged GetObject;
+     * several ranges are sent as multipart/byteranges.
+     */
     @GetMapping("/{id}/download")
-    public ResponseEntity<?> downloadDocument(@PathVariable Long id) {
+    @com.examly.springapp.config.AsyncTimeout("${download.async-timeout:30m}")
+    public ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> downloadDocument(@PathVariable Long id,
+            @RequestHeader(value = "Range", required = false) String rangeHeader,
+            @RequestHeader(value = "If-Range", required = false) String ifRange,
+            jakarta.servlet.http.HttpServletRequest request) {
         try {
             Document document = documentService.getDocumentById(id);
             if (document.getFileUrl() == null) {
                 return ResponseEntity.notFound().build();
             }
+            if (document.getContentEncoding() != null) {
+                return downloadEncoded(document, request);
+            }
 
-            // Get file from S3 and stream it with download headers
-            java.io.InputStream fileStream = fileStorageService.getFileStream(document.getFileUrl());
-            
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=\"" + document.getFileName() + "\"")
-                    .header("Content-Type", document.getFileType())
-                    .body(new org.springframework.core.io.InputStreamResource(fileStream));
+            List<org.springframework.http.HttpRange> ranges = parseRanges(rangeHeader);
+            // A weak or unparseable If-Range validator can never match, so the full body is sent
+            String ifMatch = null;
+            java.time.Instant ifUnmodifiedSince = null;
+            if (!ranges.isEmpty() && ifRange != null) {
+                if (ifRange.startsWith("\"")) {
+                    ifMatch = ifRange;
+                } else {
+                    ifUnmodifiedSince = parseHttpDate(ifRange);
+                }
+                if (ifMatch == null && ifUnmodifiedSince == null) {
+                    ranges = List.of();
+                }
+            }
+
+            if (ranges.size() > 1) {
+                ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> multipart = downloadRanges(document, ranges, ifMatch, ifUnmodifiedSince);
+                if (multipart != null) {
+                    return multipart;
+                }
+            } else if (ranges.size() == 1) {
+                com.examly.springapp.storage.ObjectRange part = fileStorageService.getFileRange(
+                        document.getFileUrl(), org.springframework.http.HttpRange.toString(ranges), ifMatch, ifUnmodifiedSince);
+                if (part != null) {
+                    return downloadResponse(document, part, HttpStatus.PARTIAL_CONTENT)
+                            .header("Content-Range", part.getContentRange())
+                            .body(ResponseBodies.stream(part.getBody()));
+                }
+            }
+
+            com.examly.springapp.service.ObjectCacheService.CachedFile cached = fileStorageService.getCachedFile(document.getFileUrl());
+            if (cached != null) {
+                return downloadCachedFile(document, cached, request);
+            }
+
+            // Get file from storage and stream it with download headers
+            com.examly.springapp.storage.ObjectRange file = fileStorageService.getFileRange(
+                    document.getFileUrl(), null, null, null);
+            return downloadResponse(document, file, HttpStatus.OK)
+                    .body(ResponseBodies.stream(file.getBody()));
+        } catch (com.examly.springapp.storage.RangeNotSatisfiableException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Accept-Ranges", "bytes")
+                    .header("Content-Range", "bytes */" + e.getObjectSize())
+                    .build();
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
 
+    /**
+     * Documents stored compressed go out as stored when the client accepts the encoding
+     * and are decompressed on the fly otherwise. A range of the original content cannot
+     * be located in the compressed object, so ranges are not offered for these.
+     */
+    private ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> downloadEncoded(Document document, jakarta.servlet.http.HttpServletRequest request)
+            throws java.io.IOException {
+        if (com.examly.springapp.storage.ContentEncoding.GZIP.equals(document.getContentEncoding())
+                && com.examly.springapp.storage.ContentEncoding.acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            com.examly.springapp.service.ObjectCacheService.CachedFile cached = fileStorageService.getCachedFile(document.getFileUrl());
+            if (cached != null) {
+                return downloadCachedFile(document, cached, request);
+            }
+            com.examly.springapp.storage.ObjectRange file = fileStorageService.getFileRange(
+                    document.getFileUrl(), null, null, null);
+            return downloadResponse(document, file, HttpStatus.OK)
+                    .body(ResponseBodies.stream(file.getBody()));
+        }
+
+        java.io.InputStream decoded = fileStorageService.getFileStream(document.getFileUrl(), document.getContentEncoding());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("Content-Disposition", attachment(document))
+                .header("Content-Type", document.getFileType())
+                .header("Accept-Ranges", "none")
+                .header("Vary", "Accept-Encoding");
+        if (document.getSize() != null) {
+            response.contentLength(document.getSize());
+        }
+        return response.body(ResponseBodies.stream(decoded));
+    }
+
+    /**
+     * @return the multipart/byteranges response, or {@code null} if If-Range did not
+     *         match or the ranges cover the whole object anyway and a plain 200 is cheaper
+     */
+    private ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> downloadRanges(Document document, List<org.springframework.http.HttpRange> ranges,
+            String ifMatch, java.time.Instant ifUnmodifiedSince) throws java.io.IOException {
+        com.examly.springapp.storage.ObjectInfo info = fileStorageService.getFileInfo(document.getFileUrl());
+        if (info == null) {
+            throw new java.io.IOException("Stored object is missing");
+        }
+        if (ifMatch != null && !ifMatch.equals(info.getETag())) {
+            return null;
+        }
+        if (ifUnmodifiedSince != null && info.getLastModified() != null
+                && info.getLastModified().getEpochSecond() > ifUnmodifiedSince.getEpochSecond()) {
+            return null;
+        }
+
+        long size = info.getSize();
+        List<long[]> satisfiable = new java.util.ArrayList<>();
+        long requested = 0;
+        for (org.springframework.http.HttpRange range : ranges) {
+            // Unsatisfiable ranges are dropped as long as at least one remains
+            long start = range.getRangeStart(size);
+            if (start >= size) {
+                continue;
+            }
+            long end = range.getRangeEnd(size);
+            satisfiable.add(new long[] { start, end });
+            requested += end - start + 1;
+        }
+        if (satisfiable.isEmpty()) {
+            throw new com.examly.springapp.storage.RangeNotSatisfiableException(size);
+        }
+        if (requested >= size) {
+            return null;
+        }
+
+        String boundary = org.springframework.util.MimeTypeUtils.generateMultipartBoundaryString();
+        String contentType = document.getFileType() != null ? document.getFileType() : "application/octet-stream";
+        String key = document.getFileUrl();
+        String eTag = info.getETag();
+
+        org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody body = out -> {
+            for (long[] range : satisfiable) {
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + "Content-Type: " + contentType + "\r\n"
+                        + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + size + "\r\n\r\n";
+                out.write(partHeader.getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+                // Pinning the ETag makes a concurrent overwrite fail the response instead of mixing versions
+                com.examly.springapp.storage.ObjectRange part = fileStorageService.getFileRange(
+                        key, "bytes=" + range[0] + "-" + range[1], eTag, null);
+                if (part == null) {
+                    throw new java.io.IOException("Document changed while it was being downloaded");
+                }
+                try (java.io.InputStream in = part.getBody()) {
+                    in.transferTo(out);
+                }
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        };
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .header("Content-Disposition", attachment(document))
+                .header("Content-Type", "multipart/byteranges; boundary=" + boundary)
+                .header("Accept-Ranges", "bytes")
+                .header("ETag", eTag)
+                .body(body);
+    }
+
+    /**
+     * Serves a cache hit without copying it through the heap. On Tomcat the file is
+     * handed to the connector's sendfile support, which writes it with
+     * {@code FileChannel.transferTo} once the handler returns; elsewhere it is
+     * transferred from the channel directly.
+     */
+    private ResponseEntity<org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody> downloadCachedFile(Document document,
+            com.examly.springapp.service.ObjectCacheService.CachedFile cached,
+            jakarta.servlet.http.HttpServletRequest request) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("Content-Disposition", attachment(document))
+                .header("Content-Type", document.getFileType())
+                .contentLength(cached.getSize());
+        storedEncodingHeaders(response, document);
+
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", cached.getPath().toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", cached.getSize());
+            return response.build();
+        }
+
+        org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody body = out -> {
+            try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(cached.getPath())) {
+                java.nio.channels.WritableByteChannel target = java.nio.channels.Channels.newChannel(out);
+                long position = 0;
+                while (position < cached.getSize()) {
+                    position += channel.transferTo(position, cached.getSize() - position, target);
+                }
+            }
+        };
+        return response.body(body);
+    }
+
+    private String attachment(Document document) {
+        return org.springframework.http.ContentDisposition.attachment()
+                .filename(document.getFileName(), java.nio.charset.StandardCharsets.UTF_8)
+                .build().toString();
+    }
+
+    private ResponseEntity.BodyBuilder downloadResponse(Document document,
+            com.examly.springapp.storage.ObjectRange object, HttpStatus status) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+                .header("Content-Disposition", attachment(document))
+                .header("Content-Type", document.getFileType())
+                .contentLength(object.getContentLength());
+        storedEncodingHeaders(response, document);
+        if (object.getETag() != null) {
+            response.eTag(object.getETag());
+        }
+        if (object.getLastModified() != null) {
+            response.lastModified(object.getLastModified());
+        }
+        return response;
+    }
+
+    /**
+     * Headers for sending the stored bytes as they are, encoded or not.
+     */
+    private void storedEncodingHeaders(ResponseEntity.BodyBuilder response, Document document) {
+        if (document.getContentEncoding() != null) {
+            response.header("Content-Encoding", document.getContentEncoding())
+                    .header("Vary", "Accept-Encoding")
+                    .header("Accept-Ranges", "none");
+        } else {
+            response.header("Accept-Ranges", "bytes");
+        }
+    }
+
+    private List<org.springframework.http.HttpRange> parseRanges(String rangeHeader) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+        try {
+            return org.springframework.http.HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // RFC 9110: a Range header that cannot be parsed is ignored
+            return List.of();
+        }
+    }
+
+    private java.time.Instant parseHttpDate(String value) {
+        try {
+            return java.time.ZonedDateTime.parse(value, java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (java.time.format.DateTimeParseException e) {
+            return null;
+        }
+    }
+
     @PostMapping("/upload")
     public ResponseEntity<?> uploadDocument(
             @RequestParam("file") org.springframework.web.multipart.MultipartFile file,
             @RequestParam("title") String title,
-            jakarta.servlet.http.HttpServletRequest request) {
+            @AuthenticationPrincipal AuthenticatedUser caller) {
         try {
-            // Get user ID from JWT token
-            Long userId = getCurrentUserId(request);
+            Long userId = currentUserId(caller);
+            checkTitleLength(title);
 
-            // Check storage limit
-            if (!documentService.checkStorageLimit(userId, file.getSize())) {
+            // Reserve the space before storing, so concurrent uploads cannot overrun the limit
+            com.examly.springapp.model.StorageReservation reservation = storageQuotaService.reserve(userId, file.getSize());
+            if (reservation == null) {
                 String maxStorageStr = settingsService.getSettings().getMaxStoragePerUser();
                 return ResponseEntity.badRequest()
                         .body(Map.of("message", "Storage limit exceeded. Maximum " + maxStorageStr + " allowed."));
             }
 
-            // Store file and get unique filename
-            String storedFilename = fileStorageService.storeFile(file);
+            String storedKey = null;
+            try {
+                // Store file and get unique filename
+                com.examly.springapp.storage.StoredFile stored = fileStorageService.storeFile(file);
+                storedKey = stored.getKey();
 
-            Document document = new Document();
-            document.setTitle(title);
-            document.setFileName(file.getOriginalFilename());
-            document.setFileType(file.getContentType());
-            document.setSize(file.getSize());
-            document.setFileUrl(storedFilename);
-            document.setOwnerId(userId);
-            document.setVisibility(Document.Visibility.PRIVATE);
+                Document saved = documentService.recordUpload(userId, title, file.getOriginalFilename(),
+                        file.getContentType(), file.getSize(), stored.getKey(), stored.getContentEncoding(), reservation);
+
+                return ResponseEntity.ok(new DocumentResponseDTO(saved));
+            } catch (Exception e) {
+                storageQuotaService.release(reservation);
+                deleteUnrecorded(storedKey);
+                throw e;
+            }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Upload failed: " + e.getMessage()));
+        }
+    }
 
-            Document saved = documentService.createDocument(document);
+    /**
+     * Streaming variant of {@link #uploadDocument}: the multipart body is parsed as it
+     * arrives and the file part is piped into an S3 multipart upload, so large files
+     * are neither spooled to disk nor bound by spring.servlet.multipart.max-file-size.
+     */
+    @PostMapping("/upload/stream")
+    public ResponseEntity<?> uploadDocumentStream(jakarta.servlet.http.HttpServletRequest request,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            Long userId = currentUserId(caller);
+
+            // The declared body length is an upper bound on the file; reserve it before streaming anything
+            long declaredLength = request.getContentLengthLong();
+            com.examly.springapp.model.StorageReservation reservation = null;
+            if (declaredLength > 0) {
+                reservation = storageQuotaService.reserve(userId, declaredLength);
+                if (reservation == null) {
+                    String maxStorageStr = settingsService.getSettings().getMaxStoragePerUser();
+                    return ResponseEntity.badRequest()
+                            .body(Map.of("message", "Storage limit exceeded. Maximum " + maxStorageStr + " allowed."));
+                }
+            }
+
+            String storedKey = null;
+            try {
+                com.examly.springapp.service.StreamingUploadService.StreamedUpload upload = streamingUploadService.receive(request);
+                storedKey = upload.getStoredFilename();
+
+                if (reservation == null) {
+                    // Chunked body of unknown length: the size is only known once it is stored
+                    reservation = storageQuotaService.reserve(userId, upload.getSize());
+                    if (reservation == null) {
+                        storedKey = null;
+                        fileStorageService.deleteFile(upload.getStoredFilename());
+                        String maxStorageStr = settingsService.getSettings().getMaxStoragePerUser();
+                        return ResponseEntity.badRequest()
+                                .body(Map.of("message", "Storage limit exceeded. Maximum " + maxStorageStr + " allowed."));
+                    }
+                }
 
-            // Log upload activity
-            User owner = userService.getUserById(userId);
-            activityLogService.logActivity(saved, owner, "UPLOADED",
-                    "Document uploaded: " + saved.getFileName());
+                String title = upload.getTitle() != null && !upload.getTitle().isBlank() ? upload.getTitle() : upload.getFileName();
+                Document saved = documentService.recordUpload(userId, title, upload.getFileName(),
+                        upload.getContentType(), upload.getSize(), upload.getStoredFilename(), upload.getContentEncoding(),
+                        reservation);
 
-            return ResponseEntity.ok(new DocumentResponseDTO(saved));
+                return ResponseEntity.ok(new DocumentResponseDTO(saved));
+            } catch (Exception e) {
+                storageQuotaService.release(reservation);
+                deleteUnrecorded(storedKey);
+                throw e;
+            }
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("message", "Upload failed: " + e.getMessage()));
         }
     }
 
+    private static void checkTitleLength(String title) {
+        if (title != null && title.length() > com.examly.springapp.service.StreamingUploadService.MAX_TITLE_LENGTH) {
+            throw new IllegalArgumentException("Title must be at most "
+                    + com.examly.springapp.service.StreamingUploadService.MAX_TITLE_LENGTH + " characters");
+        }
+    }
+
+    /**
+     * Drops the reference taken when a file was stored for a document that was then not
+     * recorded, so the object can be deleted once nothing else refers to it.
+     */
+    private void deleteUnrecorded(String key) {
+        if (key == null) {
+            return;
+        }
+        try {
+            fileStorageService.deleteFile(key);
+        } catch (java.io.IOException e) {
+            // Reference stays counted; the object is only kept around longer than needed
+            System.err.println("Failed to delete unrecorded upload " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Accepts the file, queues the S3 transfer and answers 202 immediately. Progress is
+     * pushed to the uploading user's STOMP queue; the document row is created once the
+     * transfer completes.
+     */
+    @PostMapping("/upload/async")
+    public ResponseEntity<?> uploadDocumentAsync(
+            @RequestParam("file") org.springframework.web.multipart.MultipartFile file,
+            @RequestParam("title") String title,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            Long userId = currentUserId(caller);
+            checkTitleLength(title);
+
+            // Held until the background transfer records the document or fails
+            com.examly.springapp.model.StorageReservation reservation = storageQuotaService.reserve(userId, file.getSize());
+            if (reservation == null) {
+                String maxStorageStr = settingsService.getSettings().getMaxStoragePerUser();
+                return ResponseEntity.badRequest()
+                        .body(Map.of("message", "Storage limit exceeded. Maximum " + maxStorageStr + " allowed."));
+            }
+
+            com.examly.springapp.service.AsyncUploadService.UploadJob job;
+            try {
+                job = asyncUploadService.submit(userId, title, file, reservation);
+            } catch (Exception e) {
+                storageQuotaService.release(reservation);
+                throw e;
+            }
+
+            Map<String, Object> response = new java.util.HashMap<>();
+            response.put("jobId", job.getJobId());
+            response.put("status", job.getStatus());
+            response.put("progressTopic", "/user" + com.examly.springapp.service.AsyncUploadService.PROGRESS_DESTINATION);
+            response.put("statusUrl", "/api/documents/upload/jobs/" + job.getJobId());
+            return ResponseEntity.accepted().body(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Upload failed: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/upload/jobs/{jobId}")
+    public ResponseEntity<?> getUploadJob(@PathVariable String jobId, @AuthenticationPrincipal AuthenticatedUser caller) {
+        // Another user's job answers as if it did not exist
+        com.examly.springapp.service.AsyncUploadService.UploadJob job = asyncUploadService.getJob(jobId, currentUserId(caller));
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @PostMapping("/upload/sessions")
+    public ResponseEntity<?> createUploadSession(@RequestBody Map<String, Object> sessionRequest,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            Long userId = currentUserId(caller);
+            Long expectedSize = sessionRequest.get("size") != null ? ((Number) sessionRequest.get("size")).longValue() : null;
+
+            if (expectedSize != null && !documentService.checkStorageLimit(userId, expectedSize)) {
+                String maxStorageStr = settingsService.getSettings().getMaxStoragePerUser();
+                return ResponseEntity.badRequest()
+                        .body(Map.of("message", "Storage limit exceeded. Maximum " + maxStorageStr + " allowed."));
+            }
+
+            com.examly.springapp.model.UploadSession session = uploadSessionService.createSession(userId,
+                    (String) sessionRequest.get("title"), (String) sessionRequest.get("fileName"),
+                    (String) sessionRequest.get("fileType"), expectedSize);
+
+            Map<String, Object> response = toUploadSessionMap(session);
+            response.put("chunkSize", recommendedChunkSize);
+            response.put("minChunkSize", com.examly.springapp.service.UploadSessionService.MIN_CHUNK_SIZE);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Could not create upload session: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Uploads one chunk as the raw request body (application/octet-stream). A chunk
+     * may be re-sent any number of times until the session is committed.
+     */
+    @PutMapping("/upload/sessions/{sessionId}/chunks/{chunkNumber}")
+    public ResponseEntity<?> uploadSessionChunk(@PathVariable String sessionId, @PathVariable int chunkNumber,
+            jakarta.servlet.http.HttpServletRequest request,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            long length = request.getContentLengthLong();
+            if (length < 0) {
+                return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED)
+                        .body(Map.of("message", "Content-Length is required for chunk uploads"));
+            }
+
+            com.examly.springapp.model.UploadSessionPart part = uploadSessionService.uploadChunk(sessionId,
+                    currentUserId(caller), chunkNumber, request.getInputStream(), length);
+
+            return ResponseEntity.ok(Map.of("chunkNumber", part.getPartNumber(), "size", part.getSize()));
+        } catch (jakarta.persistence.EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Chunk upload failed: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/upload/sessions/{sessionId}")
+    public ResponseEntity<?> getUploadSession(@PathVariable String sessionId,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            com.examly.springapp.model.UploadSession session = uploadSessionService.getSession(sessionId, currentUserId(caller));
+
+            Map<String, Object> response = toUploadSessionMap(session);
+            // Lets a client that lost its state work out which chunks still need sending
+            response.put("receivedChunks", uploadSessionService.getParts(sessionId).stream()
+                    .map(part -> Map.of("chunkNumber", part.getPartNumber(), "size", part.getSize()))
+                    .collect(Collectors.toList()));
+            return ResponseEntity.ok(response);
+        } catch (jakarta.persistence.EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/upload/sessions/{sessionId}/commit")
+    public ResponseEntity<?> commitUploadSession(@PathVariable String sessionId,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            Document saved = uploadSessionService.commit(sessionId, currentUserId(caller));
+            return ResponseEntity.ok(new DocumentResponseDTO(saved));
+        } catch (jakarta.persistence.EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Commit failed: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/upload/sessions/{sessionId}")
+    public ResponseEntity<?> abortUploadSession(@PathVariable String sessionId,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            uploadSessionService.abort(sessionId, currentUserId(caller));
+            return ResponseEntity.ok(Map.of("message", "Upload session aborted"));
+        } catch (jakarta.persistence.EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Hands out a presigned PUT URL so the client can upload straight to the bucket.
+     * The client must send the same Content-Type and Content-Length it declared here,
+     * then call /finalize.
+     */
+    @PostMapping("/upload/presigned")
+    public ResponseEntity<?> createPresignedUpload(@RequestBody Map<String, Object> uploadRequest,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            Long userId = currentUserId(caller);
+            Long size = uploadRequest.get("size") != null ? ((Number) uploadRequest.get("size")).longValue() : null;
+
+            if (size != null && !documentService.checkStorageLimit(userId, size)) {
+                String maxStorageStr = settingsService.getSettings().getMaxStoragePerUser();
+                return ResponseEntity.badRequest()
+                        .body(Map.of("message", "Storage limit exceeded. Maximum " + maxStorageStr + " allowed."));
+            }
+
+            com.examly.springapp.service.UploadSessionService.PresignedUpload upload = uploadSessionService
+                    .createPresignedSession(userId, (String) uploadRequest.get("title"),
+                            (String) uploadRequest.get("fileName"), (String) uploadRequest.get("fileType"), size);
+
+            Map<String, Object> response = toUploadSessionMap(upload.getSession());
+            response.put("uploadUrl", upload.getUploadUrl());
+            response.put("method", "PUT");
+            response.put("expiresAt", upload.getExpiresAt().toString());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Could not create presigned upload: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/upload/presigned/{sessionId}/finalize")
+    public ResponseEntity<?> finalizePresignedUpload(@PathVariable String sessionId,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            Document saved = uploadSessionService.finalizePresigned(sessionId, currentUserId(caller));
+            return ResponseEntity.ok(new DocumentResponseDTO(saved));
+        } catch (jakarta.persistence.EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Finalize failed: " + e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> toUploadSessionMap(com.examly.springapp.model.UploadSession session) {
+        Map<String, Object> sessionMap = new java.util.HashMap<>();
+        sessionMap.put("sessionId", session.getId());
+        sessionMap.put("title", session.getTitle());
+        sessionMap.put("fileName", session.getFileName());
+        sessionMap.put("fileType", session.getFileType());
+        sessionMap.put("size", session.getExpectedSize());
+        sessionMap.put("mode", session.getMode().toString());
+        sessionMap.put("status", session.getStatus().toString());
+        sessionMap.put("documentId", session.getDocumentId());
+        sessionMap.put("createdAt", session.getCreatedAt() != null ? session.getCreatedAt().toString() : null);
+        sessionMap.put("updatedAt", session.getUpdatedAt() != null ? session.getUpdatedAt().toString() : null);
+        return sessionMap;
+    }
+
     @GetMapping("/recent")
     public ResponseEntity<List<Map<String, Object>>> getRecentDocuments(jakarta.servlet.http.HttpServletRequest request) {
         try {
@@ -313,6 +881,33 @@ public class DocumentController {
         return ResponseEntity.ok(content);
     }
 
+    /**
+     * Empties the caller's trash, or only the listed trashed documents when
+     * {@code ids} is given.
+     */
+    @PostMapping("/trash/purge")
+    public ResponseEntity<?> purgeTrash(@RequestBody(required = false) Map<String, List<Long>> purgeRequest,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
+        try {
+            Long userId = currentUserId(caller);
+            List<Document> trashed = documentService.getTrashedDocumentsByOwner(userId);
+            if (purgeRequest != null && purgeRequest.get("ids") != null) {
+                java.util.Set<Long> ids = new java.util.HashSet<>(purgeRequest.get("ids"));
+                trashed = trashed.stream().filter(doc -> ids.contains(doc.getId())).collect(Collectors.toList());
+            }
+
+            com.examly.springapp.service.DocumentPurgeService.PurgeResult result = documentPurgeService.purge(trashed,
+                    "PERMANENTLY_DELETED", "File permanently deleted from trash: ");
+
+            Map<String, Object> response = new java.util.HashMap<>();
+            response.put("deleted", result.getDeletedDocuments());
+            response.put("failedFiles", result.getFailedFiles());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Purge failed: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getDocumentStats() {
         try {
@@ -381,7 +976,7 @@ public class DocumentController {
             // Generate direct S3 URL for immediate access
             String directS3Url = "";
             if (document.getFileUrl() != null) {
-                directS3Url = s3StorageService.generatePublicUrl(document.getFileUrl());
+                directS3Url = fileStorageService.getDirectUrl(document.getFileUrl());
             }
             
             System.out.println("Generated server share URL: " + serverShareUrl);
@@ -431,9 +1026,10 @@ public class DocumentController {
     }
 
     @DeleteMapping("/{documentId}/permissions/{userId}")
-    public ResponseEntity<?> revokePermission(@PathVariable Long documentId, @PathVariable Long userId) {
+    public ResponseEntity<?> revokePermission(@PathVariable Long documentId, @PathVariable Long userId,
+            @AuthenticationPrincipal AuthenticatedUser caller) {
         try {
-            User revokedBy = userService.getUserById(1L); // Assuming current user ID is 1L
+            User revokedBy = userService.getUserReference(currentUserId(caller));
             documentPermissionService.revokeAllPermissionsForUser(documentId, userId, revokedBy);
             return ResponseEntity.ok(Map.of("message", "Permission revoked"));
         } catch (Exception e) {
@@ -466,13 +1062,13 @@ public class DocumentController {
 
     @PutMapping("/{documentId}/permissions/{userId}")
     public ResponseEntity<?> updatePermission(@PathVariable Long documentId, @PathVariable Long userId,
-            @RequestBody Map<String, Object> request) {
+            @RequestBody Map<String, Object> request, @AuthenticationPrincipal AuthenticatedUser caller) {
         try {
             String permissionStr = (String) request.get("permission");
             DocumentPermission.Permission permission = DocumentPermission.Permission
                     .valueOf(permissionStr.toUpperCase());
 
-            User updatedBy = userService.getUserById(1L); // Assuming current user ID is 1L
+            User updatedBy = userService.getUserReference(currentUserId(caller));
             DocumentPermission updated = documentPermissionService.updatePermission(documentId, userId, permission,
                     updatedBy);
 
@@ -522,13 +1118,8 @@ public class DocumentController {
                         .body(Map.of("message", "Document must be in trash before permanent deletion"));
             }
 
-            // Delete physical file if it exists
-            if (document.getFileUrl() != null) {
-                fileStorageService.deleteFile(document.getFileUrl());
-            }
-
-            // Delete database record permanently
-            documentService.deleteDocument(id);
+            // Deletes the database record, then the physical file if no other document shares it
+            documentPurgeService.purge(List.of(document), null, null);
 
             return ResponseEntity.ok(Map.of("message", "Document permanently deleted"));
         } catch (Exception e) {
@@ -601,11 +1192,11 @@ public class DocumentController {
             
             if (document.getFileUrl() != null) {
                 // Generate direct S3 URL for viewing (always allowed)
-                viewUrl = s3StorageService.generatePublicUrl(document.getFileUrl());
+                viewUrl = fileStorageService.getDirectUrl(document.getFileUrl());
                 
                 // Generate download URL only if access level allows it
                 if (document.getShareAccessLevel() == Document.ShareAccessLevel.VIEW_AND_DOWNLOAD) {
-                    downloadUrl = s3StorageService.generatePublicUrl(document.getFileUrl());
+                    downloadUrl = fileStorageService.getDirectUrl(document.getFileUrl());
                 }
             }
             
@@ -661,20 +1252,8 @@ public class DocumentController {
         return String.format("%.2f %s", bytes / Math.pow(k, i), sizes[i]);
     }
 
-    private Long getCurrentUserId(jakarta.servlet.http.HttpServletRequest request) {
-        try {
-            String authHeader = request.getHeader("Authorization");
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                String token = authHeader.substring(7);
-                String email = jwtUtil.extractEmail(token);
-                // Get user by email
-                com.examly.springapp.model.User user = userService.getUserByEmail(email);
-                return user.getId();
-            }
-        } catch (Exception e) {
-            System.err.println("Error getting current user: " + e.getMessage());
-        }
-        return 1L; // Fallback to user 1 if authentication fails
+    private static Long currentUserId(AuthenticatedUser caller) {
+        return caller != null ? caller.getId() : 1L; // Fallback to user 1 if not authenticated
     }
 
     @GetMapping("/shared/{id}/view")
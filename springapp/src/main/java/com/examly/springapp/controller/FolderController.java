@@ -16,11 +16,12 @@ public class FolderController {
 
     @GetMapping
     public ResponseEntity<List<Map<String, Object>>> getAllFolders() {
-        // Get dynamic counts based on file types
-        long documentCount = documentService.getDocumentCountByType("document");
-        long imageCount = documentService.getDocumentCountByType("image");
-        long videoCount = documentService.getDocumentCountByType("video");
-        long audioCount = documentService.getDocumentCountByType("audio");
+        // Get dynamic counts based on file types, all from one stats read
+        com.examly.springapp.model.DocumentStats stats = documentService.getGlobalStats();
+        long documentCount = documentService.getDocumentCountByType(stats, "document");
+        long imageCount = documentService.getDocumentCountByType(stats, "image");
+        long videoCount = documentService.getDocumentCountByType(stats, "video");
+        long audioCount = documentService.getDocumentCountByType(stats, "audio");
         
         List<Map<String, Object>> folders = List.of(
             Map.of("id", 1, "name", "Documents", "count", documentCount, "type", "documents"),
@@ -0,0 +1,27 @@
+package com.examly.springapp.controller;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+
+/**
+ * Bodies for the download endpoints, which handle {@code Range} themselves.
+ */
+final class ResponseBodies {
+
+    private ResponseBodies() {
+    }
+
+    /**
+     * Streams and closes {@code in}. Unlike an {@code InputStreamResource}, this is left
+     * alone by Spring's own Range support, which would otherwise answer a 200 sent for a
+     * request carrying a Range header with 416, as it cannot size the stream.
+     */
+    static StreamingResponseBody stream(InputStream in) {
+        return out -> {
+            try (InputStream body = in) {
+                body.transferTo(out);
+            }
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.config.AsyncTimeout;
+import com.examly.springapp.model.Document;
+import com.examly.springapp.service.DocumentService;
+import com.examly.springapp.storage.ContentEncoding;
+import com.examly.springapp.storage.ObjectRange;
+import com.examly.springapp.storage.RangeNotSatisfiableException;
+import com.examly.springapp.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+
+/**
+ * Serves stored objects by their public URL when the backend is not S3, standing in
+ * for the public bucket. Only single ranges are supported here; multi-range requests
+ * get the whole object. Compressed objects are sent with their {@code Content-Encoding},
+ * or decoded for clients that do not accept it.
+ */
+@RestController
+@RequestMapping(StorageController.OBJECTS_PATH)
+@ConditionalOnExpression("'${file.storage.type:s3}' != 's3'")
+public class StorageController {
+
+    static final String OBJECTS_PATH = "/api/storage/objects";
+
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @GetMapping("/**")
+    @AsyncTimeout("${download.async-timeout:30m}")
+    public ResponseEntity<StreamingResponseBody> getObject(@RequestParam(value = "download", required = false) String download,
+            @RequestHeader(value = "Range", required = false) String rangeHeader,
+            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding,
+            jakarta.servlet.http.HttpServletRequest request) {
+        String key = PATH_HELPER.getPathWithinApplication(request).substring(OBJECTS_PATH.length() + 1);
+        try {
+            Document document = documentService.getDocumentForStoredFile(key);
+            String contentType = document != null ? document.getFileType() : null;
+            String contentEncoding = document != null ? document.getContentEncoding() : null;
+            if (contentType == null) {
+                contentType = "application/octet-stream";
+            }
+            if (contentEncoding != null) {
+                return getEncodedObject(key, document, contentType, acceptEncoding, download);
+            }
+
+            String range = null;
+            if (rangeHeader != null) {
+                try {
+                    List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                    if (ranges.size() == 1) {
+                        range = HttpRange.toString(ranges);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Unparseable ranges are ignored
+                }
+            }
+
+            ObjectRange object = storageBackend.getObjectRange(key, range, null, null);
+
+            ResponseEntity.BodyBuilder response = ResponseEntity
+                    .status(object.getContentRange() != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                    .header("Content-Type", contentType)
+                    .header("Accept-Ranges", "bytes")
+                    .contentLength(object.getContentLength());
+            if (object.getContentRange() != null) {
+                response.header("Content-Range", object.getContentRange());
+            }
+            if (object.getETag() != null) {
+                response.eTag(object.getETag());
+            }
+            if (object.getLastModified() != null) {
+                response.lastModified(object.getLastModified());
+            }
+            if (download != null) {
+                response.header("Content-Disposition", attachment(download));
+            }
+            return response.body(ResponseBodies.stream(object.getBody()));
+        } catch (RangeNotSatisfiableException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", "bytes */" + e.getObjectSize())
+                    .build();
+        } catch (NoSuchFileException | IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> getEncodedObject(String key, Document document, String contentType,
+            String acceptEncoding, String download) throws IOException {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("Content-Type", contentType)
+                .header("Accept-Ranges", "none")
+                .header("Vary", "Accept-Encoding");
+        if (download != null) {
+            response.header("Content-Disposition", attachment(download));
+        }
+
+        ObjectRange object = storageBackend.getObjectRange(key, null, null, null);
+        if (ContentEncoding.GZIP.equals(document.getContentEncoding()) && ContentEncoding.acceptsGzip(acceptEncoding)) {
+            response.header("Content-Encoding", document.getContentEncoding())
+                    .contentLength(object.getContentLength());
+            if (object.getETag() != null) {
+                response.eTag(object.getETag());
+            }
+            return response.body(ResponseBodies.stream(object.getBody()));
+        }
+        if (document.getSize() != null) {
+            response.contentLength(document.getSize());
+        }
+        return response.body(ResponseBodies.stream(
+                ContentEncoding.decode(object.getBody(), document.getContentEncoding())));
+    }
+
+    // The name comes from the query string; quoting and encoding it keeps it inside the header value
+    private static String attachment(String fileName) {
+        return ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString();
+    }
+}
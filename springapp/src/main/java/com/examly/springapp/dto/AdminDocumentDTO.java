@@ -0,0 +1,106 @@
+package com.examly.springapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row of the admin document listing, selected straight from the query. Several
+ * fields appear under two names because the admin UI reads both.
+ */
+public class AdminDocumentDTO {
+    private final Long id;
+    private final String title;
+    private final String fileName;
+    private final String fileType;
+    private final Long size;
+    private final Long ownerId;
+    private final LocalDateTime createdAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String fileUrl;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String directUrl;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String downloadUrl;
+
+    public AdminDocumentDTO(Long id, String title, String fileName, String fileType, Long size, Long ownerId,
+            LocalDateTime createdAt, String fileUrl) {
+        this.id = id;
+        this.title = title;
+        this.fileName = fileName;
+        this.fileType = fileType;
+        this.size = size;
+        this.ownerId = ownerId;
+        this.createdAt = createdAt;
+        this.fileUrl = fileUrl;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getType() {
+        return fileType;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public String getOwner() {
+        return ownerId != null ? "User " + ownerId : "Unknown";
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public String getUploadedAt() {
+        return getCreatedAt();
+    }
+
+    public String getCreatedAt() {
+        return createdAt != null ? createdAt.toString() : null;
+    }
+
+    public String getFileUrl() {
+        return fileUrl;
+    }
+
+    public String getDirectUrl() {
+        return directUrl;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getS3Url() {
+        return directUrl;
+    }
+
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    public void setUrls(String directUrl, String downloadUrl) {
+        this.directUrl = directUrl;
+        this.downloadUrl = downloadUrl;
+    }
+}
@@ -0,0 +1,108 @@
+package com.examly.springapp.dto;
+
+import com.examly.springapp.model.Document;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row of the document listing, selected straight from the query so no entity is
+ * loaded or tracked for it. Serializes to the same shape the listing always had.
+ */
+public class DocumentListItemDTO {
+    private final Long id;
+    private final String title;
+    private final String fileName;
+    private final String fileType;
+    private final Long size;
+    private final Long ownerId;
+    private final Document.Visibility visibility;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final String fileUrl;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String directUrl;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String downloadUrl;
+
+    public DocumentListItemDTO(Long id, String title, String fileName, String fileType, Long size, Long ownerId,
+            Document.Visibility visibility, LocalDateTime createdAt, LocalDateTime updatedAt, String fileUrl) {
+        this.id = id;
+        this.title = title;
+        this.fileName = fileName;
+        this.fileType = fileType;
+        this.size = size;
+        this.ownerId = ownerId;
+        this.visibility = visibility;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.fileUrl = fileUrl;
+    }
+
+    public DocumentListItemDTO(Document doc) {
+        this(doc.getId(), doc.getTitle(), doc.getFileName(), doc.getFileType(), doc.getSize(), doc.getOwnerId(),
+                doc.getVisibility(), doc.getCreatedAt(), doc.getUpdatedAt(), doc.getFileUrl());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public String getVisibility() {
+        return visibility != null ? visibility.toString() : "PRIVATE";
+    }
+
+    public String getCreatedAt() {
+        return createdAt != null ? createdAt.toString() : null;
+    }
+
+    public String getUpdatedAt() {
+        return updatedAt != null ? updatedAt.toString() : null;
+    }
+
+    @JsonIgnore
+    public String getFileUrl() {
+        return fileUrl;
+    }
+
+    public String getDirectUrl() {
+        return directUrl;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getS3Url() {
+        return directUrl;
+    }
+
+    public String getDownloadUrl() {
+        return downloadUrl;
+    }
+
+    public void setUrls(String directUrl, String downloadUrl) {
+        this.directUrl = directUrl;
+        this.downloadUrl = downloadUrl;
+    }
+}
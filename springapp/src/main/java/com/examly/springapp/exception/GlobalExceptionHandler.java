@@ -1,5 +1,6 @@
 package com.examly.springapp.exception;
 
+import com.examly.springapp.security.PasswordHashingService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -20,4 +21,17 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, String>> handleEntityNotFoundException(EntityNotFoundException ex) {
         return ResponseEntity.status(404).body(Map.of("message", "Not Found"));
     }
+
+    @ExceptionHandler(org.springframework.dao.OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleOptimisticLockingFailure(
+            org.springframework.dao.OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(409).body(Map.of("message", "The document was changed by another request"));
+    }
+
+    @ExceptionHandler(PasswordHashingService.BusyException.class)
+    public ResponseEntity<Map<String, String>> handlePasswordHashingBusy(PasswordHashingService.BusyException ex) {
+        return ResponseEntity.status(503)
+                .header("Retry-After", Integer.toString(ex.getRetryAfterSeconds()))
+                .body(Map.of("message", ex.getMessage()));
+    }
 }
\ No newline at end of file
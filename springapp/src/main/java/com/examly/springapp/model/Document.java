@@ -3,13 +3,22 @@ package com.examly.springapp.model;
 import jakarta.persistence.*;
 
 @Entity
+@Cacheable
+@org.hibernate.annotations.Cache(usage = org.hibernate.annotations.CacheConcurrencyStrategy.READ_WRITE, region = "documents")
 @Table(name = "documents")
+// A copy read from the cache writes back only what it changed, and fails rather than
+// overwriting a newer version
+@org.hibernate.annotations.DynamicUpdate
 public class Document {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    // Test expects title field
+    @Version
+    private long version;
+
+    // Test expects title field. Never null, like the other cursor sort columns
+    @Column(nullable = false)
     private String title;
 
     // Test expects fileName field
@@ -23,8 +32,13 @@ public class Document {
 
     // Add fields from DB: fileUrl, size, visibility enum, parentFolderId if needed
     private String fileUrl;
+    @Column(nullable = false)
     private Long size;
 
+    // How the stored bytes are encoded (e.g. gzip); null when stored as uploaded. size is always the original length
+    @Column(length = 20)
+    private String contentEncoding;
+
     public enum Visibility {
         PRIVATE, PUBLIC
     }
@@ -33,27 +47,118 @@ public class Document {
         VIEW_ONLY, VIEW_AND_DOWNLOAD
     }
 
+    /**
+     * What kind of file a document is, for the category folders. Derived from the MIME
+     * type, or from the file extension when the type is missing or generic.
+     */
+    public enum Category {
+        DOCUMENT, IMAGE, VIDEO, AUDIO, OTHER;
+
+        private static final java.util.Set<String> DOCUMENT_TYPES = java.util.Set.of("application/pdf",
+                "application/msword", "application/rtf", "application/vnd.ms-excel", "application/vnd.ms-powerpoint");
+        private static final java.util.Map<String, Category> EXTENSIONS = new java.util.HashMap<>();
+
+        static {
+            for (String extension : new String[] { "pdf", "doc", "docx", "odt", "rtf", "txt", "md", "csv", "xls",
+                    "xlsx", "ods", "ppt", "pptx", "odp" }) {
+                EXTENSIONS.put(extension, DOCUMENT);
+            }
+            for (String extension : new String[] { "jpg", "jpeg", "png", "gif", "bmp", "webp", "svg", "tif", "tiff",
+                    "heic" }) {
+                EXTENSIONS.put(extension, IMAGE);
+            }
+            for (String extension : new String[] { "mp4", "mov", "avi", "mkv", "webm", "m4v", "wmv" }) {
+                EXTENSIONS.put(extension, VIDEO);
+            }
+            for (String extension : new String[] { "mp3", "wav", "ogg", "flac", "aac", "m4a", "wma" }) {
+                EXTENSIONS.put(extension, AUDIO);
+            }
+        }
+
+        public static Category of(String mimeType, String fileName) {
+            String type = mimeType != null ? mimeType.trim().toLowerCase(java.util.Locale.ROOT) : "";
+            int parameters = type.indexOf(';');
+            if (parameters >= 0) {
+                type = type.substring(0, parameters).trim();
+            }
+            if (type.startsWith("image/")) {
+                return IMAGE;
+            }
+            if (type.startsWith("video/")) {
+                return VIDEO;
+            }
+            if (type.startsWith("audio/")) {
+                return AUDIO;
+            }
+            if (type.startsWith("text/") || DOCUMENT_TYPES.contains(type)
+                    || type.startsWith("application/vnd.openxmlformats-officedocument.")
+                    || type.startsWith("application/vnd.oasis.opendocument.")) {
+                return DOCUMENT;
+            }
+            int dot = fileName != null ? fileName.lastIndexOf('.') : -1;
+            if (dot >= 0) {
+                Category byExtension = EXTENSIONS.get(fileName.substring(dot + 1).toLowerCase(java.util.Locale.ROOT));
+                if (byExtension != null) {
+                    return byExtension;
+                }
+            }
+            return OTHER;
+        }
+    }
+
     @Enumerated(EnumType.STRING)
     private Visibility visibility;
 
     @Enumerated(EnumType.STRING)
     private ShareAccessLevel shareAccessLevel;
 
+    // Set from fileType and fileName on insert and whenever either changes
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Category category;
+
     private Long parentFolderId;
     
+    @Column(nullable = false)
     private java.time.LocalDateTime createdAt;
+    @Column(nullable = false)
     private java.time.LocalDateTime updatedAt;
     private java.time.LocalDateTime deletedAt;
 
+    // What this document added to the document_stats counters as of the last read or
+    // write of its row. Controllers modify managed documents before handing them to the
+    // service, so the service measures a change against this rather than the fields.
+    @Transient
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private DocumentStats countedStats;
+
+    // Truncated to what the column stores, so a loaded or cached entity compares equal
+    // to its row (keyset cursors depend on it)
     @PrePersist
     protected void onCreate() {
-        createdAt = java.time.LocalDateTime.now();
-        updatedAt = java.time.LocalDateTime.now();
+        createdAt = java.time.LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.MICROS);
+        updatedAt = createdAt;
+        category = Category.of(fileType, fileName);
+        // A document without a file of its own, or without a title, is listed by its file name
+        if (size == null) {
+            size = 0L;
+        }
+        if (title == null) {
+            title = fileName != null ? fileName : "";
+        }
     }
 
     @PreUpdate
     protected void onUpdate() {
-        updatedAt = java.time.LocalDateTime.now();
+        updatedAt = java.time.LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.MICROS);
+        category = Category.of(fileType, fileName);
+    }
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    protected void onSynced() {
+        countedStats = DocumentStats.of(this);
     }
 
     public Long getId() {
@@ -120,6 +225,14 @@ public class Document {
         this.size = size;
     }
 
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public void setContentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
     public Visibility getVisibility() {
         return visibility;
     }
@@ -160,6 +273,21 @@ public class Document {
         this.deletedAt = deletedAt;
     }
 
+    /**
+     * @return the contribution already counted for this document, {@code null} if it was never saved
+     */
+    public DocumentStats getCountedStats() {
+        return countedStats;
+    }
+
+    public void setCountedStats(DocumentStats countedStats) {
+        this.countedStats = countedStats;
+    }
+
+    public Category getCategory() {
+        return category;
+    }
+
     public ShareAccessLevel getShareAccessLevel() {
         return shareAccessLevel;
     }
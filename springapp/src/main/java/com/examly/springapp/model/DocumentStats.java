@@ -0,0 +1,184 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Dashboard counters over the documents table, one row per owner plus one for
+ * documents without an owner ({@link #UNOWNED}). Kept current by
+ * {@code DocumentStatsService} in the same transaction as each document change, and
+ * periodically recomputed from the table. The totals are the sum of these rows; the
+ * {@link #GLOBAL} row only records when they were last recomputed.
+ *
+ * <p>Instances built with {@link #of(Document)} are not rows but the contribution of
+ * one document, used to work out what a change adds and removes.
+ */
+@Entity
+@Table(name = "document_stats")
+// Writes only the columns that changed, so a recount never overwrites reservedBytes
+@org.hibernate.annotations.DynamicUpdate
+public class DocumentStats {
+
+    // Owner ids start at 1, so 0 and -1 are free
+    public static final long GLOBAL = 0L;
+    public static final long UNOWNED = -1L;
+
+    @Id
+    @Column(name = "owner_id")
+    private Long ownerId;
+
+    private long activeCount;
+    private long activeBytes;
+    private long trashedCount;
+    private long trashedBytes;
+    // Active documents with PUBLIC visibility
+    private long sharedCount;
+    // Active documents by category
+    private long documentCount;
+    private long imageCount;
+    private long videoCount;
+    private long audioCount;
+
+    // Held by uploads still being written; per owner only, and not derived from the
+    // documents table, so the counter arithmetic below leaves it alone
+    private long reservedBytes;
+
+    private java.time.LocalDateTime reconciledAt;
+
+    public DocumentStats() {
+    }
+
+    public DocumentStats(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    // Row of the per-owner aggregate query
+    public DocumentStats(Long ownerId, Long activeCount, Long activeBytes, Long trashedCount, Long trashedBytes,
+            Long sharedCount, Long documentCount, Long imageCount, Long videoCount, Long audioCount) {
+        this.ownerId = ownerId;
+        this.activeCount = valueOf(activeCount);
+        this.activeBytes = valueOf(activeBytes);
+        this.trashedCount = valueOf(trashedCount);
+        this.trashedBytes = valueOf(trashedBytes);
+        this.sharedCount = valueOf(sharedCount);
+        this.documentCount = valueOf(documentCount);
+        this.imageCount = valueOf(imageCount);
+        this.videoCount = valueOf(videoCount);
+        this.audioCount = valueOf(audioCount);
+    }
+
+    /**
+     * @return what the document, in its current state, adds to its owner's counters
+     */
+    public static DocumentStats of(Document document) {
+        DocumentStats stats = new DocumentStats(document.getOwnerId());
+        long size = document.getSize() != null ? document.getSize() : 0;
+        if (document.getDeletedAt() != null) {
+            stats.trashedCount = 1;
+            stats.trashedBytes = size;
+            return stats;
+        }
+        stats.activeCount = 1;
+        stats.activeBytes = size;
+        stats.sharedCount = document.getVisibility() == Document.Visibility.PUBLIC ? 1 : 0;
+        // Derived rather than read, since a new document is counted before the column is set
+        Document.Category category = Document.Category.of(document.getFileType(), document.getFileName());
+        stats.documentCount = category == Document.Category.DOCUMENT ? 1 : 0;
+        stats.imageCount = category == Document.Category.IMAGE ? 1 : 0;
+        stats.videoCount = category == Document.Category.VIDEO ? 1 : 0;
+        stats.audioCount = category == Document.Category.AUDIO ? 1 : 0;
+        return stats;
+    }
+
+    /**
+     * Adds {@code sign} times the other counters to these.
+     */
+    public void add(DocumentStats other, int sign) {
+        activeCount += sign * other.activeCount;
+        activeBytes += sign * other.activeBytes;
+        trashedCount += sign * other.trashedCount;
+        trashedBytes += sign * other.trashedBytes;
+        sharedCount += sign * other.sharedCount;
+        documentCount += sign * other.documentCount;
+        imageCount += sign * other.imageCount;
+        videoCount += sign * other.videoCount;
+        audioCount += sign * other.audioCount;
+    }
+
+    public boolean isZero() {
+        return activeCount == 0 && activeBytes == 0 && trashedCount == 0 && trashedBytes == 0 && sharedCount == 0
+                && documentCount == 0 && imageCount == 0 && videoCount == 0 && audioCount == 0;
+    }
+
+    public boolean sameCounters(DocumentStats other) {
+        DocumentStats difference = new DocumentStats(ownerId);
+        difference.add(this, 1);
+        difference.add(other, -1);
+        return difference.isZero();
+    }
+
+    /**
+     * Overwrites the counters with the other's.
+     */
+    public void setCounters(DocumentStats other) {
+        DocumentStats difference = new DocumentStats(ownerId);
+        difference.add(other, 1);
+        difference.add(this, -1);
+        add(difference, 1);
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public long getActiveCount() {
+        return activeCount;
+    }
+
+    public long getActiveBytes() {
+        return activeBytes;
+    }
+
+    public long getTrashedCount() {
+        return trashedCount;
+    }
+
+    public long getTrashedBytes() {
+        return trashedBytes;
+    }
+
+    public long getSharedCount() {
+        return sharedCount;
+    }
+
+    public long getDocumentCount() {
+        return documentCount;
+    }
+
+    public long getImageCount() {
+        return imageCount;
+    }
+
+    public long getVideoCount() {
+        return videoCount;
+    }
+
+    public long getAudioCount() {
+        return audioCount;
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public java.time.LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+
+    public void setReconciledAt(java.time.LocalDateTime reconciledAt) {
+        this.reconciledAt = reconciledAt;
+    }
+}
@@ -0,0 +1,35 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Requests counted against one rate-limit bucket in the current one-minute window,
+ * shared by every node when {@code rate-limit.store=jdbc}. One row per bucket; a
+ * request in a later window starts the count again in place.
+ */
+@Entity
+@Table(name = "rate_limit_counters", indexes = @Index(name = "idx_rate_limit_counters_window", columnList = "windowStart"))
+public class RateLimitCounter {
+    @Id
+    private Long bucketKey;
+
+    /** Epoch milliseconds at which the counted window began. */
+    private long windowStart;
+
+    private int used;
+
+    public RateLimitCounter() {
+    }
+
+    public Long getBucketKey() {
+        return bucketKey;
+    }
+
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    public int getUsed() {
+        return used;
+    }
+}
@@ -0,0 +1,59 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Storage set aside for an upload that is still being written. Its bytes are counted
+ * in the owner's {@link DocumentStats#getReservedBytes()} until the document row is
+ * recorded or the upload is abandoned; a reservation that is never settled is released
+ * once it expires.
+ */
+@Entity
+@Table(name = "storage_reservations", indexes = @Index(name = "idx_storage_reservations_expires", columnList = "expiresAt"))
+public class StorageReservation {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    private Long ownerId;
+
+    private long bytes;
+
+    private java.time.LocalDateTime createdAt;
+    private java.time.LocalDateTime expiresAt;
+
+    public StorageReservation() {
+    }
+
+    public StorageReservation(String id, Long ownerId, long bytes, java.time.LocalDateTime expiresAt) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.bytes = bytes;
+        this.expiresAt = expiresAt;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = java.time.LocalDateTime.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public java.time.LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public java.time.LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
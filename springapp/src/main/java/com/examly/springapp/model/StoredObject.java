@@ -0,0 +1,72 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+
+/**
+ * A content-addressed object in the bucket and the number of documents pointing at
+ * it. The object is only deleted once the last reference is released.
+ */
+@Entity
+@Table(name = "stored_objects")
+public class StoredObject {
+    @Id
+    @Column(length = 100)
+    private String storageKey;
+
+    // Hex SHA-256 of the object bytes
+    @Column(length = 64, nullable = false)
+    private String digest;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(nullable = false)
+    private Integer referenceCount;
+
+    private java.time.LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = java.time.LocalDateTime.now();
+    }
+
+    public String getStorageKey() {
+        return storageKey;
+    }
+
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getReferenceCount() {
+        return referenceCount;
+    }
+
+    public void setReferenceCount(Integer referenceCount) {
+        this.referenceCount = referenceCount;
+    }
+
+    public java.time.LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(java.time.LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,165 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+
+/**
+ * An upload in progress. In MULTIPART mode chunks are uploaded through the server as
+ * parts of an S3 multipart upload; in PRESIGNED mode the client PUTs the object to the
+ * bucket itself. Either way the {@link Document} row is only created on commit.
+ */
+@Entity
+@Table(name = "upload_sessions")
+public class UploadSession {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    private Long ownerId;
+
+    private String title;
+    private String fileName;
+    private String fileType;
+
+    // Size announced by the client when the session was opened, if any
+    private Long expectedSize;
+
+    public enum Mode {
+        MULTIPART, PRESIGNED
+    }
+
+    @Enumerated(EnumType.STRING)
+    private Mode mode;
+
+    private String storageKey;
+    // S3 multipart upload id, MULTIPART sessions only
+    private String uploadId;
+
+    // COMPLETING: a commit has started and the object may already exist; a retry records it
+    public enum Status {
+        OPEN, COMPLETING, COMMITTED, ABORTED
+    }
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private Long documentId;
+
+    private java.time.LocalDateTime createdAt;
+    private java.time.LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = java.time.LocalDateTime.now();
+        updatedAt = java.time.LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = java.time.LocalDateTime.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Long ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileType() {
+        return fileType;
+    }
+
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+
+    public Long getExpectedSize() {
+        return expectedSize;
+    }
+
+    public void setExpectedSize(Long expectedSize) {
+        this.expectedSize = expectedSize;
+    }
+
+    public Mode getMode() {
+        // Sessions created before presigned uploads existed have no mode
+        return mode != null ? mode : Mode.MULTIPART;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public String getStorageKey() {
+        return storageKey;
+    }
+
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public java.time.LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(java.time.LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public java.time.LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(java.time.LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
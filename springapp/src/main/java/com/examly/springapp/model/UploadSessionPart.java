@@ -0,0 +1,80 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "upload_session_parts",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "session_id", "part_number" }))
+public class UploadSessionPart {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", length = 36, nullable = false)
+    private String sessionId;
+
+    @Column(name = "part_number", nullable = false)
+    private Integer partNumber;
+
+    @Column(nullable = false)
+    private String etag;
+
+    @Column(nullable = false)
+    private Long size;
+
+    private java.time.LocalDateTime uploadedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        uploadedAt = java.time.LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Integer getPartNumber() {
+        return partNumber;
+    }
+
+    public void setPartNumber(Integer partNumber) {
+        this.partNumber = partNumber;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public java.time.LocalDateTime getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(java.time.LocalDateTime uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+}
@@ -0,0 +1,37 @@
+package com.examly.springapp.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Buckets in this node's memory: no round trips, but each node enforces the limit on
+ * its own and forgets it on restart.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final TokenBucketTable buckets;
+    private long reportedDisplaced;
+
+    public InMemoryRateLimitStore(@Value("${rate-limit.buckets:65536}") int capacity) {
+        this.buckets = new TokenBucketTable(capacity, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    @Override
+    public long tryAcquire(long key, RateLimitPolicy policy) {
+        return buckets.tryAcquire(key, policy, buckets.now());
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:30000}")
+    public void evictIdleBuckets() {
+        buckets.evictIdle(buckets.now());
+        long displaced = buckets.getDisplaced();
+        if (displaced > reportedDisplaced) {
+            reportedDisplaced = displaced;
+            System.out.println("Rate limiter displaced " + displaced + " live buckets; consider raising rate-limit.buckets");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.examly.springapp.ratelimit;
+
+import com.examly.springapp.repository.RateLimitCounterRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts requests in the shared database, so the limit holds across all nodes and
+ * survives redeploys. Each bucket allows the policy's per-minute rate in fixed
+ * one-minute windows; the burst size does not apply.
+ *
+ * <p>To keep the database off the request path, a node leases {@code rate-limit.lease-size}
+ * requests at a time and hands them out locally until they run out or the window ends.
+ * Leased requests a node does not use in its window are lost, so with {@code n} nodes a
+ * caller may be refused up to {@code n * (lease-size - 1)} requests early; a lease size
+ * of 1 counts every request in the database. Once a bucket's window is full the node
+ * refuses it locally until the window ends.
+ */
+@Component
+@ConditionalOnProperty(name = "rate-limit.store", havingValue = "jdbc")
+public class JdbcRateLimitStore implements RateLimitStore {
+
+    static final long WINDOW_MS = TimeUnit.MINUTES.toMillis(1);
+
+    @Autowired
+    private RateLimitCounterRepository counterRepository;
+
+    @Value("${rate-limit.lease-size:20}")
+    private int leaseSize;
+
+    private final LongSupplier clock;
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+    private final LongAdder storeRequests = new LongAdder();
+
+    public JdbcRateLimitStore() {
+        this.clock = System::currentTimeMillis;
+    }
+
+    JdbcRateLimitStore(RateLimitCounterRepository counterRepository, int leaseSize, LongSupplier clock) {
+        this.counterRepository = counterRepository;
+        this.leaseSize = leaseSize;
+        this.clock = clock;
+    }
+
+    @Override
+    public long tryAcquire(long key, RateLimitPolicy policy) {
+        long now = clock.getAsLong();
+        long windowStart = windowStart(now);
+        Lease lease = leases.computeIfAbsent(key, k -> new Lease());
+        // Requests for the same bucket wait here rather than all going to the database
+        synchronized (lease) {
+            if (lease.windowStart != windowStart) {
+                lease.windowStart = windowStart;
+                lease.remaining = 0;
+                lease.exhausted = false;
+            }
+            if (lease.remaining == 0 && !lease.exhausted) {
+                lease.remaining = lease(key, windowStart, policy.getPerMinute());
+                lease.exhausted = lease.remaining == 0;
+            }
+            if (lease.exhausted) {
+                return TimeUnit.MILLISECONDS.toNanos(windowStart + WINDOW_MS - now);
+            }
+            lease.remaining--;
+            return 0;
+        }
+    }
+
+    /**
+     * @return how many requests were taken from the shared count, 0 if the window is full
+     */
+    private int lease(long key, long windowStart, int limit) {
+        int wanted = Math.min(Math.max(1, leaseSize), limit);
+        if (take(key, windowStart, wanted, limit)) {
+            return wanted;
+        }
+        // Fewer than a full lease left in the window
+        return wanted > 1 && take(key, windowStart, 1, limit) ? 1 : 0;
+    }
+
+    private boolean take(long key, long windowStart, int tokens, int limit) {
+        storeRequests.increment();
+        if (counterRepository.take(key, windowStart, tokens, limit) == 1) {
+            return true;
+        }
+        // No row yet, or the window is full; another node may create the row meanwhile, so
+        // either way try again once it exists
+        counterRepository.createIfAbsent(key, windowStart);
+        return counterRepository.take(key, windowStart, tokens, limit) == 1;
+    }
+
+    /**
+     * @return how often a request had to go to the database for a lease
+     */
+    public long getStoreRequests() {
+        return storeRequests.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:30000}")
+    public void evictIdleBuckets() {
+        long windowStart = windowStart(clock.getAsLong());
+        leases.values().removeIf(lease -> lease.windowStart < windowStart);
+        try {
+            // Rows from the previous window are kept for nodes whose clocks run a little behind
+            counterRepository.deleteWindowsBefore(windowStart - WINDOW_MS);
+        } catch (Exception e) {
+            System.err.println("Error deleting old rate limit counters: " + e.getMessage());
+        }
+    }
+
+    private static long windowStart(long now) {
+        return now - Math.floorMod(now, WINDOW_MS);
+    }
+
+    private static final class Lease {
+        private long windowStart = Long.MIN_VALUE;
+        private int remaining;
+        private boolean exhausted;
+    }
+}
@@ -0,0 +1,63 @@
+package com.examly.springapp.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A limit of {@code perMinute} requests, allowing bursts of up to {@code burst} requests
+ * at once, for one group of routes and one kind of caller (a user or an anonymous IP).
+ */
+public final class RateLimitPolicy {
+
+    private final String name;
+    private final int id;
+    private final int perMinute;
+    private final int burst;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+
+    /**
+     * @param id distinguishes the policy's buckets from those of other policies for the same caller
+     */
+    public RateLimitPolicy(String name, int id, int perMinute, int burst) {
+        if (perMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate limit " + name + " must allow at least one request");
+        }
+        this.name = name;
+        this.id = id;
+        this.perMinute = perMinute;
+        this.burst = burst;
+        this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getPerMinute() {
+        return perMinute;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /** Time for one token to refill. */
+    public long getEmissionIntervalNanos() {
+        return emissionIntervalNanos;
+    }
+
+    /** How far ahead of now a bucket's schedule may run before requests are refused. */
+    public long getBurstToleranceNanos() {
+        return burstToleranceNanos;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + perMinute + "/min, burst " + burst + ")";
+    }
+}
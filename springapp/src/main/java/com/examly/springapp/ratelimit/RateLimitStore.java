@@ -0,0 +1,17 @@
+package com.examly.springapp.ratelimit;
+
+/**
+ * Where rate-limit buckets are counted. Exactly one implementation is active, chosen by
+ * {@code rate-limit.store}: {@code memory} (default) limits each node on its own,
+ * {@code jdbc} shares the count between all nodes through the database.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Takes one request from the bucket for {@code key} under {@code policy}.
+     *
+     * @param key a bucket key from {@link TokenBucketTable#key}
+     * @return 0 if the request may proceed, otherwise the nanoseconds until it would be allowed
+     */
+    long tryAcquire(long key, RateLimitPolicy policy);
+}
@@ -0,0 +1,186 @@
+package com.examly.springapp.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets for many callers in fixed, preallocated arrays, updated without locks.
+ *
+ * <p>Each bucket is a single {@code long}: its theoretical arrival time (GCRA), the
+ * moment the bucket would be full again. Taking a token moves it one emission interval
+ * later; a request is refused while it is more than the burst tolerance ahead of now.
+ * A bucket whose time has passed is full, which is also what an absent bucket means,
+ * so idle buckets can be dropped at any time.
+ *
+ * <p>Buckets are keyed by a 64-bit hash and live in stripes of open-addressed slots,
+ * each slot a (key, time) pair of adjacent longs. A key is looked for only in the
+ * window of {@value #WINDOW} slots its hash points at, so a lookup is constant time
+ * and allocates nothing. {@link #evictIdle} frees the slots of full buckets and is
+ * meant to run on a timer, off the request path.
+ */
+public class TokenBucketTable {
+
+    static final int WINDOW = 8;
+
+    private static final long EMPTY = 0;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final int slotMask;
+    private final long origin = System.nanoTime();
+
+    private final LongAdder displaced = new LongAdder();
+
+    /**
+     * @param capacity total number of buckets, rounded up to a power of two
+     */
+    public TokenBucketTable(int capacity, int stripeCount) {
+        int stripes = powerOfTwoAtLeast(stripeCount);
+        int slotsPerStripe = Math.max(WINDOW, powerOfTwoAtLeast(capacity / stripes));
+        this.stripes = new AtomicLongArray[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new AtomicLongArray(slotsPerStripe * 2);
+        }
+        this.stripeMask = stripes - 1;
+        this.slotMask = slotsPerStripe - 1;
+    }
+
+    /**
+     * Current time on the table's clock; always positive, so a zero time means a full bucket.
+     */
+    public long now() {
+        return System.nanoTime() - origin + 1;
+    }
+
+    /**
+     * Takes a token from the bucket for {@code key} under {@code policy}.
+     *
+     * @return 0 if the request may proceed, otherwise the nanoseconds until it would be allowed
+     */
+    public long tryAcquire(long key, RateLimitPolicy policy, long now) {
+        key = normalize(key);
+        AtomicLongArray slots = stripes[(int) (key >>> 32) & stripeMask];
+        int slot = findOrClaim(slots, key, windowStart(key));
+        int timeIndex = slot * 2 + 1;
+        long interval = policy.getEmissionIntervalNanos();
+        long tolerance = policy.getBurstToleranceNanos();
+        while (true) {
+            long arrival = slots.get(timeIndex);
+            long scheduled = Math.max(arrival, now);
+            if (scheduled - now > tolerance) {
+                return scheduled - tolerance - now;
+            }
+            if (slots.compareAndSet(timeIndex, arrival, scheduled + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Frees the slots of buckets that are full again.
+     *
+     * @return the number of buckets dropped
+     */
+    public int evictIdle(long now) {
+        int evicted = 0;
+        for (AtomicLongArray slots : stripes) {
+            for (int keyIndex = 0; keyIndex < slots.length(); keyIndex += 2) {
+                long key = slots.get(keyIndex);
+                long arrival = slots.get(keyIndex + 1);
+                if (key != EMPTY && arrival <= now && slots.compareAndSet(keyIndex, key, EMPTY)) {
+                    // A request racing with this leaves at most one interval on the slot for its next owner
+                    slots.compareAndSet(keyIndex + 1, arrival, 0);
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return how often a live bucket was given up because its whole window was in use, which
+     *         forgets that caller's recent requests; a steadily growing count means the table
+     *         is too small
+     */
+    public long getDisplaced() {
+        return displaced.sum();
+    }
+
+    private int findOrClaim(AtomicLongArray slots, long key, int start) {
+        while (true) {
+            int free = -1;
+            int oldest = start;
+            long oldestArrival = Long.MAX_VALUE;
+            for (int slot = start; slot < start + WINDOW; slot++) {
+                long current = slots.get(slot * 2);
+                if (current == key) {
+                    return slot;
+                }
+                if (current == EMPTY) {
+                    if (free < 0) {
+                        free = slot;
+                    }
+                } else {
+                    long arrival = slots.get(slot * 2 + 1);
+                    if (arrival < oldestArrival) {
+                        oldestArrival = arrival;
+                        oldest = slot;
+                    }
+                }
+            }
+            if (free >= 0) {
+                if (slots.compareAndSet(free * 2, EMPTY, key)) {
+                    return free;
+                }
+                continue;
+            }
+            // Window full: take over the bucket closest to full and start it afresh, as a cache would
+            long previous = slots.get(oldest * 2);
+            if (previous != EMPTY && previous != key && slots.compareAndSet(oldest * 2, previous, key)) {
+                slots.set(oldest * 2 + 1, 0);
+                displaced.increment();
+                return oldest;
+            }
+        }
+    }
+
+    private int windowStart(long key) {
+        return (int) key & slotMask & -WINDOW;
+    }
+
+    private static int powerOfTwoAtLeast(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    private static long normalize(long key) {
+        return key == EMPTY ? 1 : key;
+    }
+
+    /**
+     * Bucket key for a caller under a policy. The identity is a user id, or the hash of an
+     * address from {@link #hash(CharSequence, int, int)}.
+     */
+    public static long key(RateLimitPolicy policy, boolean user, long identity) {
+        return mix(mix(identity) ^ ((long) policy.getId() << 1 | (user ? 1 : 0)));
+    }
+
+    /**
+     * FNV-1a hash of {@code chars[from, to)}, so a header value can be keyed without
+     * copying the part of it that identifies the client.
+     */
+    public static long hash(CharSequence chars, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= chars.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // SplitMix64 finaliser: spreads similar keys (consecutive user ids) across stripes and slots
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,10 +2,12 @@ package com.examly.springapp.repository;
 
 import com.examly.springapp.model.ActivityLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -23,4 +25,9 @@ public interface ActivityLogRepository extends JpaRepository<ActivityLog, Long>
 
     @Query("SELECT al FROM ActivityLog al ORDER BY al.timestamp DESC LIMIT 100")
     List<ActivityLog> findRecentActivities();
+
+    // History outlives the document it describes
+    @Modifying
+    @Query("UPDATE ActivityLog al SET al.document = NULL WHERE al.document.id IN :documentIds")
+    int detachDocuments(@Param("documentIds") Collection<Long> documentIds);
 }
@@ -2,10 +2,12 @@ package com.examly.springapp.repository;
 
 import com.examly.springapp.model.DocumentPermission;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,4 +31,8 @@ public interface DocumentPermissionRepository extends JpaRepository<DocumentPerm
     void deleteByDocumentId(Long documentId);
 
     void deleteByDocumentIdAndUserId(Long documentId, Long userId);
+
+    @Modifying
+    @Query("DELETE FROM DocumentPermission dp WHERE dp.document.id IN :documentIds")
+    int deleteByDocumentIdIn(@Param("documentIds") Collection<Long> documentIds);
 }
@@ -1,7 +1,10 @@
 package com.examly.springapp.repository;
 
+import com.examly.springapp.dto.AdminDocumentDTO;
+import com.examly.springapp.dto.DocumentListItemDTO;
 import com.examly.springapp.model.Document;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,17 +14,24 @@ import org.springframework.data.domain.Pageable;
 import java.util.List;
 
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Long> {
+public interface DocumentRepository extends JpaRepository<Document, Long>, JpaSpecificationExecutor<Document> {
+    // Per-owner document_stats counters, computed the way DocumentStats.of counts one document
+    String STATS_BY_OWNER = "SELECT new com.examly.springapp.model.DocumentStats(d.ownerId, "
+            + "SUM(CASE WHEN d.deletedAt IS NULL THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN d.deletedAt IS NULL THEN COALESCE(d.size, 0) ELSE 0 END), "
+            + "SUM(CASE WHEN d.deletedAt IS NOT NULL THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN d.deletedAt IS NOT NULL THEN COALESCE(d.size, 0) ELSE 0 END), "
+            + "SUM(CASE WHEN d.deletedAt IS NULL AND d.visibility = 'PUBLIC' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN d.deletedAt IS NULL AND d.category = 'DOCUMENT' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN d.deletedAt IS NULL AND d.category = 'IMAGE' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN d.deletedAt IS NULL AND d.category = 'VIDEO' THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN d.deletedAt IS NULL AND d.category = 'AUDIO' THEN 1 ELSE 0 END)) "
+            + "FROM Document d ";
+
     List<Document> findByOwnerId(Long ownerId);
 
     List<Document> findByParentFolderId(Long parentFolderId);
 
-    List<Document> findByTitleContainingIgnoreCase(String title);
-
-    Page<Document> findByTitleContainingIgnoreCase(String title, Pageable pageable);
-
-    List<Document> findByFileNameContainingIgnoreCase(String fileName);
-
     List<Document> findByVisibility(Document.Visibility visibility);
 
     List<Document> findByVisibilityAndDeletedAtIsNull(Document.Visibility visibility);
@@ -41,29 +51,78 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
 
     Page<Document> findByOwnerIdAndTitleContainingIgnoreCaseAndDeletedAtIsNull(Long ownerId, String title, Pageable pageable);
 
-    long countByCreatedAtAfter(java.time.LocalDateTime date);
+    @Query(value = "SELECT new com.examly.springapp.dto.DocumentListItemDTO(d.id, d.title, d.fileName, d.fileType, "
+            + "d.size, d.ownerId, d.visibility, d.createdAt, d.updatedAt, d.fileUrl) "
+            + "FROM Document d WHERE d.deletedAt IS NULL",
+            countQuery = "SELECT COUNT(d) FROM Document d WHERE d.deletedAt IS NULL")
+    Page<DocumentListItemDTO> findListItemsByDeletedAtIsNull(Pageable pageable);
+
+    /**
+     * @param pattern a LIKE pattern in lower case, with {@code \} as escape character
+     */
+    @Query(value = "SELECT new com.examly.springapp.dto.DocumentListItemDTO(d.id, d.title, d.fileName, d.fileType, "
+            + "d.size, d.ownerId, d.visibility, d.createdAt, d.updatedAt, d.fileUrl) "
+            + "FROM Document d WHERE d.deletedAt IS NULL AND LOWER(d.title) LIKE :pattern ESCAPE '\\'",
+            countQuery = "SELECT COUNT(d) FROM Document d WHERE d.deletedAt IS NULL "
+                    + "AND LOWER(d.title) LIKE :pattern ESCAPE '\\'")
+    Page<DocumentListItemDTO> findListItemsByTitleLike(@Param("pattern") String pattern, Pageable pageable);
+
+    @Query("SELECT new com.examly.springapp.dto.DocumentListItemDTO(d.id, d.title, d.fileName, d.fileType, "
+            + "d.size, d.ownerId, d.visibility, d.createdAt, d.updatedAt, d.fileUrl) "
+            + "FROM Document d WHERE d.id IN :ids AND d.deletedAt IS NULL")
+    List<DocumentListItemDTO> findListItemsByIdIn(@Param("ids") java.util.Collection<Long> ids);
+
+    List<Document> findByDeletedAtIsNullAndIdGreaterThan(Long id, Pageable pageable);
+
+    @Query("SELECT new com.examly.springapp.dto.AdminDocumentDTO(d.id, d.title, d.fileName, d.fileType, d.size, "
+            + "d.ownerId, d.createdAt, d.fileUrl) FROM Document d WHERE d.deletedAt IS NULL")
+    List<AdminDocumentDTO> findAdminItemsByDeletedAtIsNull();
 
     long countByCreatedAtAfterAndDeletedAtIsNull(java.time.LocalDateTime date);
 
     long countByVisibility(Document.Visibility visibility);
 
-    long countByVisibilityAndDeletedAtIsNull(Document.Visibility visibility);
+    long countByDeletedAtIsNull();
+
+    List<Document> findByDeletedAtBefore(java.time.LocalDateTime date);
 
-    long countByDeletedAtIsNotNull();
+    java.util.Optional<Document> findFirstByFileUrl(String fileUrl);
 
-    long countByDeletedAtIsNull();
+    List<Document> findByOwnerIdAndDeletedAtIsNotNull(Long ownerId);
 
-    long countByFileTypeContainingIgnoreCaseAndDeletedAtIsNull(String fileType);
+    /**
+     * Reads the whole table; only for reconciling document_stats.
+     */
+    @Query(STATS_BY_OWNER + "GROUP BY d.ownerId")
+    List<com.examly.springapp.model.DocumentStats> aggregateStatsByOwner();
 
-    List<Document> findByDeletedAtBefore(java.time.LocalDateTime date);
+    /**
+     * @return the counters the given documents contribute, one entry per owner
+     */
+    @Query(STATS_BY_OWNER + "WHERE d.id IN :ids GROUP BY d.ownerId")
+    List<com.examly.springapp.model.DocumentStats> aggregateStatsByIdIn(@Param("ids") java.util.Collection<Long> ids);
+
+    @Query(STATS_BY_OWNER + "WHERE d.ownerId = :ownerId GROUP BY d.ownerId")
+    java.util.Optional<com.examly.springapp.model.DocumentStats> aggregateStatsForOwner(@Param("ownerId") Long ownerId);
+
+    @Query(STATS_BY_OWNER + "WHERE d.ownerId IS NULL GROUP BY d.ownerId")
+    java.util.Optional<com.examly.springapp.model.DocumentStats> aggregateStatsForUnowned();
+
+    @org.springframework.data.jpa.repository.Modifying
+    @Query("DELETE FROM Document d WHERE d.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") java.util.Collection<Long> ids);
 
-    List<Document> findByFileTypeContainingIgnoreCaseAndDeletedAtIsNull(String fileType);
+    List<Document> findByCategoryAndDeletedAtIsNullOrderByCreatedAtDesc(Document.Category category);
 
-    @Query("SELECT COALESCE(SUM(COALESCE(d.size, 0)), 0) FROM Document d WHERE d.ownerId = :ownerId AND d.deletedAt IS NULL")
-    long getTotalStorageByOwnerId(@Param("ownerId") Long ownerId);
+    /**
+     * Id, file type and file name of documents not yet given a category, in id order, for the backfill.
+     */
+    @Query("SELECT d.id, d.fileType, d.fileName FROM Document d WHERE d.category IS NULL AND d.id > :afterId ORDER BY d.id")
+    List<Object[]> findUncategorizedAfter(@Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT COALESCE(SUM(COALESCE(d.size, 0)), 0) FROM Document d WHERE d.deletedAt IS NULL")
-    long getTotalStorage();
+    @org.springframework.data.jpa.repository.Modifying
+    @Query("UPDATE VERSIONED Document d SET d.category = :category WHERE d.id IN :ids AND d.category IS NULL")
+    int setCategory(@Param("category") Document.Category category, @Param("ids") java.util.Collection<Long> ids);
 
     List<Document> findByCreatedAtAfterAndDeletedAtIsNull(java.time.LocalDateTime date);
 
@@ -0,0 +1,117 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.Document;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Criteria for the document listings that derived queries cannot express.
+ */
+public final class DocumentSpecifications {
+
+    private DocumentSpecifications() {
+    }
+
+    public static Specification<Document> isActive() {
+        return (root, query, cb) -> cb.isNull(root.get("deletedAt"));
+    }
+
+    public static Specification<Document> ownedBy(Long ownerId) {
+        return (root, query, cb) -> cb.equal(root.get("ownerId"), ownerId);
+    }
+
+    /**
+     * Case-insensitive substring match on the title, like {@code TitleContainingIgnoreCase}.
+     */
+    public static Specification<Document> titleContains(String search) {
+        String pattern = containsPattern(search);
+        return (root, query, cb) -> cb.like(cb.lower(root.get("title")), pattern, '\\');
+    }
+
+    /**
+     * @return a lower-case LIKE pattern matching values that contain {@code search}
+     *         literally, escaped with {@code \}
+     */
+    public static String containsPattern(String search) {
+        String escaped = search.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    /**
+     * Columns a cursor can sort by. All are NOT NULL, so the order is on the plain column
+     * and the seek is a range scan of an index that starts with {@code deleted_at}.
+     */
+    public static final Set<String> CURSOR_SORT_COLUMNS = Set.of("id", "title", "size", "createdAt", "updatedAt");
+
+    /**
+     * Orders by {@code sortBy} with the id as tie-breaker and, when a previous page
+     * ended at ({@code lastValue}, {@code lastId}), only matches the rows after it, so a
+     * page costs an index seek however deep it is.
+     *
+     * @param lastId id of the last row already returned, {@code null} for the first page
+     * @param lastValue string form of that row's sort value
+     * @throws IllegalArgumentException if {@code sortBy} is not one of {@link #CURSOR_SORT_COLUMNS}
+     */
+    public static Specification<Document> orderedAfter(String sortBy, boolean descending, Long lastId,
+            String lastValue) {
+        if (!CURSOR_SORT_COLUMNS.contains(sortBy)) {
+            throw new IllegalArgumentException("Cannot paginate by " + sortBy);
+        }
+        return (root, query, cb) -> {
+            Path<Long> id = root.get("id");
+            boolean byId = "id".equals(sortBy);
+            Path<Comparable<Object>> column = root.get(sortBy);
+
+            List<Order> orders = new ArrayList<>();
+            if (!byId) {
+                orders.add(descending ? cb.desc(column) : cb.asc(column));
+            }
+            orders.add(descending ? cb.desc(id) : cb.asc(id));
+            query.orderBy(orders);
+
+            if (lastId == null) {
+                return null;
+            }
+            Predicate afterId = descending ? cb.lessThan(id, lastId) : cb.greaterThan(id, lastId);
+            if (byId) {
+                return afterId;
+            }
+            if (lastValue == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Comparable<Object> value = parse(lastValue, column.getJavaType());
+            Predicate beyond = descending ? cb.lessThan(column, value) : cb.greaterThan(column, value);
+            Predicate tied = cb.and(cb.equal(column, value), afterId);
+            return cb.or(beyond, tied);
+        };
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Comparable<Object> parse(String value, Class<?> type) {
+        try {
+            if (type == String.class) {
+                return (Comparable) value;
+            }
+            if (type == Long.class || type == long.class) {
+                return (Comparable) Long.valueOf(value);
+            }
+            if (type == LocalDateTime.class) {
+                return (Comparable) LocalDateTime.parse(value);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        throw new IllegalArgumentException("Cannot paginate by " + type.getSimpleName() + " values");
+    }
+}
@@ -0,0 +1,65 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.DocumentStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DocumentStatsRepository extends JpaRepository<DocumentStats, Long>, DocumentStatsRepositoryCustom {
+
+    /**
+     * Adds the delta's counters to the row of the delta's owner in a single statement,
+     * so concurrent changes do not overwrite each other.
+     *
+     * @return 0 if the row does not exist
+     */
+    @Modifying
+    @Query("UPDATE DocumentStats s SET "
+            + "s.activeCount = s.activeCount + :#{#delta.activeCount}, "
+            + "s.activeBytes = s.activeBytes + :#{#delta.activeBytes}, "
+            + "s.trashedCount = s.trashedCount + :#{#delta.trashedCount}, "
+            + "s.trashedBytes = s.trashedBytes + :#{#delta.trashedBytes}, "
+            + "s.sharedCount = s.sharedCount + :#{#delta.sharedCount}, "
+            + "s.documentCount = s.documentCount + :#{#delta.documentCount}, "
+            + "s.imageCount = s.imageCount + :#{#delta.imageCount}, "
+            + "s.videoCount = s.videoCount + :#{#delta.videoCount}, "
+            + "s.audioCount = s.audioCount + :#{#delta.audioCount} "
+            + "WHERE s.ownerId = :#{#delta.ownerId}")
+    int increment(@Param("delta") DocumentStats delta);
+
+    /**
+     * @return the totals over every row but the global one; null counters if there are none
+     */
+    @Query("SELECT new com.examly.springapp.model.DocumentStats(CAST(0 AS Long), SUM(s.activeCount), "
+            + "SUM(s.activeBytes), SUM(s.trashedCount), SUM(s.trashedBytes), SUM(s.sharedCount), "
+            + "SUM(s.documentCount), SUM(s.imageCount), SUM(s.videoCount), SUM(s.audioCount)) "
+            + "FROM DocumentStats s WHERE s.ownerId <> 0")
+    DocumentStats sumOwners();
+
+    /**
+     * Reserves storage for the owner if active and reserved bytes stay within the limit.
+     * The check and the increment are one statement, so concurrent uploads cannot both
+     * pass it.
+     *
+     * @return 1 if reserved, 0 if the limit would be exceeded or the row does not exist
+     */
+    @Modifying
+    @Query("UPDATE DocumentStats s SET s.reservedBytes = s.reservedBytes + :bytes "
+            + "WHERE s.ownerId = :ownerId AND s.activeBytes + s.reservedBytes + :bytes <= :limit")
+    int reserve(@Param("ownerId") Long ownerId, @Param("bytes") long bytes, @Param("limit") long limit);
+
+    @Modifying
+    @Query("UPDATE DocumentStats s SET s.reservedBytes = s.reservedBytes - :bytes WHERE s.ownerId = :ownerId")
+    int release(@Param("ownerId") Long ownerId, @Param("bytes") long bytes);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DocumentStats s WHERE s.ownerId = :ownerId")
+    Optional<DocumentStats> findByIdForUpdate(@Param("ownerId") Long ownerId);
+}
@@ -0,0 +1,13 @@
+package com.examly.springapp.repository;
+
+public interface DocumentStatsRepositoryCustom {
+
+    /**
+     * Creates the owner's zero row unless it exists, in the caller's transaction. A
+     * concurrent first change for the same owner waits on the new row instead of
+     * failing with a duplicate key.
+     *
+     * @return whether the row was created
+     */
+    boolean createIfAbsent(Long ownerId);
+}
@@ -0,0 +1,17 @@
+package com.examly.springapp.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class DocumentStatsRepositoryCustomImpl implements DocumentStatsRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean createIfAbsent(Long ownerId) {
+        return InsertIfAbsent.insert(jdbcTemplate, "INSERT INTO document_stats (owner_id, active_count, active_bytes, "
+                + "trashed_count, trashed_bytes, shared_count, document_count, image_count, video_count, audio_count, "
+                + "reserved_bytes) VALUES (?, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0)", ownerId);
+    }
+}
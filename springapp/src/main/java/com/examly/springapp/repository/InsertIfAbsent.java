@@ -0,0 +1,56 @@
+package com.examly.springapp.repository;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Inserts a row unless one with the same key exists, in plain SQL that every supported
+ * database runs. A concurrent insert of the same key that has not committed yet makes
+ * the statement wait for it, then fail with a duplicate key, which counts as present.
+ *
+ * <p>The statement goes through JDBC rather than a native Hibernate query: Hibernate
+ * marks the whole transaction rollback-only on a constraint violation, and a native
+ * query without declared query spaces clears every second-level cache region.
+ */
+final class InsertIfAbsent {
+
+    private InsertIfAbsent() {
+    }
+
+    /**
+     * Runs in the caller's transaction if there is one, and on its own otherwise.
+     *
+     * @return whether the row was inserted
+     */
+    static boolean insert(JdbcTemplate jdbc, String sql, Object... args) {
+        return Boolean.TRUE.equals(jdbc.execute((ConnectionCallback<Boolean>) connection -> {
+            // PostgreSQL aborts the whole transaction on a failed statement unless it is rolled back to a savepoint
+            Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+                DataAccessException translated = jdbc.getExceptionTranslator().translate("insert", sql, e);
+                if (translated instanceof DuplicateKeyException) {
+                    return false;
+                }
+                throw e;
+            }
+            if (savepoint != null) {
+                connection.releaseSavepoint(savepoint);
+            }
+            return true;
+        }));
+    }
+}
@@ -0,0 +1,35 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.RateLimitCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface RateLimitCounterRepository extends JpaRepository<RateLimitCounter, Long>, RateLimitCounterRepositoryCustom {
+
+    /**
+     * Counts {@code tokens} requests against the bucket if the window stays within
+     * {@code limit}, starting the count afresh if the row is from an earlier window.
+     * The check and the increment are one statement, so nodes cannot both pass it.
+     * {@code used} is assigned first because MySQL applies assignments left to right.
+     *
+     * @return 1 if counted, 0 if the limit would be exceeded or the row does not exist
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RateLimitCounter c SET "
+            + "c.used = CASE WHEN c.windowStart < :windowStart THEN :tokens ELSE c.used + :tokens END, "
+            + "c.windowStart = CASE WHEN c.windowStart < :windowStart THEN :windowStart ELSE c.windowStart END "
+            + "WHERE c.bucketKey = :bucketKey AND (c.windowStart < :windowStart OR c.used + :tokens <= :limit)")
+    int take(@Param("bucketKey") long bucketKey, @Param("windowStart") long windowStart,
+            @Param("tokens") int tokens, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RateLimitCounter c WHERE c.windowStart < :windowStart")
+    int deleteWindowsBefore(@Param("windowStart") long windowStart);
+}
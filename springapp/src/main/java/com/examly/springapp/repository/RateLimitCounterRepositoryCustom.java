@@ -0,0 +1,12 @@
+package com.examly.springapp.repository;
+
+public interface RateLimitCounterRepositoryCustom {
+
+    /**
+     * Creates the bucket's row with nothing counted in the window, unless it exists; a
+     * row another node created first is left as it is.
+     *
+     * @return whether the row was created
+     */
+    boolean createIfAbsent(long bucketKey, long windowStart);
+}
@@ -0,0 +1,17 @@
+package com.examly.springapp.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class RateLimitCounterRepositoryCustomImpl implements RateLimitCounterRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean createIfAbsent(long bucketKey, long windowStart) {
+        return InsertIfAbsent.insert(jdbcTemplate,
+                "INSERT INTO rate_limit_counters (bucket_key, window_start, used) VALUES (?, ?, 0)",
+                bucketKey, windowStart);
+    }
+}
@@ -1,12 +1,18 @@
 package com.examly.springapp.repository;
 
 import com.examly.springapp.model.Settings;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface SettingsRepository extends JpaRepository<Settings, Long> {
-    // Since we only have one settings record, we can use findAll().get(0) or create
-    // a custom method
-    // For simplicity, we'll use the default methods
+    // There is one settings record; it is read on most requests, so the lookup is cached
+    // until the settings table changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<Settings> findFirstByOrderByIdAsc();
 }
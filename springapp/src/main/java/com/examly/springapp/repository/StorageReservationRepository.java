@@ -0,0 +1,23 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.StorageReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StorageReservationRepository extends JpaRepository<StorageReservation, String> {
+    List<StorageReservation> findByExpiresAtBefore(java.time.LocalDateTime date);
+
+    /**
+     * Settling a reservation starts here; only the caller that gets 1 back may
+     * subtract its bytes, so a reservation is never released twice.
+     */
+    @Modifying
+    @Query("DELETE FROM StorageReservation r WHERE r.id = :id")
+    int deleteReservation(@Param("id") String id);
+}
@@ -0,0 +1,26 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.StoredObject;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredObjectRepository extends JpaRepository<StoredObject, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM StoredObject o WHERE o.storageKey = :storageKey")
+    Optional<StoredObject> findByStorageKeyForUpdate(@Param("storageKey") String storageKey);
+
+    // Ordered so concurrent batches lock rows in the same order and cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM StoredObject o WHERE o.storageKey IN :storageKeys ORDER BY o.storageKey")
+    List<StoredObject> findAllByStorageKeyInForUpdate(@Param("storageKeys") Collection<String> storageKeys);
+}
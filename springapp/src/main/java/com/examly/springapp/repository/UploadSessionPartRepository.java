@@ -0,0 +1,17 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.UploadSessionPart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionPartRepository extends JpaRepository<UploadSessionPart, Long> {
+    List<UploadSessionPart> findBySessionIdOrderByPartNumber(String sessionId);
+
+    Optional<UploadSessionPart> findBySessionIdAndPartNumber(String sessionId, Integer partNumber);
+
+    void deleteBySessionId(String sessionId);
+}
@@ -0,0 +1,37 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findByStatusInAndUpdatedAtBefore(Collection<UploadSession.Status> statuses,
+            java.time.LocalDateTime date);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.id = :id")
+    Optional<UploadSession> findByIdForUpdate(@Param("id") String id);
+
+    /**
+     * Keeps an open session alive for the sweeper without writing back a copy that a
+     * concurrent commit may already have moved on.
+     *
+     * @return 1 if the session is still open, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.updatedAt = :now WHERE s.id = :id "
+            + "AND s.status = com.examly.springapp.model.UploadSession.Status.OPEN")
+    int touchOpen(@Param("id") String id, @Param("now") java.time.LocalDateTime now);
+}
@@ -1,17 +1,23 @@
 package com.examly.springapp.repository;
 
 import com.examly.springapp.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
+    // Resolved on every authenticated request; cached until the users table changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     java.util.Optional<User> findByEmail(String email);
     java.util.List<User> findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(String name, String email);
     Page<User> findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(String name, String email, Pageable pageable);
     Page<User> findByRole(User.Role role, Pageable pageable);
+    java.util.List<User> findByIdGreaterThan(Long id, Pageable pageable);
     Page<User> findByNameContainingIgnoreCaseOrEmailContainingIgnoreCaseAndRole(String name, String email, User.Role role, Pageable pageable);
 }
@@ -0,0 +1,350 @@
+package com.examly.springapp.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Term dictionary and postings for document titles and file names, ranked with BM25.
+ * The work for a query is proportional to the postings of its terms, not to the
+ * number of documents. Not thread-safe; {@link SearchIndexService} guards it.
+ */
+class InvertedIndex {
+
+    static final int TITLE_WEIGHT = 2;
+    static final int FILE_NAME_WEIGHT = 1;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // The last query term matches as a prefix; this bounds how many terms it can expand to
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    // Terms that only match as a prefix score less, so the word typed beats longer words
+    private static final double PREFIX_MATCH_WEIGHT = 0.5;
+
+    private static final int SEGMENT_MAGIC = 0x44534958;
+    private static final int SEGMENT_VERSION = 1;
+    private static final long NO_OWNER = Long.MIN_VALUE;
+
+    // Sorted, so prefix lookups are a range scan
+    private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, IndexedDocument> documents = new HashMap<>();
+    private long totalLength;
+
+    /**
+     * @return term frequencies for a document, title terms counting more than file name terms
+     */
+    static Map<String, Integer> termFrequencies(String title, String fileName) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : Tokenizer.tokenize(title)) {
+            terms.merge(term, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String term : Tokenizer.tokenize(fileName)) {
+            terms.merge(term, FILE_NAME_WEIGHT, Integer::sum);
+        }
+        return terms;
+    }
+
+    /**
+     * Adds the document, replacing what was indexed for it before.
+     */
+    void put(long id, Long ownerId, Map<String, Integer> terms) {
+        remove(id);
+        int length = 0;
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>()).put(id, term.getValue());
+            length += term.getValue();
+        }
+        documents.put(id, new IndexedDocument(ownerId, length, terms));
+        totalLength += length;
+    }
+
+    void remove(long id) {
+        IndexedDocument existing = documents.remove(id);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms.keySet()) {
+            Map<Long, Integer> list = postings.get(term);
+            if (list != null) {
+                list.remove(id);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= existing.length;
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    /**
+     * Every query term must match; the last one also matches as a prefix, so results
+     * show up while the user is still typing.
+     *
+     * @param ownerId only match this owner's documents, or {@code null} for all
+     */
+    SearchResult search(String query, Long ownerId, int offset, int limit) {
+        List<String> tokens = new ArrayList<>(new java.util.LinkedHashSet<>(Tokenizer.tokenize(query)));
+        if (tokens.isEmpty() || documents.isEmpty()) {
+            return SearchResult.EMPTY;
+        }
+
+        // Each clause is the set of terms one query token matches
+        List<List<String>> clauses = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            List<String> terms = new ArrayList<>();
+            if (i == tokens.size() - 1) {
+                NavigableMap<String, Map<Long, Integer>> range = postings.subMap(token, true,
+                        token + Character.MAX_VALUE, false);
+                for (String term : range.keySet()) {
+                    terms.add(term);
+                    if (terms.size() == MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            } else if (postings.containsKey(token)) {
+                terms.add(token);
+            }
+            if (terms.isEmpty()) {
+                return SearchResult.EMPTY;
+            }
+            clauses.add(terms);
+        }
+
+        List<String> lastClause = clauses.get(clauses.size() - 1);
+        String lastToken = tokens.get(tokens.size() - 1);
+
+        // Drive from the rarest clause and probe the others
+        clauses.sort(Comparator.comparingLong(this::documentFrequency));
+        Map<String, Double> idf = new HashMap<>();
+        for (List<String> clause : clauses) {
+            for (String term : clause) {
+                idf.put(term, idf(postings.get(term).size()));
+            }
+        }
+        double averageLength = (double) totalLength / documents.size();
+
+        int wanted = offset + limit;
+        Comparator<ScoredDocument> rank = Comparator.comparingDouble((ScoredDocument scored) -> scored.score)
+                .thenComparing(scored -> -scored.id);
+        PriorityQueue<ScoredDocument> top = new PriorityQueue<>(Math.max(1, wanted), rank);
+        int totalHits = 0;
+
+        for (Long candidate : candidates(clauses.get(0))) {
+            IndexedDocument document = documents.get(candidate);
+            if (ownerId != null && !ownerId.equals(document.ownerId)) {
+                continue;
+            }
+            double score = 0;
+            boolean matchesAll = true;
+            for (List<String> clause : clauses) {
+                boolean matched = false;
+                for (String term : clause) {
+                    Integer frequency = postings.get(term).get(candidate);
+                    if (frequency != null) {
+                        matched = true;
+                        double normalization = K1 * (1 - B + B * document.length / averageLength);
+                        double weight = clause == lastClause && !term.equals(lastToken) ? PREFIX_MATCH_WEIGHT : 1;
+                        score += weight * idf.get(term) * frequency * (K1 + 1) / (frequency + normalization);
+                    }
+                }
+                if (!matched) {
+                    matchesAll = false;
+                    break;
+                }
+            }
+            if (!matchesAll) {
+                continue;
+            }
+            totalHits++;
+            if (wanted == 0) {
+                continue;
+            }
+            ScoredDocument scored = new ScoredDocument(candidate, score);
+            if (top.size() < wanted) {
+                top.add(scored);
+            } else if (rank.compare(scored, top.peek()) > 0) {
+                top.poll();
+                top.add(scored);
+            }
+        }
+
+        List<ScoredDocument> ranked = new ArrayList<>(top);
+        ranked.sort(rank.reversed());
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            ids.add(ranked.get(i).id);
+        }
+        return new SearchResult(ids, totalHits);
+    }
+
+    private long documentFrequency(List<String> clause) {
+        long frequency = 0;
+        for (String term : clause) {
+            frequency += postings.get(term).size();
+        }
+        return frequency;
+    }
+
+    private Iterable<Long> candidates(List<String> clause) {
+        if (clause.size() == 1) {
+            return postings.get(clause.get(0)).keySet();
+        }
+        java.util.Set<Long> union = new java.util.HashSet<>();
+        for (String term : clause) {
+            union.addAll(postings.get(term).keySet());
+        }
+        return union;
+    }
+
+    private double idf(int documentFrequency) {
+        int count = documents.size();
+        return Math.log(1 + (count - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /**
+     * Writes the index as a segment: the document table, then every term with its postings.
+     */
+    void writeSegment(DataOutputStream out) throws IOException {
+        out.writeInt(SEGMENT_MAGIC);
+        out.writeInt(SEGMENT_VERSION);
+        out.writeInt(documents.size());
+        for (Map.Entry<Long, IndexedDocument> document : documents.entrySet()) {
+            out.writeLong(document.getKey());
+            out.writeLong(document.getValue().ownerId != null ? document.getValue().ownerId : NO_OWNER);
+        }
+        out.writeInt(postings.size());
+        for (Map.Entry<String, Map<Long, Integer>> term : postings.entrySet()) {
+            out.writeUTF(term.getKey());
+            out.writeInt(term.getValue().size());
+            for (Map.Entry<Long, Integer> posting : term.getValue().entrySet()) {
+                out.writeLong(posting.getKey());
+                out.writeInt(posting.getValue());
+            }
+        }
+    }
+
+    static InvertedIndex readSegment(DataInputStream in) throws IOException {
+        if (in.readInt() != SEGMENT_MAGIC || in.readInt() != SEGMENT_VERSION) {
+            throw new IOException("Not a search index segment");
+        }
+        int documentCount = in.readInt();
+        Map<Long, Long> owners = new HashMap<>(documentCount * 2);
+        Map<Long, Map<String, Integer>> forward = new HashMap<>(documentCount * 2);
+        for (int i = 0; i < documentCount; i++) {
+            long id = in.readLong();
+            long owner = in.readLong();
+            owners.put(id, owner);
+            forward.put(id, new HashMap<>());
+        }
+        int termCount = in.readInt();
+        for (int i = 0; i < termCount; i++) {
+            String term = in.readUTF();
+            int postingCount = in.readInt();
+            for (int j = 0; j < postingCount; j++) {
+                long id = in.readLong();
+                int frequency = in.readInt();
+                Map<String, Integer> terms = forward.get(id);
+                if (terms == null) {
+                    throw new IOException("Posting for unknown document " + id);
+                }
+                terms.put(term, frequency);
+            }
+        }
+
+        InvertedIndex index = new InvertedIndex();
+        for (Map.Entry<Long, Map<String, Integer>> document : forward.entrySet()) {
+            long owner = owners.get(document.getKey());
+            index.put(document.getKey(), owner != NO_OWNER ? owner : null, document.getValue());
+        }
+        return index;
+    }
+
+    /**
+     * Journal record for adding or replacing a document.
+     */
+    static void writePut(DataOutputStream out, long id, Long ownerId, Map<String, Integer> terms) throws IOException {
+        out.writeByte(JournalOp.PUT.code);
+        out.writeLong(id);
+        out.writeLong(ownerId != null ? ownerId : NO_OWNER);
+        out.writeInt(terms.size());
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            out.writeUTF(term.getKey());
+            out.writeInt(term.getValue());
+        }
+    }
+
+    static void writeRemove(DataOutputStream out, long id) throws IOException {
+        out.writeByte(JournalOp.REMOVE.code);
+        out.writeLong(id);
+    }
+
+    /**
+     * Applies one journal record.
+     *
+     * @throws java.io.EOFException at the end of the journal, including after a torn last record
+     */
+    void replay(DataInputStream in) throws IOException {
+        byte code = in.readByte();
+        long id = in.readLong();
+        if (code == JournalOp.REMOVE.code) {
+            remove(id);
+            return;
+        }
+        if (code != JournalOp.PUT.code) {
+            throw new IOException("Unknown journal record " + code);
+        }
+        long owner = in.readLong();
+        int termCount = in.readInt();
+        Map<String, Integer> terms = new LinkedHashMap<>(termCount * 2);
+        for (int i = 0; i < termCount; i++) {
+            String term = in.readUTF();
+            terms.put(term, in.readInt());
+        }
+        put(id, owner != NO_OWNER ? owner : null, terms);
+    }
+
+    private enum JournalOp {
+        PUT(1), REMOVE(2);
+
+        private final byte code;
+
+        JournalOp(int code) {
+            this.code = (byte) code;
+        }
+    }
+
+    private static class IndexedDocument {
+        private final Long ownerId;
+        private final int length;
+        private final Map<String, Integer> terms;
+
+        IndexedDocument(Long ownerId, int length, Map<String, Integer> terms) {
+            this.ownerId = ownerId;
+            this.length = length;
+            this.terms = terms;
+        }
+    }
+
+    private static class ScoredDocument {
+        private final long id;
+        private final double score;
+
+        ScoredDocument(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
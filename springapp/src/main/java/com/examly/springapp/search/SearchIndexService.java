@@ -0,0 +1,393 @@
+package com.examly.springapp.search;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.repository.DocumentRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over the titles and file names of active documents, kept in
+ * memory and updated as documents are uploaded, renamed, trashed and restored, once
+ * the transaction making the change commits.
+ *
+ * <p>On disk the index is a segment (a full snapshot) plus a journal of the changes
+ * made since. Startup loads the newest segment and replays its journal; if that is
+ * missing or disagrees with the database, the index is rebuilt from the documents
+ * table. Once the journal grows past {@code search.index.compact-after} records, a new
+ * segment is written and the old files are dropped. Until the index is loaded,
+ * {@link #search} returns {@code null} and callers fall back to the database.
+ */
+@Service
+public class SearchIndexService {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.directory:./data/search-index}")
+    private String directory;
+
+    @Value("${search.index.compact-after:10000}")
+    private int compactAfter;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private InvertedIndex index = new InvertedIndex();
+    private volatile boolean ready;
+    // Changes made while the index is loading, applied once it is in place
+    private final List<Consumer<InvertedIndex>> pending = new ArrayList<>();
+
+    private Path root;
+    private long generation;
+    private DataOutputStream journal;
+    private int journalRecords;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * Loads once startup is complete, so rows written by startup runners are included.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        root = Paths.get(directory);
+        Files.createDirectories(root);
+        Thread loader = new Thread(this::load, "search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @param ownerId only match this owner's documents, or {@code null} for everyone's
+     * @return the requested page of matches, best first, or {@code null} if the index
+     *         is disabled or still loading
+     */
+    public SearchResult search(String query, Long ownerId, int offset, int limit) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return index.search(query, ownerId, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the document as it is now: active documents are added or updated,
+     * trashed ones removed.
+     */
+    public void index(Document document) {
+        if (!enabled || document.getId() == null) {
+            return;
+        }
+        if (document.getDeletedAt() != null) {
+            remove(document.getId());
+            return;
+        }
+        long id = document.getId();
+        Long ownerId = document.getOwnerId();
+        Map<String, Integer> terms = InvertedIndex.termFrequencies(document.getTitle(), document.getFileName());
+        apply(target -> target.put(id, ownerId, terms), out -> InvertedIndex.writePut(out, id, ownerId, terms));
+    }
+
+    public void remove(Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        apply(target -> target.remove(id), out -> InvertedIndex.writeRemove(out, id));
+    }
+
+    public void removeAll(Collection<Long> ids) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+        List<Long> copy = new ArrayList<>(ids);
+        apply(target -> copy.forEach(target::remove), out -> {
+            for (Long id : copy) {
+                InvertedIndex.writeRemove(out, id);
+            }
+        });
+    }
+
+    /**
+     * Inside a transaction the change waits for the commit, so a rolled-back write never
+     * shows up in search and an uncommitted one is not searchable before it is visible.
+     */
+    private void apply(Consumer<InvertedIndex> change, JournalRecord record) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyNow(change, record);
+                }
+            });
+        } else {
+            applyNow(change, record);
+        }
+    }
+
+    private void applyNow(Consumer<InvertedIndex> change, JournalRecord record) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                pending.add(change);
+                return;
+            }
+            change.accept(index);
+            try {
+                record.writeTo(journal);
+                journal.flush();
+                journalRecords++;
+            } catch (IOException e) {
+                // The change is live in memory; the next segment will carry it to disk
+                System.err.println("Failed to write search index journal: " + e.getMessage());
+                journalRecords = Math.max(journalRecords, compactAfter);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void compactIfNeeded() {
+        if (ready && journalRecords >= compactAfter) {
+            compact();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!ready) {
+            return;
+        }
+        compact();
+        lock.writeLock().lock();
+        try {
+            closeJournal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index to a new segment and starts a fresh journal. Searches carry on
+     * meanwhile; changes wait until the segment is written.
+     */
+    private void compact() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        // The read lock keeps writers, and so the journal, still while the segment is written
+        lock.readLock().lock();
+        try {
+            writeGeneration(generation + 1);
+        } catch (IOException e) {
+            System.err.println("Failed to write search index segment: " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+            compacting.set(false);
+        }
+    }
+
+    private void load() {
+        try {
+            long start = System.currentTimeMillis();
+            long latest = latestSegmentGeneration();
+            InvertedIndex loaded = null;
+            if (latest >= 0) {
+                try {
+                    loaded = readGeneration(latest);
+                } catch (IOException e) {
+                    System.err.println("Search index segment " + latest + " is unreadable: " + e.getMessage());
+                }
+            }
+
+            long active = documentRepository.countByDeletedAtIsNull();
+            if (loaded == null || loaded.size() != active) {
+                System.out.println("Rebuilding search index from " + active + " documents");
+                loaded = rebuild();
+            }
+
+            lock.writeLock().lock();
+            try {
+                index = loaded;
+                pending.forEach(change -> change.accept(index));
+                pending.clear();
+                writeGeneration(Math.max(latest, 0) + 1);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.println("Search index ready with " + loaded.size() + " documents in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("Search index unavailable, searching the database instead: " + e.getMessage());
+        }
+    }
+
+    private InvertedIndex rebuild() {
+        InvertedIndex rebuilt = new InvertedIndex();
+        long lastId = 0;
+        List<Document> batch;
+        do {
+            batch = documentRepository.findByDeletedAtIsNullAndIdGreaterThan(lastId,
+                    PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("id")));
+            for (Document document : batch) {
+                rebuilt.put(document.getId(), document.getOwnerId(),
+                        InvertedIndex.termFrequencies(document.getTitle(), document.getFileName()));
+                lastId = document.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        return rebuilt;
+    }
+
+    private InvertedIndex readGeneration(long number) throws IOException {
+        InvertedIndex loaded;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(segmentPath(number)), 1 << 16))) {
+            loaded = InvertedIndex.readSegment(in);
+        }
+        Path journalPath = journalPath(number);
+        if (Files.exists(journalPath)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(journalPath), 1 << 16))) {
+                while (true) {
+                    loaded.replay(in);
+                }
+            } catch (EOFException e) {
+                // End of the journal; a record cut short by a crash is dropped
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Caller holds a lock that keeps writers out.
+     */
+    private void writeGeneration(long number) throws IOException {
+        Path temp = root.resolve(SEGMENT_PREFIX + number + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp), 1 << 16))) {
+            index.writeSegment(out);
+        }
+        Files.move(temp, segmentPath(number), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        DataOutputStream nextJournal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                journalPath(number), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)));
+        closeJournal();
+        journal = nextJournal;
+        journalRecords = 0;
+        generation = number;
+
+        try (Stream<Path> files = Files.list(root)) {
+            files.filter(file -> generationOf(file) >= 0 && generationOf(file) < number)
+                    .forEach(this::deleteQuietly);
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close search index journal: " + e.getMessage());
+        }
+        journal = null;
+    }
+
+    private long latestSegmentGeneration() throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .mapToLong(this::generationOf)
+                    .max()
+                    .orElse(-1);
+        }
+    }
+
+    /**
+     * @return the generation a segment or journal file belongs to, or -1 for other files
+     */
+    private long generationOf(Path file) {
+        String name = file.getFileName().toString();
+        String number;
+        if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+            number = name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+        } else if (name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX)) {
+            number = name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length());
+        } else {
+            return -1;
+        }
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return root.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private Path journalPath(long number) {
+        return root.resolve(JOURNAL_PREFIX + number + JOURNAL_SUFFIX);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete old search index file " + path + ": " + e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface JournalRecord {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+}
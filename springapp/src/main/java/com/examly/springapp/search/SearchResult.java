@@ -0,0 +1,27 @@
+package com.examly.springapp.search;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of ranked matches, best first, with the number of matches overall.
+ */
+public class SearchResult {
+    static final SearchResult EMPTY = new SearchResult(Collections.emptyList(), 0);
+
+    private final List<Long> ids;
+    private final int totalHits;
+
+    SearchResult(List<Long> ids, int totalHits) {
+        this.ids = ids;
+        this.totalHits = totalHits;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+}
@@ -0,0 +1,62 @@
+package com.examly.springapp.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits titles, file names and queries into index terms: accents are folded, case is
+ * ignored, and words break at anything that is not a letter or digit and between
+ * letters and digits, so {@code Report_2024-Q3.pdf} yields
+ * {@code report, 2024, q, 3, pdf}.
+ */
+public final class Tokenizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String folded = fold(text);
+
+        int start = -1;
+        int previousType = 0;
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            int type = Character.isLetter(codePoint) ? 1 : Character.isDigit(codePoint) ? 2 : 0;
+            if (type != previousType && start >= 0) {
+                add(terms, folded.substring(start, i));
+                start = -1;
+            }
+            if (type != 0 && start < 0) {
+                start = i;
+            }
+            previousType = type;
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            add(terms, folded.substring(start));
+        }
+        return terms;
+    }
+
+    /**
+     * @return the text in lower case with accents removed, so {@code Zoë} and {@code zoe} compare equal
+     */
+    public static String fold(String text) {
+        return COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static void add(List<String> terms, String term) {
+        terms.add(term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term);
+    }
+}
@@ -0,0 +1,210 @@
+package com.examly.springapp.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Type-ahead lookup of users by name and email. Matches rank in three tiers: names
+ * starting with the query, then names with a later word or emails starting with it,
+ * then names or emails containing it anywhere. Each tier is in alphabetical order
+ * except the last, which is oldest first. The first two tiers are range scans over
+ * sorted keys. The last one intersects the postings of the query's trigrams, so it
+ * needs at least three characters.
+ *
+ * <p>A lookup stops once it has {@code limit} results, so its cost depends on the
+ * limit and not on how many users match. Not thread-safe; {@link UserSearchIndexService}
+ * guards it.
+ */
+class TrigramIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    // Each user gets a slot; replaced and removed users leave dead slots behind until the next compaction
+    private final List<Entry> slots = new ArrayList<>();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final TreeMap<String, IntList> namePrefixes = new TreeMap<>();
+    private final TreeMap<String, IntList> otherPrefixes = new TreeMap<>();
+    // Slots are only ever appended, so every postings list is in ascending order
+    private final Map<String, IntList> postings = new HashMap<>();
+
+    void put(long id, String name, String email) {
+        remove(id);
+        String foldedName = name != null ? Tokenizer.fold(name) : "";
+        String foldedEmail = email != null ? Tokenizer.fold(email) : "";
+        int slot = slots.size();
+        Entry entry = new Entry(id, foldedName, foldedEmail);
+        slots.add(entry);
+        slotById.put(id, slot);
+        addKeys(slot, entry);
+    }
+
+    void remove(long id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        slots.set(slot, null);
+        if (slots.size() - slotById.size() > Math.max(1024, slotById.size())) {
+            compact();
+        }
+    }
+
+    int size() {
+        return slotById.size();
+    }
+
+    /**
+     * @return ids of up to {@code limit} users matching the query, best first
+     */
+    List<Long> search(String query, int limit) {
+        String folded = query != null ? Tokenizer.fold(query).trim() : "";
+        if (folded.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Set<Integer> found = new LinkedHashSet<>();
+        collectPrefixMatches(namePrefixes, folded, found, limit);
+        collectPrefixMatches(otherPrefixes, folded, found, limit);
+        if (found.size() < limit && folded.length() >= GRAM_LENGTH) {
+            collectSubstringMatches(folded, found, limit);
+        }
+
+        List<Long> ids = new ArrayList<>(found.size());
+        for (int slot : found) {
+            ids.add(slots.get(slot).id);
+        }
+        return ids;
+    }
+
+    private void collectPrefixMatches(TreeMap<String, IntList> keys, String prefix, Set<Integer> found, int limit) {
+        for (IntList list : keys.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < list.size; i++) {
+                if (found.size() == limit) {
+                    return;
+                }
+                int slot = list.values[i];
+                if (slots.get(slot) != null) {
+                    found.add(slot);
+                }
+            }
+        }
+    }
+
+    private void collectSubstringMatches(String query, Set<Integer> found, int limit) {
+        Set<String> grams = trigrams(query);
+        IntList[] lists = new IntList[grams.size()];
+        int n = 0;
+        for (String gram : grams) {
+            IntList list = postings.get(gram);
+            if (list == null) {
+                return;
+            }
+            lists[n++] = list;
+        }
+        // Walk the shortest list and probe the others
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        IntList driver = lists[0];
+        for (int i = 0; i < driver.size && found.size() < limit; i++) {
+            int slot = driver.values[i];
+            Entry entry = slots.get(slot);
+            if (entry == null || found.contains(slot) || !inAll(lists, slot)) {
+                continue;
+            }
+            // Sharing every trigram does not make the query a substring, so check
+            if (entry.name.contains(query) || entry.email.contains(query)) {
+                found.add(slot);
+            }
+        }
+    }
+
+    private static boolean inAll(IntList[] lists, int slot) {
+        for (int i = 1; i < lists.length; i++) {
+            if (Arrays.binarySearch(lists[i].values, 0, lists[i].size, slot) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addKeys(int slot, Entry entry) {
+        if (!entry.name.isEmpty()) {
+            namePrefixes.computeIfAbsent(entry.name, key -> new IntList()).add(slot);
+            // "ada lovelace" is also found by "lovelace"
+            for (int i = 1; i < entry.name.length(); i++) {
+                if (!Character.isLetterOrDigit(entry.name.charAt(i - 1))
+                        && Character.isLetterOrDigit(entry.name.charAt(i))) {
+                    otherPrefixes.computeIfAbsent(entry.name.substring(i), key -> new IntList()).add(slot);
+                }
+            }
+        }
+        if (!entry.email.isEmpty()) {
+            otherPrefixes.computeIfAbsent(entry.email, key -> new IntList()).add(slot);
+        }
+        Set<String> grams = trigrams(entry.name);
+        grams.addAll(trigrams(entry.email));
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, key -> new IntList()).add(slot);
+        }
+    }
+
+    /**
+     * Renumbers the live users into fresh slots and rebuilds the keys without the dead ones.
+     */
+    private void compact() {
+        List<Entry> live = new ArrayList<>(slotById.size());
+        for (Entry entry : slots) {
+            if (entry != null) {
+                live.add(entry);
+            }
+        }
+        slots.clear();
+        slotById.clear();
+        namePrefixes.clear();
+        otherPrefixes.clear();
+        postings.clear();
+        for (Entry entry : live) {
+            int slot = slots.size();
+            slots.add(entry);
+            slotById.put(entry.id, slot);
+            addKeys(slot, entry);
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static class Entry {
+        private final long id;
+        private final String name;
+        private final String email;
+
+        Entry(long id, String name, String email) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
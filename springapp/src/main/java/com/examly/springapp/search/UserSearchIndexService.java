@@ -0,0 +1,133 @@
+package com.examly.springapp.search;
+
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory trigram index of user names and emails for the share dialog's type-ahead.
+ * It is built from the users table at startup and kept current by {@code UserService}.
+ * Until it is built, {@link #search} returns {@code null} and callers fall back to the
+ * database.
+ */
+@Service
+public class UserSearchIndexService {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${search.users.enabled:true}")
+    private boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private TrigramIndex index = new TrigramIndex();
+    private volatile boolean ready;
+    // Changes made while the index is loading, applied once it is in place
+    private final List<Consumer<TrigramIndex>> pending = new ArrayList<>();
+
+    /**
+     * Builds once startup is complete, so users created by startup runners are included.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "user-search-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return ids of up to {@code limit} matching users, best first, or {@code null} if
+     *         the index is disabled or still loading
+     */
+    public List<Long> search(String query, int limit) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            return index.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void index(User user) {
+        if (!enabled || user.getId() == null) {
+            return;
+        }
+        long id = user.getId();
+        String name = user.getName();
+        String email = user.getEmail();
+        apply(target -> target.put(id, name, email));
+    }
+
+    public void remove(Long id) {
+        if (!enabled || id == null) {
+            return;
+        }
+        apply(target -> target.remove(id));
+    }
+
+    private void apply(Consumer<TrigramIndex> change) {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                change.accept(index);
+            } else {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        try {
+            long start = System.currentTimeMillis();
+            TrigramIndex built = new TrigramIndex();
+            long lastId = 0;
+            List<User> batch;
+            do {
+                batch = userRepository.findByIdGreaterThan(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE, Sort.by("id")));
+                for (User user : batch) {
+                    built.put(user.getId(), user.getName(), user.getEmail());
+                    lastId = user.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+
+            lock.writeLock().lock();
+            try {
+                index = built;
+                pending.forEach(change -> change.accept(index));
+                pending.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            System.out.println("User search index ready with " + built.size() + " users in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            System.err.println("User search index unavailable, searching the database instead: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.examly.springapp.security;
+
+import com.examly.springapp.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * The caller of a request, as stated by the claims of its verified JWT. Built once per
+ * token by {@link com.examly.springapp.util.JwtUtil} and set as the principal by
+ * {@link com.examly.springapp.filter.JwtAuthenticationFilter}; controllers receive it
+ * with {@code @AuthenticationPrincipal}, so identifying the caller needs no query.
+ *
+ * <p>The role is the one the user had when the token was issued.
+ */
+public final class AuthenticatedUser implements Principal {
+
+    private final Long id;
+    private final String email;
+    private final User.Role role;
+    private final List<GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String email, User.Role role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.authorities = role != null ? List.of(new SimpleGrantedAuthority("ROLE_" + role.name())) : List.of();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public User.Role getRole() {
+        return role;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public boolean isAdmin() {
+        return role == User.Role.ADMIN;
+    }
+
+    /**
+     * The email, so code reading {@code Authentication.getName()} is unaffected.
+     */
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -0,0 +1,128 @@
+package com.examly.springapp.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on its own small pool, so a burst of logins or registrations cannot take
+ * every request thread. At most {@code auth.hashing.threads} hashes run at once and
+ * {@code auth.hashing.queue-capacity} more wait; beyond that a call fails at once with
+ * {@link BusyException}, which callers answer with 503 and Retry-After.
+ *
+ * <p>The request thread still waits for its own hash, so the number of request threads
+ * held by hashing is bounded by threads plus queue capacity; keep that well below
+ * {@code server.tomcat.threads.max}.
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Value("${auth.hashing.threads:0}")
+    private int threads;
+
+    @Value("${auth.hashing.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${auth.hashing.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        // Hashing is CPU bound: by default one thread per core, less one for everything else
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                task -> {
+                    Thread thread = new Thread(task, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String passwordHash) {
+        return run(() -> passwordEncoder.matches(rawPassword, passwordHash));
+    }
+
+    /**
+     * Hashes a password again if its stored hash is weaker than the configured strength.
+     * Call only after {@link #matches} succeeded.
+     *
+     * @return the new hash, or null if the stored one is fine or the pool is busy; the
+     *         next login tries again
+     */
+    public String upgrade(CharSequence rawPassword, String passwordHash) {
+        if (!passwordEncoder.upgradeEncoding(passwordHash)) {
+            return null;
+        }
+        try {
+            return encode(rawPassword);
+        } catch (BusyException e) {
+            return null;
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new BusyException(retryAfterSeconds);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    /**
+     * Every hashing thread is busy and the queue is full.
+     */
+    public static class BusyException extends RuntimeException {
+        private final int retryAfterSeconds;
+
+        public BusyException(int retryAfterSeconds) {
+            super("Too many sign-in requests, try again shortly");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.model.StorageReservation;
+import com.examly.springapp.storage.ContentEncoding;
+import com.examly.springapp.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.UploadFileRequest;
+import software.amazon.awssdk.transfer.s3.progress.TransferListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Accepts an upload, hands the bytes to the S3 transfer manager (or, on other storage
+ * backends, to the upload executor) and returns right away. Progress and the final outcome are sent to the
+ * uploading user only, on {@code /user/queue/uploads}, and can also be polled through {@link #getJob}.
+ */
+@Service
+public class AsyncUploadService {
+
+    public static final String PROGRESS_DESTINATION = "/queue/uploads";
+
+    private static final long PROGRESS_INTERVAL_MS = 500;
+
+    // Only present when storing in S3
+    @Autowired(required = false)
+    private S3TransferManager transferManager;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StoredObjectService storedObjectService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    @Qualifier("uploadExecutor")
+    private ExecutorService uploadExecutor;
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @param reservation storage reserved for the file; settled when the document is recorded, released if the
+     *        transfer fails. If this method throws, the caller still owns it.
+     */
+    public UploadJob submit(Long ownerId, String title, MultipartFile file, StorageReservation reservation)
+            throws IOException {
+        // The container has already spooled the part to disk; moving it keeps it alive past the request
+        Path staged = Files.createTempFile("async-upload-", ".part");
+        file.transferTo(staged);
+
+        // Compressible content is hashed and compressed in the same pass over the staged file
+        String contentEncoding = fileStorageService.encodingFor(file.getContentType());
+        Path upload = staged;
+        String digest;
+        try {
+            if (contentEncoding != null) {
+                upload = Files.createTempFile("async-upload-", ".gz");
+                java.security.MessageDigest messageDigest = StoredObjectService.newDigest();
+                try (java.io.InputStream in = new java.security.DigestInputStream(Files.newInputStream(staged), messageDigest);
+                        java.io.OutputStream out = ContentEncoding.compressTo(Files.newOutputStream(upload))) {
+                    in.transferTo(out);
+                }
+                digest = StoredObjectService.toHex(messageDigest);
+                deleteQuietly(staged);
+            } else {
+                try (java.io.InputStream in = Files.newInputStream(staged)) {
+                    digest = StoredObjectService.sha256Hex(in);
+                }
+            }
+        } catch (IOException e) {
+            deleteQuietly(staged);
+            deleteQuietly(upload);
+            throw e;
+        }
+        String key = StoredObjectService.keyForDigest(digest, contentEncoding);
+        Path source = upload;
+
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), ownerId, title, file.getOriginalFilename(),
+                file.getContentType(), file.getSize());
+        job.reservation = reservation;
+        jobs.put(job.getJobId(), job);
+
+        if (storedObjectService.addReference(key)) {
+            // Same content is already in the bucket; nothing to transfer
+            deleteQuietly(source);
+            job.progress(job.getTotalBytes());
+            finish(job, key, contentEncoding);
+            return job;
+        }
+        long uploadBytes = Files.size(source);
+        job.uploadBytes = uploadBytes;
+        publish(job);
+
+        CompletableFuture<?> transfer;
+        if (transferManager != null) {
+            UploadFileRequest request = UploadFileRequest.builder()
+                    .source(source)
+                    .putObjectRequest(put -> put.bucket(bucketName).key(key).contentType(file.getContentType())
+                            .contentEncoding(contentEncoding))
+                    .addTransferListener(new ProgressPublisher(job))
+                    .build();
+            transfer = transferManager.uploadFile(request).completionFuture();
+        } else {
+            transfer = CompletableFuture.runAsync(() -> {
+                try (java.io.InputStream in = new ProgressInputStream(Files.newInputStream(source), job)) {
+                    storageBackend.putObject(key, in, uploadBytes, job.getContentType());
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            }, uploadExecutor);
+        }
+
+        transfer.whenCompleteAsync((result, error) -> {
+            if (error != null) {
+                deleteQuietly(source);
+                storageQuotaService.release(job.reservation);
+                job.fail(error.getMessage());
+                publish(job);
+                return;
+            }
+            try {
+                // The staged file is kept until then in case the object has to be put back
+                fileStorageService.register(key, digest, uploadBytes, () -> {
+                    try (java.io.InputStream in = Files.newInputStream(source)) {
+                        storageBackend.putStream(key, in, job.getContentType(), contentEncoding);
+                    }
+                });
+            } catch (Exception e) {
+                System.err.println("Failed to register async upload " + job.getJobId() + ": " + e.getMessage());
+                storageQuotaService.release(job.reservation);
+                job.fail(e.getMessage());
+                publish(job);
+                return;
+            } finally {
+                deleteQuietly(source);
+            }
+            finish(job, key, contentEncoding);
+        }, uploadExecutor);
+
+        return job;
+    }
+
+    private void finish(UploadJob job, String key, String contentEncoding) {
+        try {
+            Document saved = documentService.recordUpload(job.getOwnerId(), job.getTitle(), job.getFileName(),
+                    job.getContentType(), job.getTotalBytes(), key, contentEncoding, job.reservation);
+            job.complete(saved.getId());
+        } catch (Exception e) {
+            System.err.println("Failed to finalize async upload " + job.getJobId() + ": " + e.getMessage());
+            storageQuotaService.release(job.reservation);
+            job.fail(e.getMessage());
+            try {
+                fileStorageService.deleteFile(key);
+            } catch (IOException ignored) {
+                // Reference stays counted; the object is only kept around longer than needed
+            }
+        } finally {
+            publish(job);
+        }
+    }
+
+    /**
+     * @return the job, or {@code null} if there is none with this id or it belongs to another user
+     */
+    public UploadJob getJob(String jobId, Long ownerId) {
+        UploadJob job = jobs.get(jobId);
+        return job != null && job.getOwnerId().equals(ownerId) ? job : null;
+    }
+
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        jobs.values().removeIf(job -> job.isFinished() && job.getUpdatedAt().isBefore(cutoff));
+    }
+
+    private void publish(UploadJob job) {
+        try {
+            // STOMP sessions are named by user id, see WebSocketConfig
+            messagingTemplate.convertAndSendToUser(job.getOwnerId().toString(), PROGRESS_DESTINATION, job);
+        } catch (Exception e) {
+            System.err.println("Failed to publish upload progress: " + e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete staged upload " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Progress reporting for backends that are written through a plain stream.
+     */
+    private class ProgressInputStream extends java.io.FilterInputStream {
+        private final UploadJob job;
+        private long transferred;
+        private long lastPublished;
+
+        ProgressInputStream(java.io.InputStream in, UploadJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                advance(read);
+            }
+            return read;
+        }
+
+        private void advance(long bytes) {
+            transferred += bytes;
+            job.progress(transferred);
+            long now = System.currentTimeMillis();
+            if (now - lastPublished >= PROGRESS_INTERVAL_MS) {
+                lastPublished = now;
+                publish(job);
+            }
+        }
+    }
+
+    private class ProgressPublisher implements TransferListener {
+        private final UploadJob job;
+        private volatile long lastPublished;
+
+        ProgressPublisher(UploadJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void transferInitiated(Context.TransferInitiated context) {
+            job.progress(context.progressSnapshot().transferredBytes());
+            publish(job);
+        }
+
+        @Override
+        public void bytesTransferred(Context.BytesTransferred context) {
+            job.progress(context.progressSnapshot().transferredBytes());
+            long now = System.currentTimeMillis();
+            if (now - lastPublished >= PROGRESS_INTERVAL_MS) {
+                lastPublished = now;
+                publish(job);
+            }
+        }
+    }
+
+    public static class UploadJob {
+        public enum Status {
+            QUEUED, UPLOADING, COMPLETED, FAILED
+        }
+
+        private final String jobId;
+        private final Long ownerId;
+        private final String title;
+        private final String fileName;
+        private final String contentType;
+        private final long totalBytes;
+        // Bytes actually sent, fewer than totalBytes when the upload is compressed
+        private volatile long uploadBytes;
+        private volatile long transferredBytes;
+        private volatile Status status = Status.QUEUED;
+        private volatile Long documentId;
+        private volatile String error;
+        private volatile LocalDateTime updatedAt = LocalDateTime.now();
+        // Not exposed; the job is published as JSON
+        private StorageReservation reservation;
+
+        UploadJob(String jobId, Long ownerId, String title, String fileName, String contentType, long totalBytes) {
+            this.jobId = jobId;
+            this.ownerId = ownerId;
+            this.title = title;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.totalBytes = totalBytes;
+            this.uploadBytes = totalBytes;
+        }
+
+        /**
+         * @param transferred bytes sent so far, reported in terms of the original size
+         */
+        void progress(long transferred) {
+            long upload = uploadBytes;
+            this.transferredBytes = upload > 0 && upload != totalBytes ? transferred * totalBytes / upload : transferred;
+            this.status = Status.UPLOADING;
+            this.updatedAt = LocalDateTime.now();
+        }
+
+        void complete(Long documentId) {
+            this.documentId = documentId;
+            this.transferredBytes = totalBytes;
+            this.status = Status.COMPLETED;
+            this.updatedAt = LocalDateTime.now();
+        }
+
+        void fail(String error) {
+            this.error = error;
+            this.status = Status.FAILED;
+            this.updatedAt = LocalDateTime.now();
+        }
+
+        boolean isFinished() {
+            return status == Status.COMPLETED || status == Status.FAILED;
+        }
+
+        public String getJobId() {
+            return jobId;
+        }
+
+        public Long getOwnerId() {
+            return ownerId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public long getTransferredBytes() {
+            return transferredBytes;
+        }
+
+        public double getProgress() {
+            return totalBytes > 0 ? (double) transferredBytes / totalBytes : 0.0;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public Long getDocumentId() {
+            return documentId;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+}
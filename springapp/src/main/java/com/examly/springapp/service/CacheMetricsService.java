@@ -0,0 +1,49 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.cache.BoundedCacheRegionFactory;
+import com.examly.springapp.cache.BoundedCacheStorage;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reports how well the second-level cache regions are doing on this instance.
+ */
+@Service
+public class CacheMetricsService {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * @return one entry per cache region, or none if the second-level cache is disabled
+     */
+    public List<Map<String, Object>> getRegionStats() {
+        RegionFactory regionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getCache().getRegionFactory();
+        if (!(regionFactory instanceof BoundedCacheRegionFactory bounded)) {
+            return List.of();
+        }
+        return bounded.getStorages().stream().map(CacheMetricsService::toMap).toList();
+    }
+
+    private static Map<String, Object> toMap(BoundedCacheStorage storage) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("region", storage.getName());
+        stats.put("size", storage.getSize());
+        stats.put("maxEntries", storage.getMaxEntries());
+        stats.put("hits", storage.getHits());
+        stats.put("misses", storage.getMisses());
+        stats.put("hitRatio", storage.getHitRatio());
+        stats.put("puts", storage.getPuts());
+        stats.put("evictions", storage.getEvictions());
+        stats.put("expirations", storage.getExpirations());
+        return stats;
+    }
+}
@@ -0,0 +1,83 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.repository.DocumentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives documents created before the category column existed their category. Runs in
+ * the background after startup, a batch per transaction, and then recounts the
+ * dashboard stats so the category counters include the backfilled rows. Once every
+ * row has a category it finds nothing to do.
+ */
+@Service
+public class DocumentCategoryBackfill {
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentStatsService documentStatsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${category.backfill.batch-size:1000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        Thread backfill = new Thread(this::run, "document-category-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    /**
+     * @return the number of documents categorized
+     */
+    public int run() {
+        try {
+            long start = System.currentTimeMillis();
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            int updated = 0;
+            long lastId = 0;
+            List<Object[]> batch;
+            do {
+                batch = documentRepository.findUncategorizedAfter(lastId, PageRequest.of(0, batchSize));
+                Map<Document.Category, List<Long>> byCategory = new EnumMap<>(Document.Category.class);
+                for (Object[] row : batch) {
+                    Document.Category category = Document.Category.of((String) row[1], (String) row[2]);
+                    byCategory.computeIfAbsent(category, key -> new ArrayList<>()).add((Long) row[0]);
+                    lastId = (Long) row[0];
+                }
+                // Rows categorized since they were read keep what they were given
+                Integer count = transaction.execute(status -> byCategory.entrySet().stream()
+                        .mapToInt(entry -> documentRepository.setCategory(entry.getKey(), entry.getValue()))
+                        .sum());
+                updated += count != null ? count : 0;
+            } while (batch.size() == batchSize);
+
+            if (updated > 0) {
+                documentStatsService.reconcile();
+                System.out.println("Categorized " + updated + " documents in " + (System.currentTimeMillis() - start)
+                        + " ms");
+            }
+            return updated;
+        } catch (Exception e) {
+            System.err.println("Error backfilling document categories: " + e.getMessage());
+            return 0;
+        }
+    }
+}
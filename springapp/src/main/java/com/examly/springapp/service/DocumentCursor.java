@@ -0,0 +1,97 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in a keyset-paginated document listing: the sort it was issued for
+ * and the sort value and id of the last row returned. Clients pass it back unchanged
+ * to get the next page.
+ */
+public final class DocumentCursor {
+
+    private static final String SEPARATOR = "\n";
+    private static final String NULL_MARKER = "N";
+    private static final String VALUE_MARKER = "V";
+
+    private final String sortBy;
+    private final boolean descending;
+    private final long id;
+    // String form of the sort value, null if the column was null
+    private final String value;
+
+    private DocumentCursor(String sortBy, boolean descending, long id, String value) {
+        this.sortBy = sortBy;
+        this.descending = descending;
+        this.id = id;
+        this.value = value;
+    }
+
+    public static DocumentCursor after(Document last, String sortBy, boolean descending) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(last);
+        Object sortValue = wrapper.getPropertyValue(sortBy);
+        return new DocumentCursor(sortBy, descending, last.getId(), sortValue != null ? sortValue.toString() : null);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static DocumentCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        // The value goes last so it may contain the separator itself
+        String[] parts = decoded.split(SEPARATOR, 4);
+        if (parts.length != 4 || parts[3].isEmpty()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        long id;
+        try {
+            id = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String marker = parts[3].substring(0, 1);
+        if (!marker.equals(NULL_MARKER) && !marker.equals(VALUE_MARKER)) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String value = marker.equals(VALUE_MARKER) ? parts[3].substring(1) : null;
+        return new DocumentCursor(parts[0], "desc".equals(parts[1]), id, value);
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + (descending ? "desc" : "asc") + SEPARATOR + id + SEPARATOR
+                + (value != null ? VALUE_MARKER + value : NULL_MARKER);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A cursor only makes sense for the ordering it came from.
+     */
+    public boolean matches(String sortBy, boolean descending) {
+        return this.sortBy.equals(sortBy) && this.descending == descending;
+    }
+
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,179 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.AdminDocumentDTO;
+import com.examly.springapp.model.Document;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Writes the inventory of active documents as NDJSON or CSV while reading it from a
+ * database cursor. Each row is written and then detached, so memory use does not grow
+ * with the number of documents.
+ */
+@Service
+public class DocumentExportService {
+
+    // Rows between flushes, so the client sees progress on a long export
+    private static final int FLUSH_EVERY = 1000;
+    // Rows the driver fetches per round trip, where it takes a fetch size as given
+    private static final int FETCH_SIZE = 500;
+
+    private static final String[] CSV_COLUMNS = { "id", "title", "fileName", "fileType", "size", "ownerId",
+            "createdAt", "fileUrl" };
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv;charset=UTF-8", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * @return the number of documents written
+     */
+    @Transactional(readOnly = true)
+    public long writeActiveDocuments(OutputStream out, Format format) throws IOException {
+        try (Stream<Document> documents = activeDocuments()) {
+            return format == Format.CSV ? writeCsv(documents, out) : writeNdjson(documents, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Active documents in id order, read through a database cursor rather than loaded
+     * at once. Must be consumed, and closed, inside a transaction.
+     */
+    private Stream<Document> activeDocuments() {
+        return entityManager.createQuery("SELECT d FROM Document d WHERE d.deletedAt IS NULL ORDER BY d.id",
+                        Document.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize())
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    /**
+     * MySQL Connector/J buffers a whole result set unless the statement's fetch size is
+     * {@code Integer.MIN_VALUE}, which streams it row by row. Setting that on this one
+     * statement keeps every other query on the default, buffered protocol.
+     */
+    private int fetchSize() {
+        Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        return dialect instanceof MySQLDialect ? Integer.MIN_VALUE : FETCH_SIZE;
+    }
+
+    private long writeNdjson(Stream<Document> documents, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(AdminDocumentDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long[] count = new long[1];
+        documents.forEach(document -> {
+            try {
+                writer.writeValue(generator, toRow(document));
+                generator.writeRaw('\n');
+                if (++count[0] % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entityManager.detach(document);
+        });
+        generator.close();
+        return count[0];
+    }
+
+    private long writeCsv(Stream<Document> documents, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write("\r\n");
+        long[] count = new long[1];
+        documents.forEach(document -> {
+            try {
+                Object[] values = { document.getId(), document.getTitle(), document.getFileName(),
+                        document.getFileType(), document.getSize(), document.getOwnerId(), document.getCreatedAt(),
+                        document.getFileUrl() };
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    writer.write(csvField(values[i]));
+                }
+                writer.write("\r\n");
+                if (++count[0] % FLUSH_EVERY == 0) {
+                    writer.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entityManager.detach(document);
+        });
+        writer.flush();
+        return count[0];
+    }
+
+    private static AdminDocumentDTO toRow(Document document) {
+        return new AdminDocumentDTO(document.getId(), document.getTitle(), document.getFileName(),
+                document.getFileType(), document.getSize(), document.getOwnerId(), document.getCreatedAt(),
+                document.getFileUrl());
+    }
+
+    /**
+     * Quotes per RFC 4180. Text that a spreadsheet would run as a formula is prefixed
+     * with an apostrophe, since titles and file names come from users.
+     */
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (value instanceof String && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
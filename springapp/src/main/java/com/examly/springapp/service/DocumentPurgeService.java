@@ -0,0 +1,104 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.ActivityLog;
+import com.examly.springapp.model.Document;
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.ActivityLogRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Permanently deletes documents in bulk: rows go in chunked DELETEs, files in batched
+ * storage deletes. Rows are removed first, so a failure part way through can leave an
+ * unreferenced object behind but never a document pointing at a deleted file.
+ */
+@Service
+public class DocumentPurgeService {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ActivityLogRepository activityLogRepository;
+
+    /**
+     * @param action activity to log per purged document, or {@code null} to log nothing
+     */
+    public PurgeResult purge(List<Document> documents, String action, String details) {
+        List<Long> ids = new ArrayList<>(documents.size());
+        List<String> storedFilenames = new ArrayList<>(documents.size());
+        for (Document doc : documents) {
+            ids.add(doc.getId());
+            // Deduplicated files appear once per document, and each holds a reference
+            if (doc.getFileUrl() != null) {
+                storedFilenames.add(doc.getFileUrl());
+            }
+        }
+
+        PurgeResult result = new PurgeResult();
+        result.deletedDocuments = documentService.deleteDocumentRows(ids);
+        if (!storedFilenames.isEmpty()) {
+            result.failedFiles.putAll(fileStorageService.deleteFiles(storedFilenames));
+        }
+        result.failedFiles.forEach((key, reason) ->
+                System.err.println("Error deleting file: " + key + " - " + reason));
+
+        if (action != null) {
+            logPurge(documents, action, details);
+        }
+        return result;
+    }
+
+    private void logPurge(List<Document> documents, String action, String details) {
+        Map<Long, User> owners = new HashMap<>();
+        List<ActivityLog> logs = new ArrayList<>(documents.size());
+        for (Document doc : documents) {
+            User owner = owners.computeIfAbsent(doc.getOwnerId(), ownerId -> {
+                try {
+                    return userService.getUserById(ownerId);
+                } catch (Exception e) {
+                    return null;
+                }
+            });
+            ActivityLog log = new ActivityLog();
+            // The document row is gone, so the file name goes into the details instead
+            log.setUser(owner);
+            log.setAction(action);
+            log.setDetails(details + doc.getFileName());
+            logs.add(log);
+        }
+        try {
+            activityLogRepository.saveAll(logs);
+        } catch (Exception e) {
+            System.err.println("Error logging purged documents: " + e.getMessage());
+        }
+    }
+
+    public static class PurgeResult {
+        private int deletedDocuments;
+        private final Map<String, String> failedFiles = new LinkedHashMap<>();
+
+        public int getDeletedDocuments() {
+            return deletedDocuments;
+        }
+
+        /**
+         * @return stored files that could not be deleted, with the reason
+         */
+        public Map<String, String> getFailedFiles() {
+            return failedFiles;
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package com.examly.springapp.service;
 
+import com.examly.springapp.dto.AdminDocumentDTO;
+import com.examly.springapp.dto.DocumentListItemDTO;
 import com.examly.springapp.model.Document;
+import com.examly.springapp.model.User;
 import com.examly.springapp.repository.DocumentRepository;
+import com.examly.springapp.repository.DocumentSpecifications;
+import com.examly.springapp.search.SearchIndexService;
+import com.examly.springapp.search.SearchResult;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Map;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.scheduling.annotation.Scheduled;
 import java.io.File;
 import java.io.IOException;
@@ -28,16 +37,50 @@ public class DocumentService {
     @Autowired
     private com.examly.springapp.service.SettingsService settingsService;
 
-    public Page<Document> getAllDocuments(int page, int size, String sortBy, String sortDir, String search) {
+    @Autowired
+    private ActivityLogService activityLogService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private com.examly.springapp.repository.ActivityLogRepository activityLogRepository;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private com.examly.springapp.repository.DocumentPermissionRepository documentPermissionRepository;
+
+    @Autowired
+    private DocumentStatsService documentStatsService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    /**
+     * Listing rows are selected as DTOs, so no entities are loaded or dirty-checked.
+     */
+    @Transactional(readOnly = true)
+    public Page<DocumentListItemDTO> getAllDocuments(int page, int size, String sortBy, String sortDir, String search) {
         try {
             Sort sort = sortDir.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
 
             Pageable pageable = PageRequest.of(page, size, sort);
 
             if (search != null && !search.isEmpty()) {
-                return documentRepository.findByTitleContainingIgnoreCaseAndDeletedAtIsNull(search, pageable);
+                // Ranked by relevance; the database LIKE only serves while the index is loading
+                SearchResult hits = searchIndexService.search(search, null, page * size, size);
+                if (hits != null) {
+                    List<DocumentListItemDTO> rows = inRankOrder(documentRepository.findListItemsByIdIn(hits.getIds()),
+                            hits.getIds(), DocumentListItemDTO::getId);
+                    return new PageImpl<>(rows, PageRequest.of(page, size), hits.getTotalHits());
+                }
+                return documentRepository.findListItemsByTitleLike(DocumentSpecifications.containsPattern(search), pageable);
             }
-            return documentRepository.findByDeletedAtIsNull(pageable);
+            return documentRepository.findListItemsByDeletedAtIsNull(pageable);
         } catch (Exception e) {
             System.err.println("Error getting documents: " + e.getMessage());
             e.printStackTrace();
@@ -52,6 +95,13 @@ public class DocumentService {
             Pageable pageable = PageRequest.of(page, size, sort);
 
             if (search != null && !search.isEmpty()) {
+                SearchResult hits = searchIndexService.search(search, ownerId, page * size, size);
+                if (hits != null) {
+                    List<Document> rows = inRankOrder(documentRepository.findAllById(hits.getIds()), hits.getIds(),
+                            Document::getId);
+                    rows.removeIf(doc -> doc.getDeletedAt() != null);
+                    return new PageImpl<>(rows, PageRequest.of(page, size), hits.getTotalHits());
+                }
                 return documentRepository.findByOwnerIdAndTitleContainingIgnoreCaseAndDeletedAtIsNull(ownerId, search, pageable);
             }
             return documentRepository.findByOwnerIdAndDeletedAtIsNull(ownerId, pageable);
@@ -62,6 +112,62 @@ public class DocumentService {
         }
     }
 
+    private static <T> List<T> inRankOrder(List<T> rows, List<Long> rankedIds, java.util.function.Function<T, Long> id) {
+        Map<Long, Integer> rank = new java.util.HashMap<>();
+        for (int i = 0; i < rankedIds.size(); i++) {
+            rank.put(rankedIds.get(i), i);
+        }
+        List<T> ordered = new java.util.ArrayList<>(rows);
+        ordered.sort(java.util.Comparator.comparing(row -> rank.getOrDefault(id.apply(row), Integer.MAX_VALUE)));
+        return ordered;
+    }
+
+    /**
+     * Keyset-paginated listing: each page seeks past the last row of the previous one
+     * instead of skipping an offset, and no total is counted, so deep pages cost the
+     * same as the first.
+     *
+     * @param ownerId only list this owner's documents, or {@code null} for everyone's
+     * @param cursor the token returned with the previous page, {@code null} or empty for the first page
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for another sort
+     */
+    @Transactional(readOnly = true)
+    public CursorPage getDocumentsAfter(Long ownerId, String cursor, int size, String sortBy, String sortDir,
+            String search) {
+        boolean descending = sortDir.equalsIgnoreCase("desc");
+        Long lastId = null;
+        String lastValue = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            DocumentCursor position = DocumentCursor.decode(cursor);
+            if (!position.matches(sortBy, descending)) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort order");
+            }
+            lastId = position.getId();
+            lastValue = position.getValue();
+        }
+
+        Specification<Document> spec = Specification.where(DocumentSpecifications.isActive())
+                .and(DocumentSpecifications.orderedAfter(sortBy, descending, lastId, lastValue));
+        if (ownerId != null) {
+            spec = spec.and(DocumentSpecifications.ownedBy(ownerId));
+        }
+        if (search != null && !search.isEmpty()) {
+            spec = spec.and(DocumentSpecifications.titleContains(search));
+        }
+
+        // One extra row tells whether there is a next page without counting
+        List<Document> rows = documentRepository.findBy(spec, query -> query.limit(size + 1).all());
+        CursorPage result = new CursorPage();
+        result.hasNext = rows.size() > size;
+        List<Document> page = result.hasNext ? rows.subList(0, size) : rows;
+        result.content = page.stream().map(DocumentListItemDTO::new).collect(java.util.stream.Collectors.toList());
+        if (result.hasNext) {
+            // The sort key need not be in the DTO, so the cursor is taken from the entity
+            result.nextCursor = DocumentCursor.after(page.get(size - 1), sortBy, descending).encode();
+        }
+        return result;
+    }
+
     public Page<Document> getAllDocuments(Pageable pageable) {
         return documentRepository.findAll(pageable);
     }
@@ -71,10 +177,70 @@ public class DocumentService {
                 .orElseThrow(() -> new EntityNotFoundException("Document not found"));
     }
 
+    @Transactional
     public Document createDocument(Document document) {
-        return documentRepository.save(document);
+        documentStatsService.recordChange(document);
+        Document saved = documentRepository.save(document);
+        searchIndexService.index(saved);
+        return saved;
+    }
+
+    /**
+     * @return a document that references the stored object, for its content type and
+     *         encoding, or {@code null} if none does
+     */
+    public Document getDocumentForStoredFile(String storedFilename) {
+        return documentRepository.findFirstByFileUrl(storedFilename).orElse(null);
+    }
+
+    /**
+     * Persists the document row for a file that has already been written to storage
+     * and records the UPLOADED activity for its owner.
+     */
+    public Document recordUpload(Long ownerId, String title, String fileName, String contentType, long size,
+            String storedFilename) {
+        return recordUpload(ownerId, title, fileName, contentType, size, storedFilename, null);
+    }
+
+    public Document recordUpload(Long ownerId, String title, String fileName, String contentType, long size,
+            String storedFilename, String contentEncoding) {
+        return recordUpload(ownerId, title, fileName, contentType, size, storedFilename, contentEncoding, null);
+    }
+
+    /**
+     * @param reservation storage reserved for the upload with {@link StorageQuotaService#reserve}, settled in
+     *        the same transaction as the document row; {@code null} if none was taken
+     * @throws IllegalStateException if the reservation expired and the owner no longer has room
+     */
+    @Transactional
+    public Document recordUpload(Long ownerId, String title, String fileName, String contentType, long size,
+            String storedFilename, String contentEncoding, com.examly.springapp.model.StorageReservation reservation) {
+        Document document = new Document();
+        document.setTitle(title);
+        document.setFileName(fileName);
+        document.setFileType(contentType);
+        document.setSize(size);
+        document.setFileUrl(storedFilename);
+        document.setContentEncoding(contentEncoding);
+        document.setOwnerId(ownerId);
+        document.setVisibility(Document.Visibility.PRIVATE);
+
+        Document saved = createDocument(document);
+        if (reservation != null) {
+            // After the document's bytes are counted, so the owner's row is locked in the usual order
+            storageQuotaService.settle(reservation);
+        }
+
+        User owner = userService.getUserById(ownerId);
+        activityLogService.logActivity(saved, owner, "UPLOADED", "Document uploaded: " + saved.getFileName());
+        return saved;
     }
 
+    /**
+     * Also saves changes the caller made to the managed document, such as a restore
+     * from trash or a change of visibility, and counts them in the dashboard stats.
+     */
+    @Transactional
     public Document updateDocument(Long id, Document updatedDoc) {
         Document existingDoc = getDocumentById(id);
         if (updatedDoc.getTitle() != null)
@@ -89,14 +255,39 @@ public class DocumentService {
             existingDoc.setVisibility(updatedDoc.getVisibility());
         if (updatedDoc.getParentFolderId() != null)
             existingDoc.setParentFolderId(updatedDoc.getParentFolderId());
-        return documentRepository.save(existingDoc);
+        documentStatsService.recordChange(existingDoc);
+        Document saved = documentRepository.save(existingDoc);
+        // Covers renames and restores from trash
+        searchIndexService.index(saved);
+        return saved;
     }
 
+    @Transactional
     public void deleteDocument(Long id) {
-        if (!documentRepository.existsById(id)) {
-            throw new EntityNotFoundException("Document not found");
+        Document document = getDocumentById(id);
+        documentStatsService.recordRemoval(document);
+        documentRepository.delete(document);
+        searchIndexService.remove(id);
+    }
+
+    /**
+     * Deletes document rows in chunked {@code DELETE ... WHERE id IN (...)} statements.
+     * Permissions go with the documents; activity log entries are kept but detached.
+     *
+     * @return the number of documents deleted
+     */
+    @Transactional
+    public int deleteDocumentRows(List<Long> ids) {
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size()));
+            activityLogRepository.detachDocuments(chunk);
+            documentPermissionRepository.deleteByDocumentIdIn(chunk);
+            documentStatsService.recordRemoval(chunk);
+            deleted += documentRepository.deleteAllByIdIn(chunk);
         }
-        documentRepository.deleteById(id);
+        searchIndexService.removeAll(ids);
+        return deleted;
     }
 
     public List<Document> getDocumentsByOwner(Long ownerId) {
@@ -115,9 +306,13 @@ public class DocumentService {
         return documentRepository.findByDeletedAtIsNotNull();
     }
 
+    public List<Document> getTrashedDocumentsByOwner(Long ownerId) {
+        return documentRepository.findByOwnerIdAndDeletedAtIsNotNull(ownerId);
+    }
+
     public long getTotalDocuments() {
         try {
-            return documentRepository.countByDeletedAtIsNull();
+            return documentStatsService.getGlobal().getActiveCount();
         } catch (Exception e) {
             System.err.println("Error counting total documents: " + e.getMessage());
             return 0;
@@ -136,7 +331,7 @@ public class DocumentService {
 
     public long getSharedDocumentsCount() {
         try {
-            return documentRepository.countByVisibilityAndDeletedAtIsNull(Document.Visibility.PUBLIC);
+            return documentStatsService.getGlobal().getSharedCount();
         } catch (Exception e) {
             System.err.println("Error counting shared documents: " + e.getMessage());
             return 0;
@@ -145,103 +340,98 @@ public class DocumentService {
 
     public long getTrashedDocumentsCount() {
         try {
-            return documentRepository.countByDeletedAtIsNotNull();
+            return documentStatsService.getGlobal().getTrashedCount();
         } catch (Exception e) {
             System.err.println("Error counting trashed documents: " + e.getMessage());
             return 0;
         }
     }
 
+    @Transactional
     public void moveToTrash(Long id) {
         Document document = getDocumentById(id);
         document.setDeletedAt(java.time.LocalDateTime.now());
+        documentStatsService.recordChange(document);
         documentRepository.save(document);
+        searchIndexService.remove(id);
     }
 
     public long getDocumentCountByType(String type) {
+        return getDocumentCountByType(documentStatsService.getGlobal(), type);
+    }
+
+    /**
+     * Reads one count from stats already fetched, for callers that need several.
+     */
+    public long getDocumentCountByType(com.examly.springapp.model.DocumentStats stats, String type) {
         switch (type.toLowerCase()) {
             case "document":
-                return documentRepository.countByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("pdf") +
-                        documentRepository.countByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("doc") +
-                        documentRepository.countByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("txt");
+                return stats.getDocumentCount();
             case "image":
-                return documentRepository.countByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("image");
+                return stats.getImageCount();
             case "video":
-                return documentRepository.countByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("video");
+                return stats.getVideoCount();
             case "audio":
-                return documentRepository.countByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("audio");
+                return stats.getAudioCount();
             default:
                 return 0;
         }
     }
 
+    public com.examly.springapp.model.DocumentStats getGlobalStats() {
+        return documentStatsService.getGlobal();
+    }
+
+    /**
+     * @return bytes of the user's active documents, without storage reserved for uploads in progress
+     */
     public long getUserStorageUsed(Long userId) {
         try {
-            return documentRepository.getTotalStorageByOwnerId(userId);
+            return documentStatsService.getForOwner(userId).getActiveBytes();
         } catch (Exception e) {
             System.err.println("Error getting user storage: " + e.getMessage());
             return 0;
         }
     }
 
+    /**
+     * Advisory check for rejecting an upload before accepting it; the limit is enforced
+     * by {@link StorageQuotaService#reserve}.
+     */
     public boolean checkStorageLimit(Long userId, long fileSize) {
-        long currentUsage = getUserStorageUsed(userId);
-        String maxStorageStr = settingsService.getSettings().getMaxStoragePerUser();
-        long maxStorage = parseStorageLimit(maxStorageStr); // Parse "200 MB" to bytes
-        return (currentUsage + fileSize) <= maxStorage;
-    }
-
-    private long parseStorageLimit(String storageStr) {
-        if (storageStr == null || storageStr.trim().isEmpty()) {
-            return 200 * 1024 * 1024; // Default 200MB
-        }
-        try {
-            String[] parts = storageStr.trim().toUpperCase().split("\\s+");
-            if (parts.length != 2) {
-                return 200 * 1024 * 1024; // Default
-            }
-            long value = Long.parseLong(parts[0]);
-            String unit = parts[1];
-            switch (unit) {
-                case "MB":
-                    return value * 1024 * 1024;
-                case "GB":
-                    return value * 1024 * 1024 * 1024;
-                case "KB":
-                    return value * 1024;
-                default:
-                    return value; // Assume bytes
-            }
-        } catch (Exception e) {
-            return 200 * 1024 * 1024; // Default on parse error
-        }
+        com.examly.springapp.model.DocumentStats usage = documentStatsService.getForOwner(userId);
+        long maxStorage = settingsService.getMaxStorageBytes();
+        return (usage.getActiveBytes() + usage.getReservedBytes() + fileSize) <= maxStorage;
     }
 
     public List<Document> getDocumentsByFileType(String type) {
+        Document.Category category;
         switch (type.toLowerCase()) {
             case "images":
-                return documentRepository.findByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("image");
+                category = Document.Category.IMAGE;
+                break;
             case "documents":
-                List<Document> docs = new java.util.ArrayList<>();
-                docs.addAll(documentRepository.findByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("pdf"));
-                docs.addAll(documentRepository.findByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("doc"));
-                docs.addAll(documentRepository.findByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("txt"));
-                return docs;
+                category = Document.Category.DOCUMENT;
+                break;
             case "videos":
-                return documentRepository.findByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("video");
+                category = Document.Category.VIDEO;
+                break;
             case "audio":
-                return documentRepository.findByFileTypeContainingIgnoreCaseAndDeletedAtIsNull("audio");
+                category = Document.Category.AUDIO;
+                break;
             default:
                 return new java.util.ArrayList<>();
         }
+        return documentRepository.findByCategoryAndDeletedAtIsNullOrderByCreatedAtDesc(category);
     }
 
     public long getTotalDocumentCount() {
-        return documentRepository.count();
+        com.examly.springapp.model.DocumentStats stats = documentStatsService.getGlobal();
+        return stats.getActiveCount() + stats.getTrashedCount();
     }
 
     public String getTotalStorageUsed() {
-        long totalBytes = documentRepository.getTotalStorage();
+        long totalBytes = documentStatsService.getGlobal().getActiveBytes();
         if (totalBytes == 0)
             return "0 GB";
 
@@ -255,14 +445,15 @@ public class DocumentService {
 
     public Map<String, Object> getDocumentStats() {
         try {
+            // One row read; "recent" is a moving window, so it stays an indexed count
+            com.examly.springapp.model.DocumentStats counters = documentStatsService.getGlobal();
             Map<String, Object> stats = new java.util.HashMap<>();
-            stats.put("total", getTotalDocuments());
+            stats.put("total", counters.getActiveCount());
             stats.put("recent", getRecentDocumentsCount());
-            stats.put("shared", getSharedDocumentsCount());
-            stats.put("trash", getTrashedDocumentsCount());
-            stats.put("storageUsed", documentRepository.getTotalStorage());
-            String maxStorageStr = settingsService.getSettings().getMaxStoragePerUser();
-            long maxStorage = parseStorageLimit(maxStorageStr);
+            stats.put("shared", counters.getSharedCount());
+            stats.put("trash", counters.getTrashedCount());
+            stats.put("storageUsed", counters.getActiveBytes());
+            long maxStorage = settingsService.getMaxStorageBytes();
             stats.put("maxStorage", maxStorage);
             long storageUsed = (Long) stats.get("storageUsed");
             stats.put("storagePercentage", maxStorage > 0 ? (double) storageUsed / maxStorage : 0.0);
@@ -315,6 +506,11 @@ public class DocumentService {
         }
     }
 
+    @Transactional(readOnly = true)
+    public List<AdminDocumentDTO> getAdminDocumentList() {
+        return documentRepository.findAdminItemsByDeletedAtIsNull();
+    }
+
     public List<Document> getAllActiveDocuments() {
         try {
             return documentRepository.findByDeletedAtIsNull();
@@ -369,4 +565,25 @@ public class DocumentService {
             e.printStackTrace();
         }
     }
+
+    public static class CursorPage {
+        private List<DocumentListItemDTO> content;
+        private String nextCursor;
+        private boolean hasNext;
+
+        public List<DocumentListItemDTO> getContent() {
+            return content;
+        }
+
+        /**
+         * @return the token for the following page, {@code null} on the last page
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean isHasNext() {
+            return hasNext;
+        }
+    }
 }
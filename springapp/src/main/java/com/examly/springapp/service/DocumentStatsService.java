@@ -0,0 +1,245 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.model.DocumentStats;
+import com.examly.springapp.repository.DocumentRepository;
+import com.examly.springapp.repository.DocumentStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the document_stats counters the dashboards read. Each document change
+ * adds its delta to the owner's row in the caller's transaction, so the counters commit
+ * or roll back with the change. {@link #reconcile()} recomputes them from the documents
+ * table to correct any drift, such as rows written around the service.
+ *
+ * <p>There is no global counter to update: the totals are summed over the owner rows
+ * when read, so changes for different owners never wait for each other.
+ */
+@Service
+public class DocumentStatsService {
+
+    @Autowired
+    private DocumentStatsRepository documentStatsRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Counts the document's current state in place of what was counted for it before.
+     * Call it before saving the document: saving takes the new state as counted.
+     */
+    @Transactional
+    public void recordChange(Document document) {
+        DocumentStats before = document.getCountedStats();
+        DocumentStats after = DocumentStats.of(document);
+        if (before != null && !java.util.Objects.equals(before.getOwnerId(), after.getOwnerId())) {
+            apply(List.of(negate(before), after));
+        } else {
+            DocumentStats delta = DocumentStats.of(document);
+            if (before != null) {
+                delta.add(before, -1);
+            }
+            apply(List.of(delta));
+        }
+        document.setCountedStats(after);
+    }
+
+    /**
+     * Takes a document that is about to be deleted out of the counters.
+     */
+    @Transactional
+    public void recordRemoval(Document document) {
+        if (document.getCountedStats() != null) {
+            apply(List.of(negate(document.getCountedStats())));
+            document.setCountedStats(null);
+        }
+    }
+
+    /**
+     * Takes documents that are about to be bulk-deleted out of the counters. Call it in
+     * the deleting transaction, before the delete.
+     */
+    @Transactional
+    public void recordRemoval(Collection<Long> documentIds) {
+        if (!documentIds.isEmpty()) {
+            apply(documentRepository.aggregateStatsByIdIn(documentIds).stream().map(DocumentStatsService::negate)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public DocumentStats getGlobal() {
+        Optional<LocalDateTime> reconciledAt = reconciledAt();
+        if (reconciledAt.isEmpty()) {
+            // Never reconciled, so the rows only hold changes since startup; count the table instead
+            DocumentStats counted = new DocumentStats(DocumentStats.GLOBAL);
+            documentRepository.aggregateStatsByOwner().forEach(owner -> counted.add(owner, 1));
+            return counted;
+        }
+        DocumentStats total = documentStatsRepository.sumOwners();
+        total.setReconciledAt(reconciledAt.get());
+        return total;
+    }
+
+    @Transactional(readOnly = true)
+    public DocumentStats getForOwner(Long ownerId) {
+        if (reconciledAt().isEmpty()) {
+            return documentRepository.aggregateStatsForOwner(ownerId).orElseGet(() -> new DocumentStats(ownerId));
+        }
+        // No row: the owner has never had a document
+        return documentStatsRepository.findById(ownerId).orElseGet(() -> new DocumentStats(ownerId));
+    }
+
+    private Optional<LocalDateTime> reconciledAt() {
+        return documentStatsRepository.findById(DocumentStats.GLOBAL).map(DocumentStats::getReconciledAt);
+    }
+
+    /**
+     * Builds the counters on first start, including the documents seeded by startup
+     * runners and any changes counted before then.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            if (reconciledAt().isEmpty()) {
+                reconcile();
+            }
+        } catch (Exception e) {
+            System.err.println("Error building document stats: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes every row from the documents table and overwrites the ones that
+     * drifted. Each drifted row is locked before it is recounted, in a transaction of
+     * its own, so a change that counted itself meanwhile commits first and is included
+     * rather than overwritten, and other owners' changes are never held up.
+     */
+    @Scheduled(cron = "${stats.reconcile.cron:0 30 * * * *}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        Map<Long, DocumentStats> counted = documentRepository.aggregateStatsByOwner().stream()
+                .collect(Collectors.toMap(owner -> rowId(owner.getOwnerId()), Function.identity()));
+        Map<Long, DocumentStats> rows = documentStatsRepository.findAll().stream()
+                .filter(row -> row.getOwnerId() != DocumentStats.GLOBAL)
+                .collect(Collectors.toMap(DocumentStats::getOwnerId, Function.identity()));
+
+        Set<Long> owners = new TreeSet<>(counted.keySet());
+        owners.addAll(rows.keySet());
+        int corrected = 0;
+        for (Long ownerId : owners) {
+            DocumentStats row = rows.get(ownerId);
+            DocumentStats owner = counted.getOrDefault(ownerId, new DocumentStats(ownerId));
+            if ((row == null || !row.sameCounters(owner)) && recount(ownerId)) {
+                corrected++;
+            }
+        }
+        newTransaction().executeWithoutResult(status -> {
+            documentStatsRepository.createIfAbsent(DocumentStats.GLOBAL);
+            documentStatsRepository.findByIdForUpdate(DocumentStats.GLOBAL).orElseThrow()
+                    .setReconciledAt(LocalDateTime.now());
+        });
+        System.out.println("Reconciled document stats for " + owners.size() + " owners in "
+                + (System.currentTimeMillis() - start) + " ms; " + corrected + " rows corrected");
+    }
+
+    /**
+     * Locks the owner's row, then counts the owner's documents and overwrites the row
+     * if it differs.
+     *
+     * @return whether the row was corrected
+     */
+    private boolean recount(Long ownerId) {
+        Boolean corrected = newTransaction().execute(status -> {
+            documentStatsRepository.createIfAbsent(ownerId);
+            DocumentStats row = documentStatsRepository.findByIdForUpdate(ownerId).orElseThrow();
+            DocumentStats owner = (ownerId == DocumentStats.UNOWNED
+                    ? documentRepository.aggregateStatsForUnowned()
+                    : documentRepository.aggregateStatsForOwner(ownerId))
+                    .orElseGet(() -> new DocumentStats(ownerId));
+            row.setReconciledAt(LocalDateTime.now());
+            if (row.sameCounters(owner)) {
+                return false;
+            }
+            row.setCounters(owner);
+            return true;
+        });
+        return Boolean.TRUE.equals(corrected);
+    }
+
+    /**
+     * Adds each delta to its owner's row, in owner order so that concurrent changes
+     * spanning two owners lock them in the same order.
+     */
+    private void apply(List<DocumentStats> ownerDeltas) {
+        Map<Long, DocumentStats> byRow = new TreeMap<>();
+        for (DocumentStats delta : ownerDeltas) {
+            Long rowId = rowId(delta.getOwnerId());
+            byRow.computeIfAbsent(rowId, DocumentStats::new).add(delta, 1);
+        }
+        byRow.values().forEach(this::increment);
+    }
+
+    private void increment(DocumentStats delta) {
+        if (delta.isZero() || documentStatsRepository.increment(delta) == 1) {
+            return;
+        }
+        // First change for the owner
+        documentStatsRepository.createIfAbsent(delta.getOwnerId());
+        if (documentStatsRepository.increment(delta) == 0) {
+            throw new IllegalStateException("Document stats row " + delta.getOwnerId() + " is missing");
+        }
+    }
+
+    /**
+     * Creates the owner's zero row unless it exists. Call it in the transaction that
+     * goes on to update the row.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void ensureRow(Long ownerId) {
+        // Nearly always there already; looking first spares the failed insert
+        if (!documentStatsRepository.existsById(ownerId)) {
+            documentStatsRepository.createIfAbsent(ownerId);
+        }
+    }
+
+    private static Long rowId(Long ownerId) {
+        // Documents without an owner share one row, so the totals still include them
+        return ownerId != null ? ownerId : DocumentStats.UNOWNED;
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transaction;
+    }
+
+    private static DocumentStats negate(DocumentStats stats) {
+        DocumentStats negated = new DocumentStats(stats.getOwnerId());
+        negated.add(stats, -1);
+        return negated;
+    }
+}
@@ -1,39 +1,252 @@
 package com.examly.springapp.service;
 
+import com.examly.springapp.storage.ContentEncoding;
+import com.examly.springapp.storage.ObjectInfo;
+import com.examly.springapp.storage.ObjectRange;
+import com.examly.springapp.storage.StorageBackend;
+import com.examly.springapp.storage.StoredFile;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.UUID;
 
+/**
+ * Uploads are stored under the SHA-256 of their content, so identical files uploaded
+ * by different users share one object. {@link StoredObjectService} keeps the
+ * reference counts that decide when an object may be deleted.
+ */
 @Service
 public class FileStorageService {
 
     @Autowired
-    private S3StorageService s3StorageService;
+    private StorageBackend storageBackend;
 
-    public String storeFile(MultipartFile file) throws IOException {
-        return s3StorageService.storeFile(file);
+    @Autowired
+    private StoredObjectService storedObjectService;
+
+    @Autowired
+    private ObjectCacheService objectCacheService;
+
+    private static final int MAX_REGISTER_ATTEMPTS = 3;
+
+    @Value("${storage.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    public StoredFile storeFile(MultipartFile file) throws IOException {
+        // The part is already buffered by the container, so hashing first is cheap and
+        // lets duplicates skip the PUT entirely
+        String digest;
+        try (InputStream in = file.getInputStream()) {
+            digest = StoredObjectService.sha256Hex(in);
+        }
+        String contentEncoding = encodingFor(file.getContentType());
+        String key = StoredObjectService.keyForDigest(digest, contentEncoding);
+        if (storedObjectService.addReference(key)) {
+            return new StoredFile(key, file.getSize(), contentEncoding);
+        }
+
+        long[] storedSize = new long[1];
+        ObjectUpload upload = () -> {
+            try (InputStream in = file.getInputStream()) {
+                if (contentEncoding != null) {
+                    storedSize[0] = storageBackend.putStream(key, ContentEncoding.compress(in), file.getContentType(),
+                            contentEncoding).getSize();
+                } else {
+                    storedSize[0] = storageBackend.putObject(key, in, file.getSize(), file.getContentType()).getSize();
+                }
+            }
+        };
+        upload.put();
+        register(key, digest, storedSize[0], upload);
+        return new StoredFile(key, file.getSize(), contentEncoding);
+    }
+
+    /**
+     * The digest of a stream is only known once it has been read, so the body goes to
+     * a temporary key first and is then either dropped (duplicate) or copied into place.
+     * Compressible content is compressed on the way through.
+     */
+    public StoredFile storeStream(InputStream inputStream, String originalFilename, String contentType) throws IOException {
+        MessageDigest messageDigest = StoredObjectService.newDigest();
+        CountingInputStream original = new CountingInputStream(new DigestInputStream(inputStream, messageDigest));
+        String contentEncoding = encodingFor(contentType);
+        String tempKey = "tmp/" + UUID.randomUUID();
+        StoredFile temp = contentEncoding != null
+                ? storageBackend.putStream(tempKey, ContentEncoding.compress(original), contentType, contentEncoding)
+                : storageBackend.putStream(tempKey, original, contentType);
+
+        String digest = StoredObjectService.toHex(messageDigest);
+        String key = StoredObjectService.keyForDigest(digest, contentEncoding);
+        try {
+            if (!storedObjectService.addReference(key)) {
+                ObjectUpload upload = () -> storageBackend.copyObject(tempKey, key);
+                upload.put();
+                register(key, digest, temp.getSize(), upload);
+            }
+        } finally {
+            try {
+                storageBackend.deleteObject(tempKey);
+            } catch (IOException e) {
+                System.err.println("Failed to delete temporary upload " + tempKey + ": " + e.getMessage());
+            }
+        }
+        return new StoredFile(key, original.getCount(), contentEncoding);
+    }
+
+    /**
+     * @return the encoding to store content of this type with, {@code null} to store it as-is
+     */
+    public String encodingFor(String contentType) {
+        return compressionEnabled && ContentEncoding.isCompressible(contentType) ? ContentEncoding.GZIP : null;
+    }
+
+    /**
+     * Registers an object that was just uploaded under its content key. Two uploads of
+     * the same new content can race to create the row; the loser adds a reference. A
+     * release of the same content can delete the object before it is registered; it is
+     * then uploaded again with {@code upload}.
+     */
+    public void register(String key, String digest, long size, ObjectUpload upload) throws IOException {
+        int attempts = 0;
+        while (true) {
+            try {
+                if (storedObjectService.register(key, digest, size)) {
+                    return;
+                }
+                if (++attempts >= MAX_REGISTER_ATTEMPTS) {
+                    throw new IOException("Object " + key + " kept being deleted while it was registered");
+                }
+                upload.put();
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                if (++attempts >= MAX_REGISTER_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
     }
 
     public InputStream getFileStream(String filename) throws IOException {
-        return s3StorageService.getFile(filename);
+        ObjectCacheService.CachedFile cached = objectCacheService.get(filename);
+        if (cached != null) {
+            return java.nio.file.Files.newInputStream(cached.getPath());
+        }
+        return storageBackend.getObject(filename);
+    }
+
+    /**
+     * @return the original content of a file stored with {@code contentEncoding}
+     */
+    public InputStream getFileStream(String filename, String contentEncoding) throws IOException {
+        return ContentEncoding.decode(getFileStream(filename), contentEncoding);
+    }
+
+    /**
+     * @return a local copy of the object to serve from disk, or {@code null} if the
+     *         cache is off or the object is too large for it
+     */
+    public ObjectCacheService.CachedFile getCachedFile(String filename) throws IOException {
+        return objectCacheService.get(filename);
+    }
+
+    public ObjectRange getFileRange(String filename, String range, String ifMatch,
+            java.time.Instant ifUnmodifiedSince) throws IOException {
+        return storageBackend.getObjectRange(filename, range, ifMatch, ifUnmodifiedSince);
+    }
+
+    public ObjectInfo getFileInfo(String filename) throws IOException {
+        return storageBackend.headObject(filename);
     }
 
     public void deleteFile(String filename) throws IOException {
-        s3StorageService.deleteFile(filename);
+        // Content-addressed objects are immutable, so a cached copy of one stays correct
+        // even after it is released and is left for LRU eviction
+        if (!storedObjectService.release(filename)) {
+            storageBackend.deleteObject(filename);
+            objectCacheService.invalidate(filename);
+        }
+    }
+
+    /**
+     * Deletes many files at once: reference counts are released in one transaction and
+     * the objects to remove are deleted in batches.
+     *
+     * @return the keys that could not be deleted, with the reason
+     */
+    public java.util.Map<String, String> deleteFiles(java.util.Collection<String> filenames) {
+        StoredObjectService.ReleaseResult released = storedObjectService.releaseAll(filenames);
+        java.util.Map<String, String> failures = new java.util.LinkedHashMap<>(released.getFailures());
+
+        java.util.Map<String, String> unmanagedFailures = storageBackend.deleteObjects(released.getUnmanagedKeys());
+        failures.putAll(unmanagedFailures);
+        released.getUnmanagedKeys().stream()
+                .filter(key -> !unmanagedFailures.containsKey(key))
+                .forEach(objectCacheService::invalidate);
+        return failures;
     }
 
     public String generateShareUrl(String filename) {
-        return s3StorageService.generatePublicUrl(filename);
+        return storageBackend.getPublicUrl(filename);
     }
 
     public String getDirectUrl(String filename) {
-        return s3StorageService.generatePublicUrl(filename);
+        return storageBackend.getPublicUrl(filename);
     }
 
     public String getDownloadUrl(String filename, String originalFilename) {
-        return s3StorageService.generateDownloadUrl(filename, originalFilename);
+        return storageBackend.getDownloadUrl(filename, originalFilename);
+    }
+
+    public String generateObjectKey(String originalFilename) {
+        String fileExtension = "";
+        if (originalFilename != null && originalFilename.lastIndexOf(".") >= 0) {
+            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        return UUID.randomUUID().toString() + fileExtension;
+    }
+
+    /**
+     * Writes an object to its content key, again if need be.
+     */
+    @FunctionalInterface
+    public interface ObjectUpload {
+        void put() throws IOException;
+    }
+
+    private static class CountingInputStream extends java.io.FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        long getCount() {
+            return count;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,273 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.storage.ObjectInfo;
+import com.examly.springapp.storage.ObjectRange;
+import com.examly.springapp.storage.StorageBackend;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read-through disk cache in front of the storage backend (usually S3) for hot
+ * objects. Stored objects are never overwritten in place, so a cached copy never goes
+ * stale and there is nothing to revalidate. The cache is bounded by total bytes and
+ * evicts least recently used objects first.
+ *
+ * <p>Concurrent misses on the same key share one backend fetch. Files are written to a
+ * temporary name and renamed into place, so a reader never sees a partial object. A file
+ * handed out is not evicted for {@code storage.cache.pin-seconds}, so the caller (or
+ * Tomcat's sendfile, which opens it after the handler returns) can open it first; once
+ * open, it stays readable after eviction.
+ */
+@Service
+public class ObjectCacheService {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAX_REMEMBERED_OVERSIZE_KEYS = 10000;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Value("${storage.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${storage.cache.directory:${java.io.tmpdir}/document-cache}")
+    private String directory;
+
+    @Value("${storage.cache.max-size-bytes:1073741824}")
+    private long maxSizeBytes;
+
+    // Larger objects are streamed from the backend every time rather than flushing the cache
+    @Value("${storage.cache.max-object-size:104857600}")
+    private long maxObjectSize;
+
+    @Value("${storage.cache.pin-seconds:60}")
+    private long pinSeconds;
+
+    private Path root;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedFile> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final Map<String, CompletableFuture<CachedFile>> inFlight = new ConcurrentHashMap<>();
+
+    // Keys already found to be over maxObjectSize, so they are not fetched just to be discarded
+    private final Set<String> oversizeKeys = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        root = Paths.get(directory);
+        Files.createDirectories(root);
+
+        // Pick up what a previous run left behind, oldest first so it is evicted first
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(root)) {
+            files = listing.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        files.sort(Comparator.comparing(this::lastModified));
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            String key = URLDecoder.decode(file.getFileName().toString(), StandardCharsets.UTF_8);
+            add(key, new CachedFile(file, Files.size(file)));
+        }
+        System.out.println("Object cache ready at " + root + " with " + entries.size() + " files (" + totalBytes + " bytes)");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the cached copy of {@code key}, fetched from the backend on a miss, or {@code null}
+     *         if caching is disabled or the object is too large to cache
+     */
+    public CachedFile get(String key) throws IOException {
+        if (!enabled || oversizeKeys.contains(key)) {
+            return null;
+        }
+        CachedFile hit = lookup(key);
+        if (hit != null) {
+            return hit;
+        }
+
+        CompletableFuture<CachedFile> fetch = new CompletableFuture<>();
+        CompletableFuture<CachedFile> existing = inFlight.putIfAbsent(key, fetch);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            // Another fetch may have finished between the lookup and taking the slot
+            CachedFile cached = lookup(key);
+            if (cached == null) {
+                cached = fetch(key);
+            }
+            fetch.complete(cached);
+            return cached;
+        } catch (IOException | RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, fetch);
+        }
+    }
+
+    public void invalidate(String key) {
+        if (!enabled) {
+            return;
+        }
+        CachedFile removed;
+        synchronized (entries) {
+            removed = entries.remove(key);
+            if (removed != null) {
+                totalBytes -= removed.getSize();
+            }
+        }
+        if (removed != null) {
+            deleteQuietly(removed.getPath());
+        }
+    }
+
+    private CachedFile lookup(String key) {
+        synchronized (entries) {
+            CachedFile cached = entries.get(key);
+            if (cached != null) {
+                cached.pinnedUntil = pinDeadline();
+            }
+            return cached;
+        }
+    }
+
+    private CachedFile fetch(String key) throws IOException {
+        // Checked before the GET: closing an S3 body early would read the rest of it anyway
+        ObjectInfo info = storageBackend.headObject(key);
+        if (info != null && info.getSize() > maxObjectSize) {
+            if (oversizeKeys.size() >= MAX_REMEMBERED_OVERSIZE_KEYS) {
+                oversizeKeys.clear();
+            }
+            oversizeKeys.add(key);
+            return null;
+        }
+
+        ObjectRange object = storageBackend.getObjectRange(key, null, null, null);
+        try (InputStream in = object.getBody()) {
+            Path temp = Files.createTempFile(root, "fetch-", TEMP_SUFFIX);
+            try {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                Path target = root.resolve(URLEncoder.encode(key, StandardCharsets.UTF_8));
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                CachedFile cached = new CachedFile(target, Files.size(target));
+                cached.pinnedUntil = pinDeadline();
+                add(key, cached);
+                return cached;
+            } finally {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private void add(String key, CachedFile file) {
+        List<CachedFile> evicted = new java.util.ArrayList<>();
+        synchronized (entries) {
+            CachedFile previous = entries.put(key, file);
+            if (previous != null) {
+                totalBytes -= previous.getSize();
+            }
+            totalBytes += file.getSize();
+
+            // Pinned files are skipped, so the cache can briefly run over its size
+            long now = System.currentTimeMillis();
+            Iterator<Map.Entry<String, CachedFile>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxSizeBytes && eldest.hasNext()) {
+                Map.Entry<String, CachedFile> entry = eldest.next();
+                if (entry.getKey().equals(key) || entry.getValue().pinnedUntil > now) {
+                    continue;
+                }
+                totalBytes -= entry.getValue().getSize();
+                evicted.add(entry.getValue());
+                eldest.remove();
+            }
+        }
+        // A reader that already opened an evicted file keeps reading it until it closes
+        evicted.forEach(cached -> deleteQuietly(cached.getPath()));
+    }
+
+    private CachedFile await(CompletableFuture<CachedFile> fetch) throws IOException {
+        try {
+            return fetch.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private long pinDeadline() {
+        return System.currentTimeMillis() + pinSeconds * 1000;
+    }
+
+    private java.nio.file.attribute.FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return java.nio.file.attribute.FileTime.fromMillis(0);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete cached file " + path + ": " + e.getMessage());
+        }
+    }
+
+    public static class CachedFile {
+        private final Path path;
+        private final long size;
+        // Guarded by the entries lock
+        private long pinnedUntil;
+
+        public CachedFile(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
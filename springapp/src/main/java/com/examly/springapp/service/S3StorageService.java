@@ -1,47 +1,87 @@
 package com.examly.springapp.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
-import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import com.examly.springapp.storage.ObjectInfo;
+import com.examly.springapp.storage.ObjectRange;
+import com.examly.springapp.storage.RangeNotSatisfiableException;
+import com.examly.springapp.storage.StorageBackend;
+import com.examly.springapp.storage.StoredFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
-public class S3StorageService {
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "s3", matchIfMissing = true)
+public class S3StorageService implements StorageBackend {
 
     @Autowired
     private S3Client s3Client;
 
+    @Autowired
+    private S3Presigner s3Presigner;
+
+    @Autowired
+    @Qualifier("uploadExecutor")
+    private ExecutorService uploadExecutor;
+
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
+    @Value("${aws.s3.region:ap-south-1}")
+    private String region;
+
+    // S3 rejects multipart parts smaller than 5 MB (except the last one)
+    @Value("${upload.streaming.part-size:8388608}")
+    private int partSize;
+
+    @Value("${upload.streaming.max-parts-in-flight:4}")
+    private int maxPartsInFlight;
+
+    private static final int MAX_KEYS_PER_DELETE = 1000;
+
     public String storeFile(MultipartFile file) throws IOException {
-        String originalFilename = file.getOriginalFilename();
-        String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
+        return storeFile(file, generateObjectKey(file.getOriginalFilename()));
+    }
+
+    public String storeFile(MultipartFile file, String uniqueFilename) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return putObject(uniqueFilename, in, file.getSize(), file.getContentType()).getKey();
+        }
+    }
 
+    @Override
+    public StoredFile putObject(String uniqueFilename, InputStream inputStream, long length, String contentType)
+            throws IOException {
         try {
             System.out.println("Uploading to S3 bucket: " + bucketName + ", file: " + uniqueFilename);
             
             PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                     .bucket(bucketName)
                     .key(uniqueFilename)
-                    .contentType(file.getContentType())
-                    .contentLength(file.getSize())
+                    .contentType(contentType)
+                    .contentLength(length)
                     .build();
 
-            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
+            s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(inputStream, length));
             System.out.println("Successfully uploaded to S3: " + uniqueFilename);
-            return uniqueFilename;
+            return new StoredFile(uniqueFilename, length);
         } catch (software.amazon.awssdk.core.exception.SdkException e) {
             System.err.println("AWS SDK Error: " + e.getMessage());
             throw new IOException("Failed to store file in S3: " + e.getMessage(), e);
@@ -52,6 +92,260 @@ public class S3StorageService {
         }
     }
 
+    /**
+     * Stores a stream of unknown length without buffering it locally. Bodies smaller
+     * than one part go up as a single PUT; anything larger becomes an S3 multipart
+     * upload whose parts are sent in parallel on the upload executor. At most
+     * {@code maxPartsInFlight} part buffers are held in memory at any time.
+     */
+    public StoredFile storeStream(InputStream inputStream, String originalFilename, String contentType) throws IOException {
+        return putStream(generateObjectKey(originalFilename), inputStream, contentType);
+    }
+
+    @Override
+    public StoredFile putStream(String key, InputStream inputStream, String contentType) throws IOException {
+        return putStream(key, inputStream, contentType, null);
+    }
+
+    /**
+     * The encoding is stored as the object's {@code Content-Encoding}, so the public URL
+     * serves it the same way the application does.
+     */
+    @Override
+    public StoredFile putStream(String key, InputStream inputStream, String contentType, String contentEncoding)
+            throws IOException {
+        byte[] firstPart = inputStream.readNBytes(partSize);
+
+        if (firstPart.length < partSize) {
+            try {
+                s3Client.putObject(PutObjectRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .contentType(contentType)
+                                .contentEncoding(contentEncoding)
+                                .contentLength((long) firstPart.length)
+                                .build(),
+                        RequestBody.fromBytes(firstPart));
+                return new StoredFile(key, firstPart.length);
+            } catch (software.amazon.awssdk.core.exception.SdkException e) {
+                throw new IOException("Failed to store file in S3: " + e.getMessage(), e);
+            }
+        }
+
+        String uploadId = startMultipartUpload(key, contentType, contentEncoding);
+
+        Semaphore inFlight = new Semaphore(maxPartsInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        long totalBytes = 0;
+
+        try {
+            byte[] buffer = firstPart;
+            int partNumber = 1;
+            while (buffer.length > 0) {
+                inFlight.acquire();
+                if (failure.get() != null) {
+                    inFlight.release();
+                    break;
+                }
+                totalBytes += buffer.length;
+                byte[] body = buffer;
+                int number = partNumber++;
+                parts.add(CompletableFuture
+                        .supplyAsync(() -> uploadBufferedPart(key, uploadId, number, body), uploadExecutor)
+                        .whenComplete((part, error) -> {
+                            if (error != null) {
+                                failure.compareAndSet(null, error);
+                            }
+                            inFlight.release();
+                        }));
+                buffer = inputStream.readNBytes(partSize);
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+            System.out.println("Streamed " + totalBytes + " bytes to S3 in " + completedParts.size() + " parts: " + key);
+            return new StoredFile(key, totalBytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMultipartUpload(key, uploadId);
+            throw new IOException("Upload interrupted", e);
+        } catch (CompletionException | software.amazon.awssdk.core.exception.SdkException e) {
+            abortMultipartUpload(key, uploadId);
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Failed to store file in S3: " + cause.getMessage(), cause);
+        } catch (IOException | RuntimeException e) {
+            // Client went away or sent a malformed body; drop the parts already uploaded
+            parts.forEach(part -> part.cancel(false));
+            abortMultipartUpload(key, uploadId);
+            throw e;
+        }
+    }
+
+    private CompletedPart uploadBufferedPart(String key, String uploadId, int partNumber, byte[] body) {
+        UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) body.length)
+                        .build(),
+                RequestBody.fromBytes(body));
+        return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+    }
+
+    @Override
+    public String startMultipartUpload(String key, String contentType) throws IOException {
+        return startMultipartUpload(key, contentType, null);
+    }
+
+    private String startMultipartUpload(String key, String contentType, String contentEncoding) throws IOException {
+        try {
+            return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .contentType(contentType)
+                    .contentEncoding(contentEncoding)
+                    .build()).uploadId();
+        } catch (software.amazon.awssdk.core.exception.SdkException e) {
+            throw new IOException("Failed to start multipart upload: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Streams one part of a multipart upload straight from {@code inputStream}.
+     * Re-uploading the same part number replaces the earlier bytes.
+     *
+     * @return the ETag S3 assigned to the part, needed to complete the upload
+     */
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long length)
+            throws IOException {
+        try {
+            return s3Client.uploadPart(UploadPartRequest.builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .contentLength(length)
+                            .build(),
+                    RequestBody.fromInputStream(inputStream, length)).eTag();
+        } catch (software.amazon.awssdk.core.exception.SdkException e) {
+            throw new IOException("Failed to upload part " + partNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, java.util.SortedMap<Integer, String> partETags)
+            throws IOException {
+        List<CompletedPart> parts = new ArrayList<>(partETags.size());
+        partETags.forEach((number, eTag) -> parts.add(CompletedPart.builder().partNumber(number).eTag(eTag).build()));
+        try {
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (software.amazon.awssdk.core.exception.SdkException e) {
+            throw new IOException("Failed to complete multipart upload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (Exception e) {
+            System.err.println("Failed to abort multipart upload " + uploadId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Signs a PUT for {@code key}. Content type and length are part of the signature,
+     * so S3 rejects an upload that does not match what the client announced.
+     */
+    @Override
+    public String generatePresignedUploadUrl(String key, String contentType, long contentLength,
+            java.time.Duration expiry) {
+        PutObjectRequest.Builder putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentLength(contentLength);
+        if (contentType != null && !contentType.isBlank()) {
+            putObjectRequest.contentType(contentType);
+        }
+
+        return s3Presigner.presignPutObject(presign -> presign
+                        .signatureDuration(expiry)
+                        .putObjectRequest(putObjectRequest.build()))
+                .url()
+                .toString();
+    }
+
+    /**
+     * @return size and content type of the stored object, or {@code null} if there is no such key
+     */
+    @Override
+    public ObjectInfo headObject(String key) throws IOException {
+        try {
+            HeadObjectResponse response = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            return new ObjectInfo(response.contentLength(), response.contentType(), response.eTag(),
+                    response.lastModified());
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Failed to read object metadata from S3: " + e.getMessage(), e);
+        } catch (software.amazon.awssdk.core.exception.SdkException e) {
+            throw new IOException("Failed to read object metadata from S3: " + e.getMessage(), e);
+        }
+    }
+
+    public String generateObjectKey(String originalFilename) {
+        String fileExtension = "";
+        if (originalFilename != null && originalFilename.lastIndexOf(".") >= 0) {
+            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        return UUID.randomUUID().toString() + fileExtension;
+    }
+
+    /**
+     * Server-side copy; the bytes never leave S3. Single-request copies are limited
+     * to 5 GB, which is also the streaming upload limit.
+     */
+    @Override
+    public void copyObject(String sourceKey, String destinationKey) throws IOException {
+        try {
+            s3Client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucketName)
+                    .sourceKey(sourceKey)
+                    .destinationBucket(bucketName)
+                    .destinationKey(destinationKey)
+                    .build());
+        } catch (software.amazon.awssdk.core.exception.SdkException e) {
+            throw new IOException("Failed to copy object in S3: " + e.getMessage(), e);
+        }
+    }
+
     public String copyToSharedFolder(String filename) throws IOException {
         try {
             String sharedKey = "shared/" + filename;
@@ -70,7 +364,29 @@ public class S3StorageService {
         }
     }
 
-    public InputStream getFile(String filename) throws IOException {
+    @Override
+    public List<String> listObjects(String prefix) throws IOException {
+        try {
+            List<String> keys = new ArrayList<>();
+            s3Client.listObjectsV2Paginator(ListObjectsV2Request.builder()
+                            .bucket(bucketName)
+                            .prefix(prefix)
+                            .build())
+                    .contents()
+                    .forEach(object -> keys.add(object.key()));
+            return keys;
+        } catch (software.amazon.awssdk.core.exception.SdkException e) {
+            throw new IOException("Failed to list objects in S3: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsPresignedUploads() {
+        return true;
+    }
+
+    @Override
+    public InputStream getObject(String filename) throws IOException {
         try {
             GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                     .bucket(bucketName)
@@ -83,7 +399,45 @@ public class S3StorageService {
         }
     }
 
-    public void deleteFile(String filename) throws IOException {
+    /**
+     * Ranged GET. {@code range} is an HTTP byte range ({@code bytes=0-499}, {@code bytes=-500}),
+     * or {@code null} for the whole object. The optional preconditions let an
+     * {@code If-Range} check ride along with the read instead of costing a HEAD.
+     *
+     * @return the requested bytes, or {@code null} if a precondition failed
+     * @throws RangeNotSatisfiableException if the range starts past the end of the object
+     */
+    @Override
+    public ObjectRange getObjectRange(String filename, String range, String ifMatch, java.time.Instant ifUnmodifiedSince)
+            throws IOException {
+        GetObjectRequest.Builder getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(filename)
+                .range(range)
+                .ifMatch(ifMatch)
+                .ifUnmodifiedSince(ifUnmodifiedSince);
+
+        try {
+            software.amazon.awssdk.core.ResponseInputStream<GetObjectResponse> body = s3Client.getObject(getObjectRequest.build());
+            GetObjectResponse response = body.response();
+            return new ObjectRange(body, response.contentLength(), response.contentRange(), response.eTag(),
+                    response.lastModified());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 412) {
+                return null;
+            }
+            if (e.statusCode() == 416) {
+                ObjectInfo object = headObject(filename);
+                throw new RangeNotSatisfiableException(object != null ? object.getSize() : 0);
+            }
+            throw new IOException("Failed to retrieve file from S3: " + e.getMessage(), e);
+        } catch (software.amazon.awssdk.core.exception.SdkException e) {
+            throw new IOException("Failed to retrieve file from S3: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void deleteObject(String filename) throws IOException {
         try {
             DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
                     .bucket(bucketName)
@@ -96,20 +450,47 @@ public class S3StorageService {
         }
     }
 
-    public String generatePublicUrl(String filename) {
+    /**
+     * Uses DeleteObjects, which takes up to {@value #MAX_KEYS_PER_DELETE} keys per request.
+     * Quiet mode makes S3 report only the keys that failed.
+     */
+    @Override
+    public java.util.Map<String, String> deleteObjects(java.util.Collection<String> keys) {
+        java.util.Map<String, String> failures = new java.util.LinkedHashMap<>();
+        List<String> distinctKeys = new ArrayList<>(new java.util.LinkedHashSet<>(keys));
+        for (int from = 0; from < distinctKeys.size(); from += MAX_KEYS_PER_DELETE) {
+            List<String> chunk = distinctKeys.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, distinctKeys.size()));
+            List<ObjectIdentifier> objects = new ArrayList<>(chunk.size());
+            chunk.forEach(key -> objects.add(ObjectIdentifier.builder().key(key).build()));
+            try {
+                DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder().objects(objects).quiet(true).build())
+                        .build());
+                response.errors().forEach(error -> failures.put(error.key(), error.code() + ": " + error.message()));
+            } catch (software.amazon.awssdk.core.exception.SdkException e) {
+                chunk.forEach(key -> failures.put(key, "Failed to delete file from S3: " + e.getMessage()));
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public String getPublicUrl(String filename) {
         // Generate direct S3 URL (bucket must be public)
-        return String.format("https://%s.s3.ap-south-1.amazonaws.com/%s", bucketName, filename);
+        return String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, region, filename);
     }
 
-    public String generateDownloadUrl(String filename, String originalFilename) {
+    @Override
+    public String getDownloadUrl(String filename, String originalFilename) {
         // Generate S3 URL with response-content-disposition to force download
         try {
             String encodedFilename = java.net.URLEncoder.encode(originalFilename, "UTF-8").replace("+", "%20");
-            return String.format("https://%s.s3.ap-south-1.amazonaws.com/%s?response-content-disposition=attachment%%3B%%20filename%%3D\"%s\"", 
-                bucketName, filename, encodedFilename);
+            return String.format("https://%s.s3.%s.amazonaws.com/%s?response-content-disposition=attachment%%3B%%20filename%%3D\"%s\"", 
+                bucketName, region, filename, encodedFilename);
         } catch (Exception e) {
             // Fallback to regular URL if encoding fails
-            return generatePublicUrl(filename);
+            return getPublicUrl(filename);
         }
     }
-}
\ No newline at end of file
+}
@@ -5,22 +5,53 @@ import com.examly.springapp.repository.SettingsRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-
 @Service
 public class SettingsService {
 
     @Autowired
     private SettingsRepository settingsRepository;
 
+    /**
+     * Served from the second-level cache; saving the settings invalidates it on this
+     * instance, and edits made on another instance show up when the entry expires.
+     */
     public Settings getSettings() {
-        List<Settings> settings = settingsRepository.findAll();
-        if (settings.isEmpty()) {
-            // Create default settings if none exist
-            Settings defaultSettings = new Settings();
-            return settingsRepository.save(defaultSettings);
+        // Create default settings if none exist
+        return settingsRepository.findFirstByOrderByIdAsc()
+                .orElseGet(() -> settingsRepository.save(new Settings()));
+    }
+
+    /**
+     * @return the per-user storage limit in bytes, parsed from a setting such as "200 MB"
+     */
+    public long getMaxStorageBytes() {
+        return parseStorageLimit(getSettings().getMaxStoragePerUser());
+    }
+
+    static long parseStorageLimit(String storageStr) {
+        if (storageStr == null || storageStr.trim().isEmpty()) {
+            return 200 * 1024 * 1024; // Default 200MB
+        }
+        try {
+            String[] parts = storageStr.trim().toUpperCase().split("\\s+");
+            if (parts.length != 2) {
+                return 200 * 1024 * 1024; // Default
+            }
+            long value = Long.parseLong(parts[0]);
+            String unit = parts[1];
+            switch (unit) {
+                case "MB":
+                    return value * 1024 * 1024;
+                case "GB":
+                    return value * 1024 * 1024 * 1024;
+                case "KB":
+                    return value * 1024;
+                default:
+                    return value; // Assume bytes
+            }
+        } catch (Exception e) {
+            return 200 * 1024 * 1024; // Default on parse error
         }
-        return settings.get(0); // Return the first (and only) settings record
     }
 
     public Settings updateSettings(Settings updatedSettings) {
@@ -0,0 +1,154 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.StorageReservation;
+import com.examly.springapp.repository.DocumentStatsRepository;
+import com.examly.springapp.repository.StorageReservationRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Enforces the per-user storage limit. An upload reserves its bytes before anything
+ * is written to storage; the reservation is settled when the document row is recorded,
+ * or released if the upload fails. The limit check and the reservation are a single
+ * conditional UPDATE of the owner's document_stats row, so concurrent uploads cannot
+ * overrun the limit between checking and recording.
+ */
+@Service
+public class StorageQuotaService {
+
+    @Autowired
+    private DocumentStatsRepository documentStatsRepository;
+
+    @Autowired
+    private DocumentStatsService documentStatsService;
+
+    @Autowired
+    private StorageReservationRepository reservationRepository;
+
+    @Autowired
+    private SettingsService settingsService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Long enough for a large async transfer; a reservation outliving it is released by the sweeper
+    @Value("${storage.quota.reservation-ttl:PT6H}")
+    private Duration reservationTtl;
+
+    /**
+     * Reserves storage in a transaction of its own, so the owner's row is not held
+     * while the upload runs.
+     *
+     * @return the reservation, or {@code null} if it would take the owner over the limit
+     */
+    public StorageReservation reserve(Long ownerId, long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Size must not be negative");
+        }
+        long limit = settingsService.getMaxStorageBytes();
+        return newTransaction().execute(status -> {
+            documentStatsService.ensureRow(ownerId);
+            if (documentStatsRepository.reserve(ownerId, bytes, limit) == 0) {
+                return null;
+            }
+            StorageReservation reservation = new StorageReservation(UUID.randomUUID().toString(), ownerId, bytes,
+                    LocalDateTime.now().plus(reservationTtl));
+            entityManager.persist(reservation);
+            return reservation;
+        });
+    }
+
+    /**
+     * Turns the reservation into recorded usage. Call it in the transaction that records
+     * the document, after the document's bytes have been counted; if the reservation
+     * already expired, the limit is checked again and the transaction fails if it is
+     * now exceeded.
+     *
+     * @throws IllegalStateException if the expired reservation can no longer be honoured
+     */
+    @Transactional
+    public void settle(StorageReservation reservation) {
+        if (reservationRepository.deleteReservation(reservation.getId()) == 1) {
+            documentStatsRepository.release(reservation.getOwnerId(), reservation.getBytes());
+        } else if (documentStatsRepository.reserve(reservation.getOwnerId(), 0,
+                settingsService.getMaxStorageBytes()) == 0) {
+            throw new IllegalStateException("Storage limit exceeded");
+        }
+    }
+
+    /**
+     * Gives the reserved bytes back. Safe to call more than once, and after the
+     * reservation was settled. Inside a transaction it waits for that transaction to
+     * end, since the transaction may hold the owner's row.
+     */
+    public void release(StorageReservation reservation) {
+        if (reservation == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    releaseNow(reservation);
+                }
+            });
+        } else {
+            releaseNow(reservation);
+        }
+    }
+
+    private void releaseNow(StorageReservation reservation) {
+        try {
+            newTransaction().executeWithoutResult(status -> {
+                if (reservationRepository.deleteReservation(reservation.getId()) == 1) {
+                    documentStatsRepository.release(reservation.getOwnerId(), reservation.getBytes());
+                }
+            });
+        } catch (Exception e) {
+            // Left to expire
+            System.err.println("Failed to release storage reservation " + reservation.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Releases reservations whose upload never finished, e.g. because the server
+     * stopped mid-transfer.
+     */
+    @Scheduled(fixedRate = 600000) // Every 10 minutes
+    public void releaseExpiredReservations() {
+        try {
+            int released = 0;
+            for (StorageReservation reservation : reservationRepository.findByExpiresAtBefore(LocalDateTime.now())) {
+                releaseNow(reservation);
+                released++;
+            }
+            if (released > 0) {
+                System.out.println("Released " + released + " expired storage reservations");
+            }
+        } catch (Exception e) {
+            System.err.println("Error releasing expired storage reservations: " + e.getMessage());
+        }
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
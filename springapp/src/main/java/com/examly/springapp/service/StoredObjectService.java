@@ -0,0 +1,221 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.StoredObject;
+import com.examly.springapp.repository.StoredObjectRepository;
+import com.examly.springapp.storage.ContentEncoding;
+import com.examly.springapp.storage.StorageBackend;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reference counts for content-addressed objects. Every count change happens under a
+ * row lock, so an object is never deleted while another upload is adding a
+ * reference to it.
+ */
+@Service
+public class StoredObjectService {
+
+    private static final String KEY_PREFIX = "cas/";
+    private static final int LOCK_BATCH_SIZE = 1000;
+
+    @Autowired
+    private StoredObjectRepository storedObjectRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    public static String keyForDigest(String digest) {
+        return KEY_PREFIX + digest;
+    }
+
+    /**
+     * Encoded copies get their own key, so a digest of the original content can be
+     * stored both as-is and compressed without the two sharing a reference count.
+     */
+    public static String keyForDigest(String digest, String contentEncoding) {
+        if (ContentEncoding.GZIP.equals(contentEncoding)) {
+            return keyForDigest(digest) + ".gz";
+        }
+        return keyForDigest(digest);
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String sha256Hex(InputStream inputStream) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest);
+    }
+
+    /**
+     * Adds a reference to an object that is already stored.
+     *
+     * @return {@code false} if there is no such object and the caller has to upload it
+     */
+    @Transactional
+    public boolean addReference(String storageKey) {
+        Optional<StoredObject> existing = storedObjectRepository.findByStorageKeyForUpdate(storageKey);
+        if (existing.isEmpty()) {
+            return false;
+        }
+        StoredObject object = existing.get();
+        object.setReferenceCount(object.getReferenceCount() + 1);
+        storedObjectRepository.save(object);
+        return true;
+    }
+
+    /**
+     * Records a freshly uploaded object with one reference. If another upload of the
+     * same content registered it first, that row gets the reference instead.
+     *
+     * <p>A release of the same content may have deleted the object between the caller's
+     * upload and this call. The object is checked after the new row is written, when any
+     * later release has to wait for the row lock.
+     *
+     * @return {@code false} if the object is gone and the caller has to upload it again
+     */
+    @Transactional
+    public boolean register(String storageKey, String digest, long size) throws IOException {
+        if (addReference(storageKey)) {
+            return true;
+        }
+        StoredObject object = new StoredObject();
+        object.setStorageKey(storageKey);
+        object.setDigest(digest);
+        object.setSize(size);
+        object.setReferenceCount(1);
+        // persist, not save: with an assigned id save() merges, which would overwrite the
+        // count of a row another upload inserted meanwhile instead of failing on the key
+        entityManager.persist(object);
+        storedObjectRepository.flush();
+
+        if (storageBackend.headObject(storageKey) == null) {
+            storedObjectRepository.delete(object);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drops one reference and deletes the object when it was the last one.
+     *
+     * @return {@code false} if the key is not content-addressed (uploads from before
+     *         deduplication, upload sessions) and the caller should delete it directly
+     */
+    @Transactional
+    public boolean release(String storageKey) {
+        Optional<StoredObject> existing = storedObjectRepository.findByStorageKeyForUpdate(storageKey);
+        if (existing.isEmpty()) {
+            return false;
+        }
+        StoredObject object = existing.get();
+        if (object.getReferenceCount() > 1) {
+            object.setReferenceCount(object.getReferenceCount() - 1);
+            storedObjectRepository.save(object);
+            return true;
+        }
+
+        storedObjectRepository.delete(object);
+        // Deleted while the row lock is still held, so a concurrent upload of the same
+        // content waits and then finds no row and uploads it again
+        try {
+            storageBackend.deleteObject(storageKey);
+        } catch (IOException e) {
+            System.err.println("Failed to delete unreferenced object " + storageKey + ": " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Batch form of {@link #release}: drops one reference per occurrence of a key and
+     * deletes every object whose count reaches zero in as few backend calls as possible.
+     */
+    @Transactional
+    public ReleaseResult releaseAll(Collection<String> storageKeys) {
+        Map<String, Integer> releases = new HashMap<>();
+        storageKeys.forEach(key -> releases.merge(key, 1, Integer::sum));
+
+        List<StoredObject> objects = new ArrayList<>();
+        List<String> distinctKeys = new ArrayList<>(releases.keySet());
+        for (int from = 0; from < distinctKeys.size(); from += LOCK_BATCH_SIZE) {
+            objects.addAll(storedObjectRepository.findAllByStorageKeyInForUpdate(
+                    distinctKeys.subList(from, Math.min(from + LOCK_BATCH_SIZE, distinctKeys.size()))));
+        }
+
+        ReleaseResult result = new ReleaseResult();
+        Set<String> managedKeys = new HashSet<>();
+        List<StoredObject> unreferenced = new ArrayList<>();
+        for (StoredObject object : objects) {
+            managedKeys.add(object.getStorageKey());
+            int remaining = object.getReferenceCount() - releases.get(object.getStorageKey());
+            if (remaining > 0) {
+                object.setReferenceCount(remaining);
+            } else {
+                unreferenced.add(object);
+            }
+        }
+        distinctKeys.stream().filter(key -> !managedKeys.contains(key)).forEach(result.unmanagedKeys::add);
+
+        if (!unreferenced.isEmpty()) {
+            storedObjectRepository.deleteAllInBatch(unreferenced);
+            // As in release(), objects are deleted while the rows are still locked
+            List<String> keys = new ArrayList<>(unreferenced.size());
+            unreferenced.forEach(object -> keys.add(object.getStorageKey()));
+            result.failures.putAll(storageBackend.deleteObjects(keys));
+        }
+        return result;
+    }
+
+    public static class ReleaseResult {
+        private final List<String> unmanagedKeys = new ArrayList<>();
+        private final Map<String, String> failures = new LinkedHashMap<>();
+
+        /**
+         * @return keys without a reference count, which the caller deletes directly
+         */
+        public List<String> getUnmanagedKeys() {
+            return unmanagedKeys;
+        }
+
+        /**
+         * @return objects that lost their last reference but could not be deleted
+         */
+        public Map<String, String> getFailures() {
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.examly.springapp.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.tomcat.util.http.fileupload.FileItemIterator;
+import org.apache.tomcat.util.http.fileupload.FileItemStream;
+import org.apache.tomcat.util.http.fileupload.FileUpload;
+import org.apache.tomcat.util.http.fileupload.servlet.ServletRequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Parses a multipart/form-data request body incrementally and pipes the file part
+ * straight into storage, so an upload never lands on local disk or in the servlet
+ * container's multipart buffer. Uses the multipart parser that ships with Tomcat; the
+ * multipart resolver in {@link com.examly.springapp.config.StorageConfig} leaves this
+ * endpoint's request body untouched.
+ */
+@Service
+public class StreamingUploadService {
+
+    public static final String PATH = "/api/documents/upload/stream";
+
+    // The length of the documents.title column
+    public static final int MAX_TITLE_LENGTH = 255;
+
+    // A UTF-8 character takes at most 4 bytes
+    private static final int MAX_TITLE_BYTES = MAX_TITLE_LENGTH * 4;
+
+    // The title and the file; anything beyond is not read
+    private static final int MAX_PARTS = 8;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Value("${upload.streaming.max-file-size:5368709120}")
+    private long maxFileSize;
+
+    public StreamedUpload receive(HttpServletRequest request) throws IOException {
+        String requestType = request.getContentType();
+        if (requestType == null || !requestType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data")) {
+            throw new IllegalArgumentException("Expected a multipart/form-data request");
+        }
+
+        FileUpload upload = new FileUpload();
+        upload.setFileSizeMax(maxFileSize);
+        upload.setFileCountMax(MAX_PARTS);
+
+        StreamedUpload result = new StreamedUpload();
+        try {
+            FileItemIterator items = upload.getItemIterator(new ServletRequestContext(request));
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (item.isFormField()) {
+                    if ("title".equals(item.getFieldName())) {
+                        result.title = readTitle(item);
+                    }
+                } else if ("file".equals(item.getFieldName()) && result.storedFile == null) {
+                    try (InputStream in = item.openStream()) {
+                        result.fileName = item.getName();
+                        result.contentType = item.getContentType();
+                        result.storedFile = fileStorageService.storeStream(in, item.getName(), item.getContentType());
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // A bad part after the file, such as an overlong title, leaves nothing behind
+            if (result.storedFile != null) {
+                try {
+                    fileStorageService.deleteFile(result.storedFile.getKey());
+                } catch (IOException cleanup) {
+                    e.addSuppressed(cleanup);
+                }
+            }
+            throw e;
+        }
+
+        if (result.storedFile == null) {
+            throw new IllegalArgumentException("Request did not contain a 'file' part");
+        }
+        return result;
+    }
+
+    /**
+     * Reads the title, refusing one longer than the column rather than cutting it off.
+     */
+    static String readTitle(FileItemStream item) throws IOException {
+        byte[] bytes;
+        try (InputStream in = item.openStream()) {
+            bytes = in.readNBytes(MAX_TITLE_BYTES + 1);
+        }
+        if (bytes.length > MAX_TITLE_BYTES) {
+            throw new IllegalArgumentException("Title must be at most " + MAX_TITLE_LENGTH + " characters");
+        }
+        String title;
+        try {
+            title = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Title is not valid UTF-8");
+        }
+        if (title.length() > MAX_TITLE_LENGTH) {
+            throw new IllegalArgumentException("Title must be at most " + MAX_TITLE_LENGTH + " characters");
+        }
+        return title;
+    }
+
+    public static class StreamedUpload {
+        private String title;
+        private String fileName;
+        private String contentType;
+        private com.examly.springapp.storage.StoredFile storedFile;
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getStoredFilename() {
+            return storedFile.getKey();
+        }
+
+        public String getContentEncoding() {
+            return storedFile.getContentEncoding();
+        }
+
+        public long getSize() {
+            return storedFile.getSize();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.examly.springapp.service;
 
 import com.examly.springapp.model.Document;
-import com.examly.springapp.model.User;
 import com.examly.springapp.repository.DocumentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -12,43 +11,36 @@ import java.util.List;
 @Service
 public class TrashCleanupService {
 
-    @Autowired
-    private DocumentRepository documentRepository;
+    // Documents purged per round; one storage batch delete and one chunked row delete each
+    private static final int PURGE_BATCH_SIZE = 1000;
 
     @Autowired
-    private com.examly.springapp.service.FileStorageService fileStorageService;
-
-    @Autowired
-    private ActivityLogService activityLogService;
+    private DocumentRepository documentRepository;
 
     @Autowired
-    private UserService userService;
+    private DocumentPurgeService documentPurgeService;
 
     @Scheduled(fixedRate = 3600000) // Run every hour
     public void cleanupOldTrashedFiles() {
         LocalDateTime twoDaysAgo = LocalDateTime.now().minusDays(2);
         List<Document> oldTrashedDocs = documentRepository.findByDeletedAtBefore(twoDaysAgo);
 
-        for (Document doc : oldTrashedDocs) {
+        int deleted = 0;
+        int failedFiles = 0;
+        for (int from = 0; from < oldTrashedDocs.size(); from += PURGE_BATCH_SIZE) {
+            List<Document> batch = oldTrashedDocs.subList(from, Math.min(from + PURGE_BATCH_SIZE, oldTrashedDocs.size()));
             try {
-                // Delete physical file
-                if (doc.getFileUrl() != null) {
-                    fileStorageService.deleteFile(doc.getFileUrl());
-                }
-
-                // Get user for logging
-                User user = userService.getUserById(doc.getOwnerId());
-
-                // Log permanent deletion
-                activityLogService.logActivity(doc, user, "AUTO_DELETED",
-                        "File automatically deleted after 2 days in trash: " + doc.getFileName());
-
-                // Delete from database
-                documentRepository.delete(doc);
+                DocumentPurgeService.PurgeResult result = documentPurgeService.purge(batch, "AUTO_DELETED",
+                        "File automatically deleted after 2 days in trash: ");
+                deleted += result.getDeletedDocuments();
+                failedFiles += result.getFailedFiles().size();
             } catch (Exception e) {
-                // Log error but continue with other files
-                System.err.println("Error deleting file: " + doc.getFileName() + " - " + e.getMessage());
+                // Log error but continue with the next batch
+                System.err.println("Error purging trash batch: " + e.getMessage());
             }
         }
+        if (!oldTrashedDocs.isEmpty()) {
+            System.out.println("Trash cleanup removed " + deleted + " documents, " + failedFiles + " files could not be deleted");
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.UploadSession;
+import com.examly.springapp.repository.UploadSessionRepository;
+import com.examly.springapp.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+@Service
+public class UploadSessionCleanupService {
+
+    @Autowired
+    private UploadSessionRepository sessionRepository;
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Value("${upload.session.expiry-hours:24}")
+    private int expiryHours;
+
+    @Scheduled(fixedRate = 3600000) // Run every hour
+    public void cleanupAbandonedSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(expiryHours);
+
+        List<UploadSession> abandoned = sessionRepository.findByStatusInAndUpdatedAtBefore(
+                EnumSet.of(UploadSession.Status.OPEN, UploadSession.Status.COMPLETING), cutoff);
+        for (UploadSession session : abandoned) {
+            try {
+                // Aborting drops the parts S3 is holding for the incomplete upload
+                uploadSessionService.abort(session);
+            } catch (Exception e) {
+                System.err.println("Error aborting upload session: " + session.getId() + " - " + e.getMessage());
+            }
+        }
+
+        // Finished sessions only matter for idempotent commit retries
+        List<UploadSession> finished = sessionRepository.findByStatusInAndUpdatedAtBefore(
+                EnumSet.of(UploadSession.Status.COMMITTED, UploadSession.Status.ABORTED), cutoff);
+        for (UploadSession session : finished) {
+            if (session.getMode() == UploadSession.Mode.PRESIGNED) {
+                // A presigned URL can still be used after finalize; drop whatever it wrote since
+                try {
+                    storageBackend.deleteObject(session.getStorageKey());
+                } catch (Exception e) {
+                    System.err.println("Error deleting presigned upload: " + session.getStorageKey() + " - " + e.getMessage());
+                }
+            }
+        }
+        sessionRepository.deleteAll(finished);
+    }
+}
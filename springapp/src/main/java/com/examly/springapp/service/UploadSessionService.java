@@ -0,0 +1,470 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.model.StorageReservation;
+import com.examly.springapp.model.UploadSession;
+import com.examly.springapp.model.UploadSessionPart;
+import com.examly.springapp.repository.UploadSessionPartRepository;
+import com.examly.springapp.repository.UploadSessionRepository;
+import com.examly.springapp.storage.ObjectInfo;
+import com.examly.springapp.storage.StorageBackend;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Resumable uploads: a session wraps an S3 multipart upload, each numbered chunk is
+ * one part, and a retry only re-sends the chunk that failed. The document row is
+ * created on commit.
+ *
+ * <p>Presigned sessions skip the app servers entirely: the client PUTs the object to
+ * a signed URL and then asks for it to be finalized.
+ */
+@Service
+public class UploadSessionService {
+
+    public static final long MIN_CHUNK_SIZE = 5L * 1024 * 1024; // S3 minimum for every part but the last
+    public static final int MAX_PARTS = 10000;
+    public static final String PRESIGNED_PREFIX = "incoming/";
+
+    @Autowired
+    private UploadSessionRepository sessionRepository;
+
+    @Autowired
+    private UploadSessionPartRepository partRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${upload.session.max-chunk-size:67108864}")
+    private long maxChunkSize;
+
+    // S3 checks expiry when the PUT starts, so a short window does not cut off slow uploads
+    @Value("${upload.presigned.expiry-minutes:5}")
+    private long presignedExpiryMinutes;
+
+    // Largest object S3 accepts in a single PUT
+    @Value("${upload.presigned.max-file-size:5368709120}")
+    private long presignedMaxFileSize;
+
+    public UploadSession createSession(Long ownerId, String title, String fileName, String fileType, Long expectedSize)
+            throws IOException {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setOwnerId(ownerId);
+        session.setTitle(title != null && !title.isBlank() ? title : fileName);
+        session.setFileName(fileName);
+        session.setFileType(fileType);
+        session.setExpectedSize(expectedSize);
+        session.setMode(UploadSession.Mode.MULTIPART);
+        session.setStorageKey(fileStorageService.generateObjectKey(fileName));
+        session.setUploadId(storageBackend.startMultipartUpload(session.getStorageKey(), fileType));
+        session.setStatus(UploadSession.Status.OPEN);
+        return sessionRepository.save(session);
+    }
+
+    /**
+     * Opens a presigned session. The size is required because it is signed into the
+     * URL, which is what stops a client from uploading more than it was allowed.
+     */
+    public PresignedUpload createPresignedSession(Long ownerId, String title, String fileName, String fileType,
+            Long size) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        if (!storageBackend.supportsPresignedUploads()) {
+            throw new IllegalStateException("Presigned uploads are not available with this storage backend");
+        }
+        if (size == null || size <= 0 || size > presignedMaxFileSize) {
+            throw new IllegalArgumentException("size must be between 1 and " + presignedMaxFileSize + " bytes");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setOwnerId(ownerId);
+        session.setTitle(title != null && !title.isBlank() ? title : fileName);
+        session.setFileName(fileName);
+        session.setFileType(fileType);
+        session.setExpectedSize(size);
+        session.setMode(UploadSession.Mode.PRESIGNED);
+        // Only ever a staging key: the document is recorded under a copy made on finalize
+        session.setStorageKey(PRESIGNED_PREFIX + fileStorageService.generateObjectKey(fileName));
+        session.setStatus(UploadSession.Status.OPEN);
+        session = sessionRepository.save(session);
+
+        java.time.Duration expiry = java.time.Duration.ofMinutes(presignedExpiryMinutes);
+        String url = storageBackend.generatePresignedUploadUrl(session.getStorageKey(), fileType, size, expiry);
+        return new PresignedUpload(session, url, java.time.LocalDateTime.now().plus(expiry));
+    }
+
+    public UploadSession getSession(String sessionId, Long ownerId) {
+        UploadSession session = sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new EntityNotFoundException("Upload session not found"));
+        if (!session.getOwnerId().equals(ownerId)) {
+            throw new EntityNotFoundException("Upload session not found");
+        }
+        return session;
+    }
+
+    public List<UploadSessionPart> getParts(String sessionId) {
+        return partRepository.findBySessionIdOrderByPartNumber(sessionId);
+    }
+
+    public UploadSessionPart uploadChunk(String sessionId, Long ownerId, int partNumber, InputStream body, long length)
+            throws IOException {
+        UploadSession session = getOpenSession(sessionId, ownerId);
+        requireMode(session, UploadSession.Mode.MULTIPART);
+        if (partNumber < 1 || partNumber > MAX_PARTS) {
+            throw new IllegalArgumentException("Chunk number must be between 1 and " + MAX_PARTS);
+        }
+        if (length <= 0 || length > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and " + maxChunkSize + " bytes");
+        }
+
+        String eTag = storageBackend.uploadPart(session.getStorageKey(), session.getUploadId(), partNumber, body, length);
+
+        UploadSessionPart part = partRepository.findBySessionIdAndPartNumber(sessionId, partNumber)
+                .orElseGet(UploadSessionPart::new);
+        part.setSessionId(sessionId);
+        part.setPartNumber(partNumber);
+        part.setEtag(eTag);
+        part.setSize(length);
+        try {
+            part = partRepository.save(part);
+        } catch (DataIntegrityViolationException e) {
+            // Concurrent retry of the same chunk won the insert; S3 keeps the last part written
+            part = partRepository.findBySessionIdAndPartNumber(sessionId, partNumber).orElseThrow(() -> e);
+            part.setEtag(eTag);
+            part.setSize(length);
+            part = partRepository.save(part);
+        }
+
+        // Keep the session alive for the sweeper
+        if (sessionRepository.touchOpen(sessionId, java.time.LocalDateTime.now()) == 0) {
+            throw new IllegalStateException("Upload session is no longer open");
+        }
+        return part;
+    }
+
+    /**
+     * Completes the multipart upload and records the document. The session is marked
+     * COMPLETING under a row lock before S3 is called, so a concurrent commit is turned
+     * away instead of completing the upload a second time. If recording fails once the
+     * object exists, the session stays COMPLETING and a retry records that object.
+     */
+    public Document commit(String sessionId, Long ownerId) throws IOException {
+        PendingCommit pending = newTransaction().execute(status -> startCommit(sessionId, ownerId));
+        if (pending.document != null) {
+            // Commit retried after a lost response
+            return pending.document;
+        }
+        UploadSession session = pending.session;
+        if (pending.resumed && !objectExists(session.getStorageKey())) {
+            throw new IllegalStateException("Upload session is already being committed");
+        }
+
+        // The parts are already stored, but the object only comes into existence on completion
+        StorageReservation reservation = storageQuotaService.reserve(ownerId, pending.totalSize);
+        if (reservation == null) {
+            if (!pending.resumed) {
+                reopen(sessionId);
+            }
+            throw new IllegalStateException("Storage limit exceeded");
+        }
+
+        try {
+            if (!pending.resumed) {
+                try {
+                    storageBackend.completeMultipartUpload(session.getStorageKey(), session.getUploadId(),
+                            pending.partETags);
+                } catch (IOException | RuntimeException e) {
+                    // Only a failure that left no object behind can be committed afresh
+                    if (!objectExists(session.getStorageKey())) {
+                        reopen(sessionId);
+                    }
+                    throw e;
+                }
+            }
+            return newTransaction().execute(status -> finishCommit(sessionId, pending.totalSize, reservation));
+        } catch (IOException | RuntimeException e) {
+            storageQuotaService.release(reservation);
+            throw e;
+        }
+    }
+
+    private PendingCommit startCommit(String sessionId, Long ownerId) {
+        UploadSession session = sessionRepository.findByIdForUpdate(sessionId)
+                .filter(s -> s.getOwnerId().equals(ownerId))
+                .orElseThrow(() -> new EntityNotFoundException("Upload session not found"));
+        if (session.getStatus() == UploadSession.Status.COMMITTED && session.getDocumentId() != null) {
+            return new PendingCommit(session, documentService.getDocumentById(session.getDocumentId()));
+        }
+        boolean resumed = session.getStatus() == UploadSession.Status.COMPLETING;
+        if (!resumed && session.getStatus() != UploadSession.Status.OPEN) {
+            throw new IllegalStateException("Upload session is " + session.getStatus());
+        }
+        requireMode(session, UploadSession.Mode.MULTIPART);
+
+        List<UploadSessionPart> parts = partRepository.findBySessionIdOrderByPartNumber(sessionId);
+        if (parts.isEmpty()) {
+            throw new IllegalStateException("No chunks have been uploaded");
+        }
+
+        SortedMap<Integer, String> partETags = new TreeMap<>();
+        long totalSize = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            UploadSessionPart part = parts.get(i);
+            if (part.getPartNumber() != i + 1) {
+                throw new IllegalStateException("Missing chunk " + (i + 1));
+            }
+            if (i < parts.size() - 1 && part.getSize() < MIN_CHUNK_SIZE) {
+                throw new IllegalStateException("Chunk " + part.getPartNumber() + " is smaller than " + MIN_CHUNK_SIZE + " bytes");
+            }
+            partETags.put(part.getPartNumber(), part.getEtag());
+            totalSize += part.getSize();
+        }
+        if (session.getExpectedSize() != null && session.getExpectedSize() != totalSize) {
+            throw new IllegalStateException("Received " + totalSize + " bytes but " + session.getExpectedSize() + " were announced");
+        }
+
+        if (!resumed) {
+            session.setStatus(UploadSession.Status.COMPLETING);
+            sessionRepository.save(session);
+        }
+        return new PendingCommit(session, partETags, totalSize, resumed);
+    }
+
+    private Document finishCommit(String sessionId, long totalSize, StorageReservation reservation) {
+        UploadSession session = sessionRepository.findByIdForUpdate(sessionId)
+                .orElseThrow(() -> new EntityNotFoundException("Upload session not found"));
+        if (session.getStatus() == UploadSession.Status.COMMITTED) {
+            // A concurrent retry recorded the object first
+            storageQuotaService.release(reservation);
+            return documentService.getDocumentById(session.getDocumentId());
+        }
+        if (session.getStatus() != UploadSession.Status.COMPLETING) {
+            throw new IllegalStateException("Upload session is " + session.getStatus());
+        }
+
+        Document saved = documentService.recordUpload(session.getOwnerId(), session.getTitle(), session.getFileName(),
+                session.getFileType(), totalSize, session.getStorageKey(), null, reservation);
+        session.setStatus(UploadSession.Status.COMMITTED);
+        session.setDocumentId(saved.getId());
+        sessionRepository.save(session);
+        partRepository.deleteBySessionId(sessionId);
+        return saved;
+    }
+
+    // Back to OPEN so the client can fix its chunks and commit again
+    private void reopen(String sessionId) {
+        newTransaction().executeWithoutResult(status -> sessionRepository.findByIdForUpdate(sessionId)
+                .filter(s -> s.getStatus() == UploadSession.Status.COMPLETING)
+                .ifPresent(s -> {
+                    s.setStatus(UploadSession.Status.OPEN);
+                    sessionRepository.save(s);
+                }));
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            storageBackend.deleteObject(key);
+        } catch (IOException e) {
+            System.err.println("Failed to delete upload " + key + ": " + e.getMessage());
+        }
+    }
+
+    private boolean objectExists(String key) {
+        try {
+            return storageBackend.headObject(key) != null;
+        } catch (IOException e) {
+            // Assume it may exist, so the session is not reopened over a completed upload
+            return true;
+        }
+    }
+
+    /**
+     * Copies the object the client uploaded to the presigned URL to a key of its own and
+     * records the document under that key. The URL stays usable until it expires, so the
+     * size and quota checks are made on the copy, which the client cannot overwrite. A
+     * copy of the wrong size, or one that would take the owner over their storage limit,
+     * is deleted again.
+     */
+    // The session is marked ABORTED before a rejection is thrown; that must stick
+    @Transactional(noRollbackFor = IllegalStateException.class)
+    public Document finalizePresigned(String sessionId, Long ownerId) throws IOException {
+        UploadSession session = sessionRepository.findByIdForUpdate(sessionId)
+                .filter(s -> s.getOwnerId().equals(ownerId))
+                .orElseThrow(() -> new EntityNotFoundException("Upload session not found"));
+        if (session.getStatus() == UploadSession.Status.COMMITTED && session.getDocumentId() != null) {
+            return documentService.getDocumentById(session.getDocumentId());
+        }
+        if (session.getStatus() != UploadSession.Status.OPEN) {
+            throw new IllegalStateException("Upload session is " + session.getStatus());
+        }
+        requireMode(session, UploadSession.Mode.PRESIGNED);
+
+        if (storageBackend.headObject(session.getStorageKey()) == null) {
+            throw new IllegalStateException("The file has not been uploaded yet");
+        }
+        String objectKey = fileStorageService.generateObjectKey(session.getFileName());
+        storageBackend.copyObject(session.getStorageKey(), objectKey);
+        deleteQuietly(session.getStorageKey());
+
+        ObjectInfo object = storageBackend.headObject(objectKey);
+        if (session.getExpectedSize() != null && session.getExpectedSize() != object.getSize()) {
+            deleteQuietly(objectKey);
+            abort(session);
+            throw new IllegalStateException("Uploaded " + object.getSize() + " bytes but " + session.getExpectedSize() + " were announced");
+        }
+        StorageReservation reservation = storageQuotaService.reserve(ownerId, object.getSize());
+        if (reservation == null) {
+            deleteQuietly(objectKey);
+            abort(session);
+            throw new IllegalStateException("Storage limit exceeded");
+        }
+
+        String contentType = object.getContentType() != null ? object.getContentType() : session.getFileType();
+        Document saved;
+        try {
+            saved = documentService.recordUpload(ownerId, session.getTitle(), session.getFileName(),
+                    contentType, object.getSize(), objectKey, null, reservation);
+        } catch (RuntimeException e) {
+            storageQuotaService.release(reservation);
+            deleteQuietly(objectKey);
+            throw e;
+        }
+
+        session.setStatus(UploadSession.Status.COMMITTED);
+        session.setDocumentId(saved.getId());
+        sessionRepository.save(session);
+        return saved;
+    }
+
+    @Transactional
+    public void abort(String sessionId, Long ownerId) {
+        abort(getOpenSession(sessionId, ownerId));
+    }
+
+    @Transactional
+    public void abort(UploadSession session) {
+        if (session.getMode() == UploadSession.Mode.PRESIGNED) {
+            // The client may have uploaded without finalizing
+            try {
+                storageBackend.deleteObject(session.getStorageKey());
+            } catch (IOException e) {
+                System.err.println("Failed to delete presigned upload " + session.getStorageKey() + ": " + e.getMessage());
+            }
+        } else {
+            storageBackend.abortMultipartUpload(session.getStorageKey(), session.getUploadId());
+            if (session.getStatus() == UploadSession.Status.COMPLETING) {
+                // The upload may have been completed by a commit that never recorded it
+                try {
+                    storageBackend.deleteObject(session.getStorageKey());
+                } catch (IOException e) {
+                    System.err.println("Failed to delete uncommitted upload " + session.getStorageKey() + ": " + e.getMessage());
+                }
+            }
+        }
+        session.setStatus(UploadSession.Status.ABORTED);
+        sessionRepository.save(session);
+        partRepository.deleteBySessionId(session.getId());
+    }
+
+    private UploadSession getOpenSession(String sessionId, Long ownerId) {
+        UploadSession session = getSession(sessionId, ownerId);
+        if (session.getStatus() != UploadSession.Status.OPEN) {
+            throw new IllegalStateException("Upload session is " + session.getStatus());
+        }
+        return session;
+    }
+
+    private void requireMode(UploadSession session, UploadSession.Mode mode) {
+        if (session.getMode() != mode) {
+            throw new IllegalStateException("Not a " + mode.toString().toLowerCase() + " upload session");
+        }
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static class PendingCommit {
+        private final UploadSession session;
+        private final Document document;
+        private final SortedMap<Integer, String> partETags;
+        private final long totalSize;
+        private final boolean resumed;
+
+        PendingCommit(UploadSession session, Document document) {
+            this(session, document, null, 0, false);
+        }
+
+        PendingCommit(UploadSession session, SortedMap<Integer, String> partETags, long totalSize, boolean resumed) {
+            this(session, null, partETags, totalSize, resumed);
+        }
+
+        private PendingCommit(UploadSession session, Document document, SortedMap<Integer, String> partETags,
+                long totalSize, boolean resumed) {
+            this.session = session;
+            this.document = document;
+            this.partETags = partETags;
+            this.totalSize = totalSize;
+            this.resumed = resumed;
+        }
+    }
+
+    public static class PresignedUpload {
+        private final UploadSession session;
+        private final String uploadUrl;
+        private final java.time.LocalDateTime expiresAt;
+
+        public PresignedUpload(UploadSession session, String uploadUrl, java.time.LocalDateTime expiresAt) {
+            this.session = session;
+            this.uploadUrl = uploadUrl;
+            this.expiresAt = expiresAt;
+        }
+
+        public UploadSession getSession() {
+            return session;
+        }
+
+        public String getUploadUrl() {
+            return uploadUrl;
+        }
+
+        public java.time.LocalDateTime getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
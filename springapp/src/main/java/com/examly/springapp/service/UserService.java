@@ -3,22 +3,29 @@ package com.examly.springapp.service;
 import com.examly.springapp.model.User;
 import com.examly.springapp.dto.UserRegisterRequestDTO;
 import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.search.UserSearchIndexService;
+import com.examly.springapp.security.PasswordHashingService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+    @Autowired
+    private UserSearchIndexService userSearchIndexService;
 
     public User registerUser(UserRegisterRequestDTO dto) {
         if (userRepository.existsByEmail(dto.getEmail())) {
@@ -27,9 +34,34 @@ public class UserService {
         User user = new User();
         user.setName(dto.getName());
         user.setEmail(dto.getEmail());
-        user.setPasswordHash(passwordEncoder.encode(dto.getPassword()));
+        user.setPasswordHash(passwordHashingService.encode(dto.getPassword()));
         user.setRole(User.Role.USER);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userSearchIndexService.index(saved);
+        return saved;
+    }
+
+    /**
+     * Type-ahead lookup by name or email: users whose name starts with the query come
+     * first, then those with a later name word or email starting with it, then other
+     * matches.
+     */
+    public List<User> searchUsers(String query, int limit) {
+        List<Long> ids = userSearchIndexService.search(query, limit);
+        if (ids == null) {
+            return userRepository.findByNameContainingIgnoreCaseOrEmailContainingIgnoreCase(query, query,
+                    PageRequest.of(0, limit)).getContent();
+        }
+        Map<Long, User> byId = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = byId.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
     }
 
     public User getUserById(Long id) {
@@ -37,6 +69,13 @@ public class UserService {
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
     }
 
+    /**
+     * A reference to the user for recording them on another entity, without loading the row.
+     */
+    public User getUserReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
     public User getUserByEmail(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new EntityNotFoundException("User not found"));
@@ -99,6 +138,7 @@ public class UserService {
             throw new EntityNotFoundException("User not found");
         }
         userRepository.deleteById(id);
+        userSearchIndexService.remove(id);
     }
 
     public User updateUserStatus(Long id, String status) {
@@ -118,13 +158,15 @@ public class UserService {
         if (email != null) {
             user.setEmail(email);
         }
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userSearchIndexService.index(saved);
+        return saved;
     }
 
     public User updateUserPassword(Long id, String password) {
         User user = getUserById(id);
         if (password != null && !password.trim().isEmpty()) {
-            user.setPasswordHash(passwordEncoder.encode(password));
+            user.setPasswordHash(passwordHashingService.encode(password));
         }
         return userRepository.save(user);
     }
@@ -0,0 +1,47 @@
+package com.examly.springapp.storage;
+
+import org.springframework.http.HttpRange;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Range and precondition handling shared by the backends that serve bytes themselves.
+ */
+final class ByteRanges {
+
+    private ByteRanges() {
+    }
+
+    /**
+     * @return inclusive {@code {start, end}} of {@code range} within an object of {@code size} bytes
+     */
+    static long[] resolve(String range, long size) throws RangeNotSatisfiableException {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            if (ranges.size() != 1) {
+                throw new IllegalArgumentException("Expected a single range: " + range);
+            }
+            long start = ranges.get(0).getRangeStart(size);
+            if (start >= size) {
+                throw new RangeNotSatisfiableException(size);
+            }
+            return new long[] { start, ranges.get(0).getRangeEnd(size) };
+        } catch (IllegalArgumentException e) {
+            throw new RangeNotSatisfiableException(size);
+        }
+    }
+
+    static String contentRange(long[] range, long size) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + size;
+    }
+
+    static boolean preconditionsMet(ObjectInfo info, String ifMatch, Instant ifUnmodifiedSince) {
+        if (ifMatch != null && !ifMatch.equals(info.getETag())) {
+            return false;
+        }
+        // HTTP dates have second precision
+        return ifUnmodifiedSince == null || info.getLastModified() == null
+                || info.getLastModified().getEpochSecond() <= ifUnmodifiedSince.getEpochSecond();
+    }
+}
@@ -0,0 +1,173 @@
+package com.examly.springapp.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Storage-side compression for content that compresses well. Objects are stored
+ * gzip-encoded at the fastest deflate level, which is the one codec every HTTP client
+ * can take as-is through {@code Content-Encoding}.
+ */
+public final class ContentEncoding {
+
+    public static final String GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ContentEncoding() {
+    }
+
+    /**
+     * Text formats only. Office Open XML (docx, xlsx, pptx) and ODF files are already
+     * deflate-compressed zip containers and gain next to nothing from a second pass.
+     */
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters).trim();
+        }
+        return type.startsWith("text/")
+                || type.equals("application/json")
+                || type.endsWith("+json")
+                || type.equals("application/x-ndjson")
+                || type.equals("application/xml")
+                || type.endsWith("+xml")
+                || type.equals("application/csv")
+                || type.equals("application/javascript")
+                || type.equals("application/x-yaml")
+                || type.equals("application/sql")
+                || type.equals("application/rtf");
+    }
+
+    /**
+     * @return a stream of the gzip encoding of {@code source}, produced as it is read
+     */
+    public static InputStream compress(InputStream source) {
+        return new GzipCompressingInputStream(source);
+    }
+
+    public static OutputStream compressTo(OutputStream target) throws IOException {
+        return new FastGzipOutputStream(target);
+    }
+
+    public static InputStream decode(InputStream stored, String contentEncoding) throws IOException {
+        if (GZIP.equals(contentEncoding)) {
+            return new GZIPInputStream(stored, BUFFER_SIZE);
+        }
+        return stored;
+    }
+
+    /**
+     * @return whether an {@code Accept-Encoding} header allows gzip
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals(GZIP) && !name.equals("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class FastGzipOutputStream extends GZIPOutputStream {
+        FastGzipOutputStream(OutputStream out) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    /**
+     * Pull-based gzip: each read compresses just enough of the source to return
+     * something, so memory stays bounded by one buffer regardless of the body size.
+     */
+    private static class GzipCompressingInputStream extends InputStream {
+        private final InputStream source;
+        private final ExposedBuffer compressed = new ExposedBuffer();
+        private final GZIPOutputStream gzip;
+        private final byte[] chunk = new byte[BUFFER_SIZE];
+        private int position;
+        private boolean finished;
+
+        GzipCompressingInputStream(InputStream source) {
+            this.source = source;
+            try {
+                this.gzip = new FastGzipOutputStream(compressed);
+            } catch (IOException e) {
+                // Only writes the header into memory
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == compressed.size()) {
+                if (finished) {
+                    return -1;
+                }
+                compressed.reset();
+                position = 0;
+                int read = source.read(chunk);
+                if (read == -1) {
+                    gzip.finish();
+                    finished = true;
+                } else {
+                    gzip.write(chunk, 0, read);
+                }
+            }
+            int count = Math.min(length, compressed.size() - position);
+            System.arraycopy(compressed.buffer(), position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+
+    private static class ExposedBuffer extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
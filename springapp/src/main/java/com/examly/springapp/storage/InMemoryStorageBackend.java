@@ -0,0 +1,198 @@
+package com.examly.springapp.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps objects on the heap. Meant for tests and offline throughput benchmarks, where
+ * it takes the network and the disk out of the measurement; nothing survives a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "memory")
+public class InMemoryStorageBackend implements StorageBackend {
+
+    private final Map<String, MemoryObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, MemoryObject>> multipartUploads = new ConcurrentHashMap<>();
+
+    @Value("${storage.public-base-url:/api/storage/objects/}")
+    private String publicBaseUrl;
+
+    @Override
+    public StoredFile putObject(String key, InputStream inputStream, long length, String contentType) throws IOException {
+        byte[] data = inputStream.readAllBytes();
+        if (data.length != length) {
+            throw new IOException("Expected " + length + " bytes but received " + data.length);
+        }
+        objects.put(key, new MemoryObject(data, contentType));
+        return new StoredFile(key, data.length);
+    }
+
+    @Override
+    public StoredFile putStream(String key, InputStream inputStream, String contentType) throws IOException {
+        byte[] data = inputStream.readAllBytes();
+        objects.put(key, new MemoryObject(data, contentType));
+        return new StoredFile(key, data.length);
+    }
+
+    @Override
+    public InputStream getObject(String key) throws IOException {
+        return new ByteArrayInputStream(existing(key).data);
+    }
+
+    @Override
+    public ObjectRange getObjectRange(String key, String range, String ifMatch, Instant ifUnmodifiedSince)
+            throws IOException {
+        MemoryObject object = existing(key);
+        ObjectInfo info = object.info();
+        if (!ByteRanges.preconditionsMet(info, ifMatch, ifUnmodifiedSince)) {
+            return null;
+        }
+        long size = object.data.length;
+        if (range == null) {
+            return new ObjectRange(new ByteArrayInputStream(object.data), size, null, info.getETag(),
+                    info.getLastModified());
+        }
+        long[] bounds = ByteRanges.resolve(range, size);
+        int length = (int) (bounds[1] - bounds[0] + 1);
+        return new ObjectRange(new ByteArrayInputStream(object.data, (int) bounds[0], length), length,
+                ByteRanges.contentRange(bounds, size), info.getETag(), info.getLastModified());
+    }
+
+    @Override
+    public ObjectInfo headObject(String key) {
+        MemoryObject object = objects.get(key);
+        return object != null ? object.info() : null;
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public void copyObject(String sourceKey, String destinationKey) throws IOException {
+        MemoryObject source = existing(sourceKey);
+        objects.put(destinationKey, new MemoryObject(source.data, source.contentType));
+    }
+
+    @Override
+    public List<String> listObjects(String prefix) {
+        return objects.keySet().stream()
+                .filter(key -> prefix == null || key.startsWith(prefix))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String startMultipartUpload(String key, String contentType) {
+        String uploadId = UUID.randomUUID().toString();
+        multipartUploads.put(uploadId, new ConcurrentSkipListMap<>());
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long length)
+            throws IOException {
+        Map<Integer, MemoryObject> parts = upload(uploadId);
+        byte[] data = inputStream.readAllBytes();
+        if (data.length != length) {
+            throw new IOException("Expected " + length + " bytes but received " + data.length);
+        }
+        MemoryObject part = new MemoryObject(data, null);
+        parts.put(partNumber, part);
+        return part.eTag;
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, SortedMap<Integer, String> partETags)
+            throws IOException {
+        Map<Integer, MemoryObject> parts = upload(uploadId);
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+        for (var entry : partETags.entrySet()) {
+            MemoryObject part = parts.get(entry.getKey());
+            if (part == null || !part.eTag.equals(entry.getValue())) {
+                throw new IOException("Part " + entry.getKey() + " is missing or was replaced");
+            }
+            assembled.write(part.data);
+        }
+        objects.put(key, new MemoryObject(assembled.toByteArray(), null));
+        multipartUploads.remove(uploadId);
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        multipartUploads.remove(uploadId);
+    }
+
+    @Override
+    public String getPublicUrl(String key) {
+        return publicBaseUrl + key;
+    }
+
+    @Override
+    public String getDownloadUrl(String key, String originalFilename) {
+        return publicBaseUrl + key + "?download=" + URLEncoder.encode(originalFilename, StandardCharsets.UTF_8);
+    }
+
+    private MemoryObject existing(String key) throws IOException {
+        MemoryObject object = objects.get(key);
+        if (object == null) {
+            throw new NoSuchFileException("No such object: " + key);
+        }
+        return object;
+    }
+
+    private Map<Integer, MemoryObject> upload(String uploadId) throws IOException {
+        Map<Integer, MemoryObject> parts = multipartUploads.get(uploadId);
+        if (parts == null) {
+            throw new NoSuchFileException("No such multipart upload: " + uploadId);
+        }
+        return parts;
+    }
+
+    private static class MemoryObject {
+        private final byte[] data;
+        private final String contentType;
+        private final String eTag;
+        private final Instant lastModified = Instant.now();
+
+        MemoryObject(byte[] data, String contentType) {
+            this.data = data;
+            this.contentType = contentType;
+            this.eTag = "\"" + md5Hex(data) + "\"";
+        }
+
+        ObjectInfo info() {
+            return new ObjectInfo(data.length, contentType, eTag, lastModified);
+        }
+
+        // Same ETag S3 gives a single-part upload
+        private static String md5Hex(byte[] data) {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 not available", e);
+            }
+        }
+    }
+}
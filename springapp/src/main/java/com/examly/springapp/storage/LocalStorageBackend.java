@@ -0,0 +1,305 @@
+package com.examly.springapp.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stores objects as files under {@code storage.local.directory}, for nodes without S3.
+ * Writes go through a temporary file that is renamed into place; reads are
+ * memory-mapped. Objects are served to browsers by {@code StorageController}.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    // Internal directories start with a dot, which object keys may not
+    private static final String TEMP_DIR = ".tmp";
+    private static final String MULTIPART_DIR = ".multipart";
+
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    @Value("${storage.local.directory:./data/storage}")
+    private String directory;
+
+    @Value("${storage.public-base-url:/api/storage/objects/}")
+    private String publicBaseUrl;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(directory).toAbsolutePath().normalize();
+        Files.createDirectories(root.resolve(TEMP_DIR));
+        Files.createDirectories(root.resolve(MULTIPART_DIR));
+        System.out.println("Local storage backend at " + root);
+    }
+
+    @Override
+    public StoredFile putObject(String key, InputStream inputStream, long length, String contentType) throws IOException {
+        return write(key, inputStream, length);
+    }
+
+    @Override
+    public StoredFile putStream(String key, InputStream inputStream, String contentType) throws IOException {
+        return write(key, inputStream, null);
+    }
+
+    /**
+     * @param expectedLength checked before the object is moved into place, so a short
+     *        body never replaces what is stored under the key; {@code null} to skip
+     */
+    private StoredFile write(String key, InputStream inputStream, Long expectedLength) throws IOException {
+        Path target = resolve(key);
+        Path temp = newTempFile();
+        try {
+            long size;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 ReadableByteChannel in = Channels.newChannel(inputStream)) {
+                size = transferFrom(in, out);
+            }
+            if (expectedLength != null && size != expectedLength) {
+                throw new IOException("Expected " + expectedLength + " bytes but received " + size);
+            }
+            moveIntoPlace(temp, target);
+            return new StoredFile(key, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream getObject(String key) throws IOException {
+        Path path = existing(key);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new MappedFileInputStream(channel, 0, channel.size());
+    }
+
+    @Override
+    public ObjectRange getObjectRange(String key, String range, String ifMatch, Instant ifUnmodifiedSince)
+            throws IOException {
+        Path path = existing(key);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ObjectInfo info = info(path);
+            if (!ByteRanges.preconditionsMet(info, ifMatch, ifUnmodifiedSince)) {
+                channel.close();
+                return null;
+            }
+            long size = channel.size();
+            if (range == null) {
+                return new ObjectRange(new MappedFileInputStream(channel, 0, size), size, null, info.getETag(),
+                        info.getLastModified());
+            }
+            long[] bounds = ByteRanges.resolve(range, size);
+            return new ObjectRange(new MappedFileInputStream(channel, bounds[0], bounds[1] + 1),
+                    bounds[1] - bounds[0] + 1, ByteRanges.contentRange(bounds, size), info.getETag(),
+                    info.getLastModified());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public ObjectInfo headObject(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        return info(path);
+    }
+
+    @Override
+    public void deleteObject(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public void copyObject(String sourceKey, String destinationKey) throws IOException {
+        Path source = existing(sourceKey);
+        Path temp = newTempFile();
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            moveIntoPlace(temp, resolve(destinationKey));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public List<String> listObjects(String prefix) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .map(path -> root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/"))
+                    .filter(key -> !key.startsWith(TEMP_DIR + "/") && !key.startsWith(MULTIPART_DIR + "/"))
+                    .filter(key -> prefix == null || key.startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public String startMultipartUpload(String key, String contentType) throws IOException {
+        resolve(key);
+        String uploadId = UUID.randomUUID().toString();
+        Files.createDirectories(root.resolve(MULTIPART_DIR).resolve(uploadId));
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long length)
+            throws IOException {
+        Path uploadDir = uploadDir(uploadId);
+        Path temp = newTempFile();
+        try {
+            long size;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 ReadableByteChannel in = Channels.newChannel(inputStream)) {
+                size = transferFrom(in, out);
+            }
+            if (size != length) {
+                throw new IOException("Expected " + length + " bytes but received " + size);
+            }
+            Path part = uploadDir.resolve(Integer.toString(partNumber));
+            Files.move(temp, part, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return eTag(info(part));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, SortedMap<Integer, String> partETags)
+            throws IOException {
+        Path uploadDir = uploadDir(uploadId);
+        Path temp = newTempFile();
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (var part : partETags.entrySet()) {
+                    Path partFile = uploadDir.resolve(Integer.toString(part.getKey()));
+                    if (!Files.isRegularFile(partFile) || !eTag(info(partFile)).equals(part.getValue())) {
+                        throw new IOException("Part " + part.getKey() + " is missing or was replaced");
+                    }
+                    try (FileChannel in = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                        long position = 0;
+                        long size = in.size();
+                        while (position < size) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    }
+                }
+            }
+            moveIntoPlace(temp, resolve(key));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        abortMultipartUpload(key, uploadId);
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        try {
+            Path uploadDir = uploadDir(uploadId);
+            try (Stream<Path> files = Files.walk(uploadDir)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to abort multipart upload " + uploadId + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getPublicUrl(String key) {
+        return publicBaseUrl + key;
+    }
+
+    @Override
+    public String getDownloadUrl(String key, String originalFilename) {
+        return publicBaseUrl + key + "?download=" + URLEncoder.encode(originalFilename, StandardCharsets.UTF_8);
+    }
+
+    private long transferFrom(ReadableByteChannel in, FileChannel out) throws IOException {
+        long position = 0;
+        long transferred;
+        while ((transferred = out.transferFrom(in, position, TRANSFER_CHUNK)) > 0) {
+            position += transferred;
+        }
+        return position;
+    }
+
+    private void moveIntoPlace(Path temp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path newTempFile() throws IOException {
+        return Files.createTempFile(root.resolve(TEMP_DIR), "put-", ".tmp");
+    }
+
+    private Path resolve(String key) {
+        if (key == null || key.isEmpty() || key.startsWith(".") || key.contains("/.")) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+
+    private Path existing(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            throw new NoSuchFileException("No such object: " + key);
+        }
+        return path;
+    }
+
+    private Path uploadDir(String uploadId) throws IOException {
+        Path uploadDir = root.resolve(MULTIPART_DIR).resolve(UUID.fromString(uploadId).toString());
+        if (!Files.isDirectory(uploadDir)) {
+            throw new NoSuchFileException("No such multipart upload: " + uploadId);
+        }
+        return uploadDir;
+    }
+
+    private ObjectInfo info(Path path) throws IOException {
+        long size = Files.size(path);
+        Instant lastModified = Files.getLastModifiedTime(path).toInstant();
+        return new ObjectInfo(size, null, eTag(size, lastModified), lastModified);
+    }
+
+    private String eTag(ObjectInfo info) {
+        return info.getETag();
+    }
+
+    // Size and modification time identify a version because objects are only ever replaced by rename
+    private String eTag(long size, Instant lastModified) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified.toEpochMilli()) + "\"";
+    }
+}
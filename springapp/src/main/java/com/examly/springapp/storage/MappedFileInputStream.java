@@ -0,0 +1,96 @@
+package com.examly.springapp.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a region of a file through memory-mapped windows, so bytes go from the page
+ * cache to the caller's buffer without a read syscall per chunk. Windows are mapped
+ * one at a time, which also keeps regions larger than 2 GB readable.
+ */
+class MappedFileInputStream extends InputStream {
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+    private MappedByteBuffer window;
+
+    /**
+     * @param end exclusive end offset of the region
+     */
+    MappedFileInputStream(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureWindow()) {
+            return -1;
+        }
+        return window.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.min(Math.max(n, 0), remaining());
+        if (window != null) {
+            int inWindow = (int) Math.min(skipped, window.remaining());
+            window.position(window.position() + inWindow);
+            if (inWindow < skipped) {
+                position += skipped - inWindow;
+                window = null;
+            }
+        } else {
+            position += skipped;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, remaining());
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private long remaining() {
+        long unmapped = end - position;
+        return window != null ? unmapped + window.remaining() : unmapped;
+    }
+
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        if (position >= end) {
+            return false;
+        }
+        long size = Math.min(WINDOW_SIZE, end - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package com.examly.springapp.storage;
+
+public class ObjectInfo {
+    private final long size;
+    private final String contentType;
+    private final String eTag;
+    private final java.time.Instant lastModified;
+
+    public ObjectInfo(long size, String contentType, String eTag, java.time.Instant lastModified) {
+        this.size = size;
+        this.contentType = contentType;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public java.time.Instant getLastModified() {
+        return lastModified;
+    }
+}
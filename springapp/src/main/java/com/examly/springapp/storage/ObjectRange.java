@@ -0,0 +1,43 @@
+package com.examly.springapp.storage;
+
+import java.io.InputStream;
+
+public class ObjectRange {
+    private final InputStream body;
+    private final long contentLength;
+    private final String contentRange;
+    private final String eTag;
+    private final java.time.Instant lastModified;
+
+    public ObjectRange(InputStream body, long contentLength, String contentRange, String eTag,
+            java.time.Instant lastModified) {
+        this.body = body;
+        this.contentLength = contentLength;
+        this.contentRange = contentRange;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return the {@code Content-Range} of the returned bytes, {@code null} for a full read
+     */
+    public String getContentRange() {
+        return contentRange;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public java.time.Instant getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,16 @@
+package com.examly.springapp.storage;
+
+import java.io.IOException;
+
+public class RangeNotSatisfiableException extends IOException {
+    private final long objectSize;
+
+    public RangeNotSatisfiableException(long objectSize) {
+        super("Requested range not satisfiable");
+        this.objectSize = objectSize;
+    }
+
+    public long getObjectSize() {
+        return objectSize;
+    }
+}
@@ -0,0 +1,112 @@
+package com.examly.springapp.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Where document bytes live. Exactly one implementation is active, chosen by
+ * {@code file.storage.type}: {@code s3} (default), {@code local} or {@code memory}.
+ *
+ * <p>Keys are opaque, {@code /}-separated strings. Objects are written once and never
+ * modified in place, which is what lets callers cache them freely.
+ */
+public interface StorageBackend {
+
+    StoredFile putObject(String key, InputStream inputStream, long length, String contentType) throws IOException;
+
+    /**
+     * Stores a body whose length is not known up front, without buffering all of it.
+     */
+    StoredFile putStream(String key, InputStream inputStream, String contentType) throws IOException;
+
+    /**
+     * Stores an already encoded body. Backends that keep object metadata record the
+     * encoding so the object is served with a matching {@code Content-Encoding}; the
+     * rest rely on the document row, which records it too.
+     */
+    default StoredFile putStream(String key, InputStream inputStream, String contentType, String contentEncoding)
+            throws IOException {
+        return putStream(key, inputStream, contentType);
+    }
+
+    InputStream getObject(String key) throws IOException;
+
+    /**
+     * @param range an HTTP byte range ({@code bytes=0-499}, {@code bytes=-500}) or
+     *              {@code null} for the whole object
+     * @param ifMatch only read if the object's ETag equals this, may be {@code null}
+     * @param ifUnmodifiedSince only read if the object has not changed since, may be {@code null}
+     * @return the requested bytes, or {@code null} if a precondition failed
+     * @throws RangeNotSatisfiableException if the range starts past the end of the object
+     */
+    ObjectRange getObjectRange(String key, String range, String ifMatch, Instant ifUnmodifiedSince) throws IOException;
+
+    /**
+     * @return metadata of the object, or {@code null} if there is no such key
+     */
+    ObjectInfo headObject(String key) throws IOException;
+
+    void deleteObject(String key) throws IOException;
+
+    /**
+     * Deletes many objects, in as few requests as the backend allows. Missing keys
+     * count as deleted.
+     *
+     * @return the keys that could not be deleted, with the reason
+     */
+    default Map<String, String> deleteObjects(Collection<String> keys) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (String key : keys) {
+            try {
+                deleteObject(key);
+            } catch (IOException | RuntimeException e) {
+                failures.put(key, e.getMessage());
+            }
+        }
+        return failures;
+    }
+
+    void copyObject(String sourceKey, String destinationKey) throws IOException;
+
+    List<String> listObjects(String prefix) throws IOException;
+
+    String startMultipartUpload(String key, String contentType) throws IOException;
+
+    /**
+     * Re-uploading the same part number replaces the earlier bytes.
+     *
+     * @return the ETag of the part, needed to complete the upload
+     */
+    String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long length)
+            throws IOException;
+
+    void completeMultipartUpload(String key, String uploadId, SortedMap<Integer, String> partETags) throws IOException;
+
+    /**
+     * Best effort; failures are logged, not thrown.
+     */
+    void abortMultipartUpload(String key, String uploadId);
+
+    String getPublicUrl(String key);
+
+    String getDownloadUrl(String key, String originalFilename);
+
+    /**
+     * Whether clients can upload straight to the store through
+     * {@link #generatePresignedUploadUrl}.
+     */
+    default boolean supportsPresignedUploads() {
+        return false;
+    }
+
+    default String generatePresignedUploadUrl(String key, String contentType, long contentLength, Duration expiry) {
+        throw new UnsupportedOperationException("Presigned uploads are not supported by this storage backend");
+    }
+}
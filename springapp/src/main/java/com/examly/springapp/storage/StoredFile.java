@@ -0,0 +1,33 @@
+package com.examly.springapp.storage;
+
+public class StoredFile {
+    private final String key;
+    private final long size;
+    private final String contentEncoding;
+
+    public StoredFile(String key, long size) {
+        this(key, size, null);
+    }
+
+    /**
+     * @param size length of the original content, before any encoding
+     * @param contentEncoding how the stored bytes are encoded, {@code null} if they are the content as-is
+     */
+    public StoredFile(String key, long size, String contentEncoding) {
+        this.key = key;
+        this.size = size;
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+}
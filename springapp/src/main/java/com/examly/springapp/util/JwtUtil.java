@@ -1,52 +1,191 @@
 package com.examly.springapp.util;
 
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.security.AuthenticatedUser;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 public class JwtUtil {
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+
     @Value("${jwt.secret:mySecretKeymySecretKeymySecretKeymySecretKey}")
     private String SECRET;
-    
+
     @Value("${jwt.expiration:86400000}")
     private int EXPIRATION;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET.getBytes());
+    // Tokens whose signature was already checked; a client sends the same token on every request
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private Key signingKey;
+    private JwtParser parser;
+    private final Map<ByteBuffer, VerifiedToken> verified = new ConcurrentHashMap<>();
+    // Held by the one request trimming the cache; the others carry on meanwhile
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * The key and parser are immutable and shared by all requests.
+     */
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(SECRET.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
-    public String generateToken(String email) {
+    /**
+     * Issues a token naming the user by email, with their id and role as claims.
+     */
+    public String generateToken(User user) {
         return Jwts.builder()
-                .setSubject(email)
+                .setSubject(user.getEmail())
+                .claim(USER_ID_CLAIM, user.getId())
+                .claim(ROLE_CLAIM, user.getRole() != null ? user.getRole().name() : null)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * @throws JwtException if the token is malformed, forged or expired
+     */
     public String extractEmail(String token) {
-        return extractClaims(token).getSubject();
+        AuthenticatedUser user = verify(token);
+        if (user == null) {
+            throw new JwtException("Invalid token");
+        }
+        return user.getEmail();
     }
 
     public boolean isTokenValid(String token) {
+        return verify(token) != null;
+    }
+
+    /**
+     * Checks the token and returns the user it was issued to, parsing it at most once
+     * per cache lifetime. A cached token is only trusted until its own expiry.
+     *
+     * @return the caller, or {@code null} if the token is not valid
+     */
+    public AuthenticatedUser verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        ByteBuffer key = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.get(key);
+        if (cached != null) {
+            if (now < cached.expiresAt) {
+                return cached.user;
+            }
+            verified.remove(key, cached);
+            return null;
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        AuthenticatedUser user = toUser(claims);
+        if (user == null) {
+            return null;
+        }
+        // Tokens without an expiry are verified each time rather than trusted indefinitely
+        if (claims.getExpiration() != null) {
+            verified.put(key, new VerifiedToken(user, claims.getExpiration().getTime()));
+            if (verified.size() > verifiedCacheSize) {
+                evict(now);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Drops expired tokens, then arbitrary ones, until the cache is a tenth below its
+     * bound, so a full cache is not trimmed again on every new token.
+     */
+    private void evict(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            extractClaims(token);
-            return true;
-        } catch (JwtException e) {
-            return false;
+            verified.values().removeIf(token -> now >= token.expiresAt);
+            int target = verifiedCacheSize - verifiedCacheSize / 10;
+            Iterator<ByteBuffer> keys = verified.keySet().iterator();
+            while (verified.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            evicting.set(false);
         }
     }
 
-    private Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private AuthenticatedUser toUser(Claims claims) {
+        String email = claims.getSubject();
+        if (email == null) {
+            return null;
+        }
+        Number id = claims.get(USER_ID_CLAIM, Number.class);
+        if (id == null) {
+            // Issued before tokens carried the id and role; looked up once, then cached with the token
+            return userRepository.findByEmail(email)
+                    .map(user -> new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole()))
+                    .orElse(null);
+        }
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (role == null) {
+            return new AuthenticatedUser(id.longValue(), email, null);
+        }
+        try {
+            return new AuthenticatedUser(id.longValue(), email, User.Role.valueOf(role));
+        } catch (IllegalArgumentException e) {
+            // A role this version does not know, e.g. from a newer or forged issuer
+            return null;
+        }
+    }
+
+    private static final class VerifiedToken {
+        private final AuthenticatedUser user;
+        private final long expiresAt;
+
+        VerifiedToken(AuthenticatedUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
     }
-}
\ No newline at end of file
+}
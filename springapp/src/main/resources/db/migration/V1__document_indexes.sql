@@ -0,0 +1,17 @@
+-- Access paths of the document listings, counts and trash jobs. Active rows have
+-- deleted_at NULL, so deleted_at leads or follows the owner in every index.
+
+-- An owner's documents and trash, newest first; also their storage total
+CREATE INDEX idx_documents_owner_deleted_created ON documents (owner_id, deleted_at, created_at);
+
+-- All active documents newest first, trash listings and the trash purge
+CREATE INDEX idx_documents_deleted_created ON documents (deleted_at, created_at);
+
+-- Shared-document counts and listings
+CREATE INDEX idx_documents_visibility_deleted ON documents (visibility, deleted_at);
+
+-- Folder contents
+CREATE INDEX idx_documents_parent_folder ON documents (parent_folder_id);
+
+-- Download and storage lookups by stored object key
+CREATE INDEX idx_documents_file_url ON documents (file_url);
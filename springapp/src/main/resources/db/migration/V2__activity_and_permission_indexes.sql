@@ -0,0 +1,8 @@
+-- Activity feeds are read per document, per user and site-wide, always newest first
+CREATE INDEX idx_activity_log_document_timestamp ON activity_log (document_id, timestamp);
+CREATE INDEX idx_activity_log_user_timestamp ON activity_log (user_id, timestamp);
+CREATE INDEX idx_activity_log_timestamp ON activity_log (timestamp);
+
+-- Permission checks look up one (document, user) pair; "shared with me" goes by user
+CREATE INDEX idx_document_permissions_document_user ON document_permissions (document_id, user_id);
+CREATE INDEX idx_document_permissions_user ON document_permissions (user_id);
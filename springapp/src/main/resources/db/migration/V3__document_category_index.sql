@@ -0,0 +1,2 @@
+-- Category folders: a category's active documents newest first, and their counts
+CREATE INDEX idx_documents_category_deleted_created ON documents (category, deleted_at, created_at);
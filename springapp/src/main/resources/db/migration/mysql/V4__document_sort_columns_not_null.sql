@@ -0,0 +1,17 @@
+-- Keyset pagination orders by these columns as they are, which only seeks when they
+-- cannot be null. Rows written before the entity filled them in are backfilled first.
+UPDATE documents SET title = COALESCE(file_name, '') WHERE title IS NULL;
+UPDATE documents SET size = 0 WHERE size IS NULL;
+UPDATE documents SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL;
+UPDATE documents SET updated_at = created_at WHERE updated_at IS NULL;
+
+ALTER TABLE documents MODIFY COLUMN title VARCHAR(255) NOT NULL;
+ALTER TABLE documents MODIFY COLUMN size BIGINT NOT NULL;
+ALTER TABLE documents MODIFY COLUMN created_at DATETIME(6) NOT NULL;
+ALTER TABLE documents MODIFY COLUMN updated_at DATETIME(6) NOT NULL;
+
+-- Seek paths for the remaining cursor sort columns; created_at is covered by V1 and
+-- id by the primary key. InnoDB appends the id to each, which breaks ties.
+CREATE INDEX idx_documents_deleted_updated ON documents (deleted_at, updated_at);
+CREATE INDEX idx_documents_deleted_title ON documents (deleted_at, title);
+CREATE INDEX idx_documents_deleted_size ON documents (deleted_at, size);
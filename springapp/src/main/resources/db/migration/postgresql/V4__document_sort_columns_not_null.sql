@@ -0,0 +1,17 @@
+-- Keyset pagination orders by these columns as they are, which only seeks when they
+-- cannot be null. Rows written before the entity filled them in are backfilled first.
+UPDATE documents SET title = COALESCE(file_name, '') WHERE title IS NULL;
+UPDATE documents SET size = 0 WHERE size IS NULL;
+UPDATE documents SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL;
+UPDATE documents SET updated_at = created_at WHERE updated_at IS NULL;
+
+ALTER TABLE documents ALTER COLUMN title SET NOT NULL;
+ALTER TABLE documents ALTER COLUMN size SET NOT NULL;
+ALTER TABLE documents ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE documents ALTER COLUMN updated_at SET NOT NULL;
+
+-- Seek paths for the remaining cursor sort columns; created_at is covered by V1 and
+-- id by the primary key. The id breaks ties in the cursor, so it is the last column.
+CREATE INDEX idx_documents_deleted_updated ON documents (deleted_at, updated_at, id);
+CREATE INDEX idx_documents_deleted_title ON documents (deleted_at, title, id);
+CREATE INDEX idx_documents_deleted_size ON documents (deleted_at, size, id);
@@ -57,7 +57,8 @@ class DocumentManagementSystemApplicationTests {
 
     @Test
     void day1_testGetAllDocuments() throws Exception {
-        Page<Document> mockPage = new org.springframework.data.domain.PageImpl<>(List.of(sampleDoc));
+        Page<com.examly.springapp.dto.DocumentListItemDTO> mockPage = new org.springframework.data.domain.PageImpl<>(
+                List.of(new com.examly.springapp.dto.DocumentListItemDTO(sampleDoc)));
         Mockito.when(documentService.getAllDocuments(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyString(), Mockito.any()))
                 .thenReturn(mockPage);
 
@@ -0,0 +1,57 @@
+package com.examly.springapp.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedCacheStorageTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntryWhenFull() {
+        BoundedCacheStorage storage = new BoundedCacheStorage("test", 2, 0, now::get);
+        storage.putIntoCache("a", 1, null);
+        storage.putIntoCache("b", 2, null);
+        storage.getFromCache("a", null);
+
+        storage.putIntoCache("c", 3, null);
+
+        assertEquals(1, storage.getFromCache("a", null));
+        assertNull(storage.getFromCache("b", null));
+        assertEquals(3, storage.getFromCache("c", null));
+        assertEquals(2, storage.getSize());
+        assertEquals(1, storage.getEvictions());
+    }
+
+    @Test
+    void expiresEntriesAfterTheTtl() {
+        BoundedCacheStorage storage = new BoundedCacheStorage("test", 0, 60, now::get);
+        storage.putIntoCache("a", 1, null);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertEquals(1, storage.getFromCache("a", null));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(storage.getFromCache("a", null));
+        assertEquals(1, storage.getExpirations());
+        assertEquals(0, storage.getSize());
+    }
+
+    @Test
+    void reportsTheHitRatio() {
+        BoundedCacheStorage storage = new BoundedCacheStorage("test", 0, 0, now::get);
+        storage.putIntoCache("a", 1, null);
+
+        storage.getFromCache("a", null);
+        storage.getFromCache("a", null);
+        storage.getFromCache("a", null);
+        storage.getFromCache("b", null);
+
+        assertEquals(0.75, storage.getHitRatio());
+    }
+}
@@ -0,0 +1,66 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.ratelimit.TokenBucketTable;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Which address an anonymous caller is limited by.
+ */
+class RateLimitingFilterTest {
+
+    private static final String PROXY = "10.0.0.1";
+    private static final String CLIENT = "198.51.100.7";
+
+    @Test
+    void forwardingHeadersFromUntrustedPeersAreIgnored() {
+        RateLimitingConfig.RateLimitingFilter filter = filter(PROXY);
+        MockHttpServletRequest request = request(CLIENT);
+        request.addHeader("X-Forwarded-For", "203.0.113.1");
+        request.addHeader("X-Real-IP", "203.0.113.2");
+
+        assertEquals(hash(CLIENT), filter.clientIpHash(request));
+    }
+
+    @Test
+    void noProxyIsTrustedByDefault() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("X-Forwarded-For", CLIENT);
+
+        assertEquals(hash(PROXY), filter("").clientIpHash(request));
+    }
+
+    @Test
+    void clientIsTheLastUntrustedForwardedAddress() {
+        MockHttpServletRequest request = request(PROXY);
+        // The client made up the first entry; the proxies appended the rest
+        request.addHeader("X-Forwarded-For", "203.0.113.1, " + CLIENT + " , 10.0.0.2");
+
+        assertEquals(hash(CLIENT), filter(PROXY + ", 10.0.0.2").clientIpHash(request));
+    }
+
+    @Test
+    void realIpIsUsedFromATrustedProxyWithoutForwardedFor() {
+        MockHttpServletRequest request = request(PROXY);
+        request.addHeader("X-Real-IP", CLIENT);
+
+        assertEquals(hash(CLIENT), filter(PROXY).clientIpHash(request));
+    }
+
+    private static RateLimitingConfig.RateLimitingFilter filter(String trustedProxies) {
+        return new RateLimitingConfig.RateLimitingFilter(true, new RateLimitingConfig.RouteGroup[0], null,
+                trustedProxies.split(","));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/documents");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static long hash(String address) {
+        return TokenBucketTable.hash(address, 0, address.length());
+    }
+}
@@ -0,0 +1,76 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.support.JpaSliceTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * The PostgreSQL scripts, run against H2, which takes their syntax as well.
+ */
+@JpaSliceTest
+@Import(SchemaMigrations.class)
+@TestPropertySource(properties = "schema.migrations.vendor=postgresql")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SchemaMigrationsTest {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private SchemaMigrations schemaMigrations;
+
+    @Test
+    void vendorScriptsAreAppliedAfterTheSharedOnes() {
+        assertEquals(List.of(1, 2, 3, 4),
+                jdbc.queryForList("SELECT version FROM schema_migrations ORDER BY version", Integer.class));
+        assertEquals("NO", jdbc.queryForObject("SELECT IS_NULLABLE FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE LOWER(TABLE_NAME) = 'documents' AND LOWER(COLUMN_NAME) = 'title'", String.class));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES "
+                + "WHERE LOWER(INDEX_NAME) = 'idx_documents_deleted_title'", Integer.class));
+    }
+
+    @Test
+    void partlyAppliedScriptRunsAgainOnTheNextStart() throws Exception {
+        // V4 failed after creating its first index: the others and the record are missing
+        jdbc.execute("DROP INDEX idx_documents_deleted_title");
+        jdbc.execute("DROP INDEX idx_documents_deleted_size");
+        jdbc.update("DELETE FROM schema_migrations WHERE version = 4");
+
+        schemaMigrations.migrate();
+
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM schema_migrations WHERE version = 4", Integer.class));
+        assertEquals(3, jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES "
+                + "WHERE LOWER(INDEX_NAME) IN ('idx_documents_deleted_updated', 'idx_documents_deleted_title', "
+                + "'idx_documents_deleted_size')", Integer.class));
+    }
+
+    @Test
+    void everyDatabaseHasTheSameVendorVersions() throws Exception {
+        Set<String> mysql = scriptNames("mysql");
+        assertFalse(mysql.isEmpty());
+        assertEquals(mysql, scriptNames("postgresql"));
+    }
+
+    private static Set<String> scriptNames(String database) throws Exception {
+        Set<String> names = new TreeSet<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver()
+                .getResources("classpath:db/migration/" + database + "/V*__*.sql")) {
+            names.add(resource.getFilename());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,74 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.support.ApplicationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Streaming endpoints get the timeout from their {@code @AsyncTimeout}, the 30 minute
+ * defaults in application.properties, not the container's.
+ */
+@ApplicationTest
+class AsyncTimeoutTest {
+
+    private static final long THIRTY_MINUTES = Duration.ofMinutes(30).toMillis();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void exportStreamsWithItsOwnTimeout() throws Exception {
+        upload("Exported inventory");
+
+        MvcResult started = mockMvc.perform(get("/api/admin/documents/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(THIRTY_MINUTES, started.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"title\":\"Exported inventory\"")));
+    }
+
+    @Test
+    void unknownExportFormatIsRejected() throws Exception {
+        mockMvc.perform(get("/api/admin/documents/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void downloadStreamsWithItsOwnTimeout() throws Exception {
+        String id = upload("Downloaded");
+
+        MvcResult started = mockMvc.perform(get("/api/documents/" + id + "/download"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(THIRTY_MINUTES, started.getRequest().getAsyncContext().getTimeout());
+    }
+
+    private String upload(String title) throws Exception {
+        String response = mockMvc.perform(multipart("/api/documents/upload")
+                        .file(new MockMultipartFile("file", "file.pdf", "application/pdf",
+                                "%PDF-1.4 content".getBytes(StandardCharsets.UTF_8)))
+                        .param("title", title))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return response.replaceAll("(?s).*?\"id\":(\\d+).*", "$1");
+    }
+}
@@ -0,0 +1,58 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.support.ApplicationTest;
+import com.examly.springapp.support.TestUsers;
+import com.examly.springapp.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ApplicationTest
+class AsyncUploadJobTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void onlyTheUploaderCanSeeTheJob() throws Exception {
+        User owner = TestUsers.save(userRepository);
+        User other = TestUsers.save(userRepository);
+
+        String response = mockMvc.perform(multipart("/api/documents/upload/async")
+                        .file(new MockMultipartFile("file", "notes.pdf", "application/pdf", "content".getBytes()))
+                        .param("title", "Notes")
+                        .header("Authorization", bearer(owner)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.progressTopic").value("/user/queue/uploads"))
+                .andReturn().getResponse().getContentAsString();
+        String statusUrl = objectMapper.readTree(response).get("statusUrl").asText();
+
+        mockMvc.perform(get(statusUrl).header("Authorization", bearer(owner)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fileName").value("notes.pdf"));
+        mockMvc.perform(get(statusUrl).header("Authorization", bearer(other)))
+                .andExpect(status().isNotFound());
+    }
+
+    private String bearer(User user) {
+        return "Bearer " + jwtUtil.generateToken(user);
+    }
+}
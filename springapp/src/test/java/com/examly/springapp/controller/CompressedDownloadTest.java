@@ -0,0 +1,142 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.support.ApplicationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Text is stored gzip-encoded under a key of its own, and goes out either as stored
+ * or decoded depending on what the client accepts.
+ */
+@ApplicationTest
+class CompressedDownloadTest {
+
+    private static final String BOUNDARY = "compressed-download-test";
+    private static final String CONTENT = "line of text that compresses well\n".repeat(200);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void compressibleUploadIsStoredUnderAGzipKey() throws Exception {
+        assertTrue(upload("text/plain").get("fileUrl").asText().endsWith(".gz"));
+        assertTrue(uploadStream("text/csv").get("fileUrl").asText().endsWith(".gz"));
+        assertFalse(upload("application/pdf").get("fileUrl").asText().endsWith(".gz"));
+    }
+
+    @Test
+    void clientWithoutGzipGetsTheDecodedDocument() throws Exception {
+        download(get(downloadUrl(upload("text/plain"))))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Accept-Ranges", "none"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void clientAcceptingGzipGetsTheStoredBytes() throws Exception {
+        byte[] body = download(get(downloadUrl(upload("text/plain"))).header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Accept-Ranges", "none"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertTrue(body.length < CONTENT.length(), "Sent " + body.length + " bytes");
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), gunzip(body));
+    }
+
+    @Test
+    void streamedUploadRoundTrips() throws Exception {
+        JsonNode document = uploadStream("text/csv");
+
+        download(get(downloadUrl(document)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+        byte[] body = download(get(downloadUrl(document)).header("Accept-Encoding", "gzip"))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), gunzip(body));
+    }
+
+    @Test
+    void uncompressedDocumentOffersRanges() throws Exception {
+        download(get(downloadUrl(upload("application/pdf"))).header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Accept-Ranges", "bytes"));
+    }
+
+    private ResultActions download(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private JsonNode upload(String contentType) throws Exception {
+        String response = mockMvc.perform(multipart("/api/documents/upload")
+                        .file(new MockMultipartFile("file", "file", contentType,
+                                CONTENT.getBytes(StandardCharsets.UTF_8)))
+                        .param("title", "Compressed"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private JsonNode uploadStream(String contentType) throws Exception {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "Compressed\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"file\"\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n"
+                + CONTENT + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        String response = mockMvc.perform(post("/api/documents/upload/stream")
+                        .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                        .content(body.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private static String downloadUrl(JsonNode document) {
+        return "/api/documents/" + document.get("id").asLong() + "/download";
+    }
+
+    private static byte[] gunzip(byte[] body) throws Exception {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
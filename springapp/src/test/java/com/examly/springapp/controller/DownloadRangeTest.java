@@ -0,0 +1,123 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.support.ApplicationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Every case where a request carries a Range header but the whole document is sent
+ * must answer 200 with the full body.
+ */
+@ApplicationTest
+class DownloadRangeTest {
+
+    private static final String CONTENT = "%PDF-1.4 0123456789";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void singleRangeIsPartial() throws Exception {
+        download(get(downloadUrl(upload("application/pdf"))).header("Range", "bytes=0-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 0-3/" + CONTENT.length()))
+                .andExpect(content().string("%PDF"));
+    }
+
+    @Test
+    void severalRangesArePartsOfOneResponse() throws Exception {
+        download(get(downloadUrl(upload("application/pdf"))).header("Range", "bytes=0-1,4-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Type", org.hamcrest.Matchers.startsWith("multipart/byteranges")))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("Content-Range: bytes 4-5/" + CONTENT.length())));
+    }
+
+    @Test
+    void mismatchedIfRangeGetsTheWholeDocument() throws Exception {
+        fullBody(get(downloadUrl(upload("application/pdf")))
+                .header("Range", "bytes=0-3")
+                .header("If-Range", "\"some-other-version\""));
+    }
+
+    @Test
+    void weakIfRangeGetsTheWholeDocument() throws Exception {
+        fullBody(get(downloadUrl(upload("application/pdf")))
+                .header("Range", "bytes=0-3")
+                .header("If-Range", "W/\"weak\""));
+    }
+
+    @Test
+    void malformedRangeIsIgnored() throws Exception {
+        fullBody(get(downloadUrl(upload("application/pdf"))).header("Range", "bytes=three-four"));
+    }
+
+    @Test
+    void rangesCoveringTheWholeDocumentGetOneBody() throws Exception {
+        fullBody(get(downloadUrl(upload("application/pdf"))).header("Range", "bytes=0-9,10-"));
+    }
+
+    @Test
+    void compressedDocumentIgnoresRange() throws Exception {
+        fullBody(get(downloadUrl(upload("text/plain"))).header("Range", "bytes=0-3"));
+    }
+
+    @Test
+    void storedObjectIgnoresMultipleRanges() throws Exception {
+        JsonNode document = upload("application/pdf");
+        fullBody(get("/api/storage/objects/" + document.get("fileUrl").asText()).header("Range", "bytes=0-1,4-5"));
+    }
+
+    @Test
+    void compressedStoredObjectIgnoresRange() throws Exception {
+        JsonNode document = upload("text/plain");
+        fullBody(get("/api/storage/objects/" + document.get("fileUrl").asText()).header("Range", "bytes=0-3"));
+    }
+
+    private void fullBody(MockHttpServletRequestBuilder request) throws Exception {
+        download(request)
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Range"))
+                .andExpect(content().string(CONTENT));
+    }
+
+    private ResultActions download(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private JsonNode upload(String contentType) throws Exception {
+        String response = mockMvc.perform(multipart("/api/documents/upload")
+                        .file(new MockMultipartFile("file", "file", contentType,
+                                CONTENT.getBytes(StandardCharsets.UTF_8)))
+                        .param("title", "Ranges"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private static String downloadUrl(JsonNode document) {
+        return "/api/documents/" + document.get("id").asLong() + "/download";
+    }
+}
@@ -0,0 +1,132 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.security.PasswordHashingService;
+import com.examly.springapp.support.ApplicationTest;
+import com.examly.springapp.support.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Logins while every password hashing thread is held busy. The logins the pool cannot
+ * take are turned away at once, and document listings are served meanwhile.
+ */
+@ApplicationTest
+@TestPropertySource(properties = {
+        "auth.bcrypt.strength=12",
+        "auth.hashing.threads=2",
+        "auth.hashing.queue-capacity=4"
+})
+class LoginBurstLoadTest {
+
+    private static final int HASHING_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @MockitoSpyBean
+    private BCryptPasswordEncoder passwordEncoder;
+
+    @Test
+    void loginsBeyondTheHashingPoolAreTurnedAwayWhileListingsAreServed() throws Exception {
+        String email = uniqueEmail();
+        TestUsers.save(userRepository, email, passwordEncoder.encode("secret"));
+        CountDownLatch hashing = new CountDownLatch(HASHING_THREADS);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            hashing.countDown();
+            release.await(1, TimeUnit.MINUTES);
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).matches(any(), anyString());
+
+        // Fill the pool: one login per hashing thread, blocked, and a full queue behind them
+        int admitted = HASHING_THREADS + QUEUE_CAPACITY;
+        ExecutorService callers = Executors.newFixedThreadPool(admitted);
+        List<Future<ResultActions>> logins = new ArrayList<>();
+        try {
+            for (int i = 0; i < admitted; i++) {
+                logins.add(callers.submit(() -> login(email)));
+            }
+            assertTrue(hashing.await(1, TimeUnit.MINUTES), "Hashing threads never started");
+            awaitFullQueue();
+
+            for (int i = 0; i < 10; i++) {
+                login(email)
+                        .andExpect(status().isServiceUnavailable())
+                        .andExpect(header().string("Retry-After", "1"));
+                mockMvc.perform(get("/api/documents")).andExpect(status().isOk());
+            }
+        } finally {
+            release.countDown();
+            callers.shutdown();
+        }
+        for (Future<ResultActions> login : logins) {
+            login.get(1, TimeUnit.MINUTES).andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void loginRehashesPasswordsHashedAtALowerStrength() throws Exception {
+        String email = uniqueEmail();
+        TestUsers.save(userRepository, email, new BCryptPasswordEncoder(4).encode("secret"));
+
+        login(email).andExpect(status().isOk());
+
+        String hash = userRepository.findByEmail(email).orElseThrow().getPasswordHash();
+        assertTrue(hash.startsWith("$2a$12$"), hash);
+        login(email).andExpect(status().isOk());
+    }
+
+    private void awaitFullQueue() throws InterruptedException {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordHashingService,
+                "executor");
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (executor.getQueue().remainingCapacity() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(QUEUE_CAPACITY, executor.getQueue().size());
+    }
+
+    private ResultActions login(String email) throws Exception {
+        return mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"password\":\"secret\"}"));
+    }
+
+    private static String uniqueEmail() {
+        return "burst-" + System.nanoTime() + "@example.com";
+    }
+}
@@ -0,0 +1,43 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.storage.StorageBackend;
+import com.examly.springapp.support.ApplicationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ApplicationTest
+class StorageControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Test
+    void downloadNameIsEncodedIntoTheHeader() throws Exception {
+        storageBackend.putObject("named", new ByteArrayInputStream(new byte[1]), 1, "application/pdf");
+
+        String name = "résumé\"; x=\"y.pdf";
+        MvcResult started = mockMvc.perform(get("/api/storage/objects/named").param("download", name))
+                .andReturn();
+        String disposition = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Content-Disposition");
+
+        ContentDisposition parsed = ContentDisposition.parse(disposition);
+        assertTrue(parsed.isAttachment());
+        assertEquals(name, parsed.getFilename());
+    }
+}
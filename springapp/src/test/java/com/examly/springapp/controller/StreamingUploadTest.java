@@ -0,0 +1,67 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.support.ApplicationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The streaming upload reads the multipart body itself, so these requests carry a raw
+ * body rather than MockMvc's pre-parsed parts.
+ */
+@ApplicationTest
+class StreamingUploadTest {
+
+    private static final String BOUNDARY = "streaming-upload-test";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void storesTheFileUnderItsTitle() throws Exception {
+        mockMvc.perform(post("/api/documents/upload/stream")
+                        .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                        .content(body("Quarterly report", "report.pdf")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Quarterly report"))
+                .andExpect(jsonPath("$.fileName").value("report.pdf"));
+    }
+
+    @Test
+    void keepsMultiByteCharactersWhole() throws Exception {
+        String title = "é".repeat(255);
+
+        mockMvc.perform(post("/api/documents/upload/stream")
+                        .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                        .content(body(title, "accents.pdf")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value(title));
+    }
+
+    @Test
+    void rejectsTitlesLongerThanTheColumn() throws Exception {
+        mockMvc.perform(post("/api/documents/upload/stream")
+                        .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                        .content(body("x".repeat(256), "long.pdf")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Upload failed: Title must be at most 255 characters"));
+    }
+
+    private static byte[] body(String title, String fileName) {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + title + "\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n"
+                + "%PDF-1.4 test content\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.service.DocumentService;
+import com.examly.springapp.storage.StorageBackend;
+import com.examly.springapp.support.ApplicationTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * An upload whose document is not recorded leaves nothing behind in storage.
+ */
+@ApplicationTest
+class UploadCleanupTest {
+
+    private static final String BOUNDARY = "upload-cleanup-test";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @MockitoSpyBean
+    private DocumentService documentService;
+
+    @Test
+    void formUploadRejectsTitlesLongerThanTheColumn() throws Exception {
+        List<String> before = storageBackend.listObjects(null);
+
+        mockMvc.perform(multipart("/api/documents/upload")
+                        .file(new MockMultipartFile("file", "long.pdf", "application/pdf", uniqueContent()))
+                        .param("title", "x".repeat(256)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Upload failed: Title must be at most 255 characters"));
+
+        assertEquals(before, storageBackend.listObjects(null));
+    }
+
+    @Test
+    void formUploadDeletesTheObjectWhenRecordingFails() throws Exception {
+        failRecording();
+        List<String> before = storageBackend.listObjects(null);
+
+        mockMvc.perform(multipart("/api/documents/upload")
+                        .file(new MockMultipartFile("file", "report.pdf", "application/pdf", uniqueContent()))
+                        .param("title", "Report"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(before, storageBackend.listObjects(null));
+    }
+
+    @Test
+    void streamingUploadDeletesTheObjectWhenRecordingFails() throws Exception {
+        failRecording();
+        List<String> before = storageBackend.listObjects(null);
+
+        mockMvc.perform(post("/api/documents/upload/stream")
+                        .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                        .content(streamedBody()))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(before, storageBackend.listObjects(null));
+    }
+
+    private void failRecording() {
+        doThrow(new IllegalStateException("Database unavailable"))
+                .when(documentService).recordUpload(anyLong(), anyString(), anyString(), anyString(), anyLong(),
+                        anyString(), any(), any());
+    }
+
+    private static byte[] streamedBody() {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                + "Report\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"report.pdf\"\r\n"
+                + "Content-Type: application/pdf\r\n\r\n"
+                + new String(uniqueContent(), StandardCharsets.UTF_8) + "\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Content-addressed, so content no other test uploads is the only reference to its object
+    private static byte[] uniqueContent() {
+        return ("%PDF-1.4 " + System.nanoTime()).getBytes(StandardCharsets.UTF_8);
+    }
+}
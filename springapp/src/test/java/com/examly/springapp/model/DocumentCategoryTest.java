@@ -0,0 +1,37 @@
+package com.examly.springapp.model;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DocumentCategoryTest {
+
+    @ParameterizedTest(name = "{0} / {1} is {2}")
+    @CsvSource(nullValues = "null", value = {
+            // The MIME type decides when it is specific
+            "image/png,                  clip.mp4,     IMAGE",
+            "Image/JPEG; charset=binary, null,         IMAGE",
+            "video/mp4,                  null,         VIDEO",
+            "audio/mpeg,                 null,         AUDIO",
+            "text/plain,                 null,         DOCUMENT",
+            "application/pdf,            null,         DOCUMENT",
+            "application/msword,         null,         DOCUMENT",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document, null, DOCUMENT",
+            "application/vnd.oasis.opendocument.spreadsheet, null, DOCUMENT",
+            // Otherwise the file name's last extension, in any case
+            "application/octet-stream,   photo.JPG,    IMAGE",
+            "application/octet-stream,   movie.mkv,    VIDEO",
+            "null,                       song.flac,    AUDIO",
+            "'',                         report.docx,  DOCUMENT",
+            "application/zip,            notes.tar.md, DOCUMENT",
+            // And neither
+            "application/zip,            archive.zip,  OTHER",
+            "application/octet-stream,   README,       OTHER",
+            "application/octet-stream,   trailing.,    OTHER",
+            "null,                       null,         OTHER"
+    })
+    void categoryComesFromTheTypeThenTheExtension(String mimeType, String fileName, Document.Category expected) {
+        assertEquals(expected, Document.Category.of(mimeType, fileName));
+    }
+}
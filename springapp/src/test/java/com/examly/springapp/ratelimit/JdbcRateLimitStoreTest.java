@@ -0,0 +1,143 @@
+package com.examly.springapp.ratelimit;
+
+import com.examly.springapp.repository.RateLimitCounterRepository;
+import com.examly.springapp.support.JpaSliceTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Several nodes, each with its own {@link JdbcRateLimitStore}, count one bucket in the
+ * same database. H2 in MySQL mode stands in for the shared MySQL instance.
+ */
+@JpaSliceTest
+@ExtendWith(OutputCaptureExtension.class)
+// Each node commits its own statements, as it would against the real database
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JdbcRateLimitStoreTest {
+
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("test", 0, 100, 100);
+
+    @Autowired
+    private RateLimitCounterRepository counterRepository;
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toMillis(20000));
+
+    @Test
+    void nodesShareOneLimit() throws Exception {
+        long key = TokenBucketTable.key(POLICY, true, 1);
+        List<JdbcRateLimitStore> nodes = nodes(3, 1);
+
+        assertEquals(POLICY.getPerMinute(), hammer(nodes, key, 8, 100));
+        assertEquals(POLICY.getPerMinute(), counterRepository.findById(key).orElseThrow().getUsed());
+    }
+
+    @Test
+    void leasesNeverExceedTheLimitAndSaveRoundTrips() throws Exception {
+        long key = TokenBucketTable.key(POLICY, true, 2);
+        List<JdbcRateLimitStore> nodes = nodes(3, 20);
+
+        int allowed = hammer(nodes, key, 8, 100);
+
+        assertTrue(allowed <= POLICY.getPerMinute(), "Allowed " + allowed);
+        // Unused leases are the only shortfall: at most lease-size - 1 per node
+        assertTrue(allowed >= POLICY.getPerMinute() - 3 * 19, "Allowed " + allowed);
+        long roundTrips = nodes.stream().mapToLong(JdbcRateLimitStore::getStoreRequests).sum();
+        assertTrue(roundTrips < allowed / 5, roundTrips + " round trips for " + allowed + " requests");
+    }
+
+    @Test
+    void theCountStartsAgainInTheNextWindow() {
+        long key = TokenBucketTable.key(POLICY, true, 3);
+        JdbcRateLimitStore node = nodes(1, 1).get(0);
+        for (int i = 0; i < POLICY.getPerMinute(); i++) {
+            assertEquals(0, node.tryAcquire(key, POLICY));
+        }
+        long wait = node.tryAcquire(key, POLICY);
+        assertTrue(wait > 0 && wait <= TimeUnit.MINUTES.toNanos(1));
+
+        clock.addAndGet(JdbcRateLimitStore.WINDOW_MS);
+
+        assertEquals(0, nodes(1, 1).get(0).tryAcquire(key, POLICY));
+        assertEquals(0, node.tryAcquire(key, POLICY));
+        assertEquals(2, counterRepository.findById(key).orElseThrow().getUsed());
+    }
+
+    @Test
+    void fullWindowIsNotAnError(CapturedOutput output) {
+        long key = TokenBucketTable.key(POLICY, true, 4);
+        JdbcRateLimitStore node = nodes(1, 20).get(0);
+        while (node.tryAcquire(key, POLICY) == 0) {
+            // Use up the window
+        }
+
+        // A node that has not seen the bucket yet finds the row and the window full
+        assertTrue(nodes(1, 20).get(0).tryAcquire(key, POLICY) > 0);
+        assertEquals(POLICY.getPerMinute(), counterRepository.findById(key).orElseThrow().getUsed());
+        assertFalse(output.getAll().contains("primary key violation"), "Duplicate key was logged");
+    }
+
+    @Test
+    void bucketRowIsCreatedOnce() {
+        long key = TokenBucketTable.key(POLICY, true, 5);
+
+        assertTrue(counterRepository.createIfAbsent(key, clock.get()));
+        assertFalse(counterRepository.createIfAbsent(key, clock.get() + JdbcRateLimitStore.WINDOW_MS));
+
+        assertEquals(clock.get(), counterRepository.findById(key).orElseThrow().getWindowStart());
+    }
+
+    private List<JdbcRateLimitStore> nodes(int count, int leaseSize) {
+        List<JdbcRateLimitStore> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add(new JdbcRateLimitStore(counterRepository, leaseSize, clock::get));
+        }
+        return nodes;
+    }
+
+    /**
+     * @return how many of {@code threads * attempts} requests were allowed
+     */
+    private int hammer(List<JdbcRateLimitStore> nodes, long key, int threads, int attempts) throws Exception {
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            JdbcRateLimitStore node = nodes.get(t % nodes.size());
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attempts; i++) {
+                    if (node.tryAcquire(key, POLICY) == 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+        return allowed.get();
+    }
+}
@@ -0,0 +1,133 @@
+package com.examly.springapp.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The table is driven by explicit times, so refill and eviction need no waiting.
+ */
+class TokenBucketTableTest {
+
+    // One token a second, five at once
+    private static final RateLimitPolicy POLICY = new RateLimitPolicy("test", 0, 60, 5);
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final long NOW = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void burstIsAllowedThenRefused() {
+        TokenBucketTable table = new TokenBucketTable(1024, 4);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, table.tryAcquire(42, POLICY, NOW));
+        }
+
+        assertEquals(INTERVAL, table.tryAcquire(42, POLICY, NOW));
+        // Refusing takes no token
+        assertEquals(INTERVAL / 2, table.tryAcquire(42, POLICY, NOW + INTERVAL / 2));
+    }
+
+    @Test
+    void tokensRefillOverTime() {
+        TokenBucketTable table = new TokenBucketTable(1024, 4);
+        drain(table, 42, NOW);
+
+        assertEquals(0, table.tryAcquire(42, POLICY, NOW + INTERVAL));
+        assertTrue(table.tryAcquire(42, POLICY, NOW + INTERVAL) > 0);
+
+        // Full again, but no fuller
+        long later = NOW + 60 * INTERVAL;
+        assertEquals(5, drain(table, 42, later));
+    }
+
+    @Test
+    void callersHaveBucketsOfTheirOwn() {
+        TokenBucketTable table = new TokenBucketTable(1024, 4);
+        drain(table, 42, NOW);
+
+        assertEquals(0, table.tryAcquire(43, POLICY, NOW));
+        assertEquals(0, table.tryAcquire(TokenBucketTable.key(POLICY, true, 42), POLICY, NOW));
+    }
+
+    @Test
+    void onlyFullBucketsAreEvicted() {
+        TokenBucketTable table = new TokenBucketTable(1024, 4);
+        drain(table, 42, NOW);
+
+        assertEquals(0, table.evictIdle(NOW + 4 * INTERVAL));
+        assertEquals(0, table.tryAcquire(42, POLICY, NOW + 4 * INTERVAL));
+        assertEquals(1, table.evictIdle(NOW + 6 * INTERVAL));
+
+        // An evicted bucket is as good as full
+        assertEquals(5, drain(table, 42, NOW + 6 * INTERVAL));
+    }
+
+    @Test
+    void fullWindowGivesUpTheBucketClosestToFull() {
+        // One stripe of one window, so every key competes for the same slots
+        TokenBucketTable table = new TokenBucketTable(TokenBucketTable.WINDOW, 1);
+        for (int key = 1; key <= TokenBucketTable.WINDOW; key++) {
+            drain(table, key, NOW + key);
+        }
+        assertEquals(0, table.getDisplaced());
+
+        assertEquals(0, table.tryAcquire(100, POLICY, NOW + 100));
+
+        assertEquals(1, table.getDisplaced());
+        // The others keep their state
+        for (int key = 2; key <= TokenBucketTable.WINDOW; key++) {
+            assertTrue(table.tryAcquire(key, POLICY, NOW + 100) > 0, "Bucket " + key);
+        }
+        assertEquals(1, table.getDisplaced());
+    }
+
+    @Test
+    void concurrentCallersNeverTakeMoreThanTheBurst() throws Exception {
+        RateLimitPolicy policy = new RateLimitPolicy("test", 0, 60, 100);
+        TokenBucketTable table = new TokenBucketTable(1024, 4);
+        int threads = 8;
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> callers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            callers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    if (table.tryAcquire(42, policy, NOW) == 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> caller : callers) {
+            caller.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertEquals(100, allowed.get());
+    }
+
+    /**
+     * @return how many requests were allowed before the first refusal
+     */
+    private static int drain(TokenBucketTable table, long key, long now) {
+        int allowed = 0;
+        while (table.tryAcquire(key, POLICY, now) == 0) {
+            allowed++;
+        }
+        return allowed;
+    }
+}
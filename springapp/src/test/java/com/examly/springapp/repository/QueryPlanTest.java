@@ -0,0 +1,315 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.config.SchemaMigrations;
+import com.examly.springapp.model.Document;
+import com.examly.springapp.support.JpaSliceTest;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every query the document, activity and permission repositories declare, and the
+ * keyset listings built from {@link DocumentSpecifications}, against an H2 schema with
+ * the migrations applied, and fails if EXPLAIN shows any of them scanning a whole table. Adding a query without an index to serve it, or dropping an
+ * index a query relies on, fails here rather than in production.
+ */
+@JpaSliceTest
+@Import(SchemaMigrations.class)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.examly.springapp.repository.QueryPlanTest$RecordingInspector"
+})
+class QueryPlanTest {
+
+    // Queries that scan on purpose, with the reason
+    private static final Map<String, String> EXPECTED_SCANS = Map.ofEntries(
+            Map.entry("DocumentRepository.existsByFileUrlContaining",
+                    "nightly orphan sweep of the legacy upload directory; matches a file name anywhere in the URL"),
+            Map.entry("DocumentRepository.findByDeletedAtIsNotNull",
+                    "H2 cannot seek an index on IS NOT NULL; MySQL and PostgreSQL range-scan idx_documents_deleted_created"),
+            Map.entry("DocumentRepository.aggregateStatsByOwner",
+                    "hourly document_stats reconciliation; recounts every row by design"),
+            Map.entry("DocumentRepository.findAdminItemsByDeletedAtIsNull",
+                    "admin document list; returns every active document"),
+            Map.entry("DocumentRepository.findAllActiveDocuments",
+                    "returns every active document"),
+            Map.entry("DocumentRepository.findByDeletedAtIsNull",
+                    "getAllActiveDocuments returns every active document; the paged overload counts them all"),
+            Map.entry("DocumentRepository.countByDeletedAtIsNull",
+                    "search index startup check against the number of active documents"),
+            Map.entry("DocumentRepository.findListItemsByDeletedAtIsNull",
+                    "offset listing counts every active document for the page total; cursor mode counts nothing"),
+            Map.entry("DocumentRepository.findListItemsByTitleLike",
+                    "database search while the search index loads; a leading-wildcard LIKE cannot seek"),
+            Map.entry("DocumentRepository.findByTitleContainingIgnoreCaseAndDeletedAtIsNull",
+                    "a leading-wildcard LIKE cannot seek"),
+            Map.entry("DocumentRepository.findByOwnerIdAndTitleContainingIgnoreCaseAndDeletedAtIsNull",
+                    "owner's database search while the search index loads; LIKE filters all of the owner's documents"),
+            Map.entry("DocumentSpecifications.titleContains",
+                    "cursor listing with a search term; LIKE filters the rows the seek yields"));
+
+    // The plan names the access path in a comment: "/* PUBLIC.DOCUMENTS.tableScan */" reads
+    // the table, "/* PUBLIC.IDX_X */" walks a whole index, "/* PUBLIC.IDX_X: A = ?1 */" seeks
+    private static final Pattern ACCESS_PATH = Pattern.compile("/\\* PUBLIC\\.(\\w+)(?:\\.tableScan)?(?:: (.*?))? \\*/");
+    private static final Pattern ORDER_BY = Pattern.compile(" ORDER BY (\\d+)");
+    // Most documents are active, so a seek on this alone narrows nothing down
+    private static final String ACTIVE = "DELETED_AT IS NULL";
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private ActivityLogRepository activityLogRepository;
+
+    @Autowired
+    private DocumentPermissionRepository documentPermissionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void documentQueriesUseIndexes() throws Exception {
+        assertNoTableScans(DocumentRepository.class, documentRepository);
+    }
+
+    @Test
+    void activityLogQueriesUseIndexes() throws Exception {
+        assertNoTableScans(ActivityLogRepository.class, activityLogRepository);
+    }
+
+    @Test
+    void documentPermissionQueriesUseIndexes() throws Exception {
+        assertNoTableScans(DocumentPermissionRepository.class, documentPermissionRepository);
+    }
+
+    /**
+     * The keyset listings, built as {@link com.examly.springapp.service.DocumentService#getDocumentsAfter} builds them:
+     * every cursor sort in both directions, first and later pages, for everyone and for
+     * one owner.
+     */
+    @Test
+    void cursorListingsUseIndexes() throws Exception {
+        List<String> failures = new ArrayList<>();
+        for (String sortBy : new TreeSet<>(DocumentSpecifications.CURSOR_SORT_COLUMNS)) {
+            for (boolean descending : new boolean[] { false, true }) {
+                for (Long ownerId : Arrays.asList(null, 1L)) {
+                    for (boolean firstPage : new boolean[] { true, false }) {
+                        Specification<Document> spec = Specification.where(DocumentSpecifications.isActive())
+                                .and(DocumentSpecifications.orderedAfter(sortBy, descending,
+                                        firstPage ? null : 1L, firstPage ? null : cursorValue(sortBy)));
+                        if (ownerId != null) {
+                            spec = spec.and(DocumentSpecifications.ownedBy(ownerId));
+                        }
+                        check("DocumentSpecifications.orderedAfter(" + sortBy + (descending ? " desc" : "")
+                                + (ownerId != null ? ", owner" : "") + (firstPage ? "" : ", after") + ")",
+                                listing(spec), failures);
+                    }
+                }
+            }
+        }
+        check("DocumentSpecifications.titleContains", listing(Specification.where(DocumentSpecifications.isActive())
+                .and(DocumentSpecifications.orderedAfter("createdAt", true, null, null))
+                .and(DocumentSpecifications.titleContains("report"))), failures);
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    private Callable<Object> listing(Specification<Document> spec) {
+        return () -> documentRepository.findBy(spec, query -> query.limit(11).all());
+    }
+
+    private void assertNoTableScans(Class<?> repositoryType, Object repository) throws Exception {
+        List<String> failures = new ArrayList<>();
+        Method[] methods = repositoryType.getDeclaredMethods();
+        Arrays.sort(methods, Comparator.comparing(Method::toGenericString));
+        int checked = 0;
+        for (Method method : methods) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            check(repositoryType.getSimpleName() + "." + method.getName(),
+                    () -> method.invoke(repository, arguments(method)), failures);
+            checked++;
+        }
+        assertTrue(checked > 0);
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    /**
+     * Runs the query and adds a failure if any statement it issues scans when it should
+     * not, or none does when it is expected to.
+     */
+    private void check(String name, Callable<Object> query, List<String> failures) throws Exception {
+        RecordingInspector.STATEMENTS.clear();
+        Object result = query.call();
+        if (result instanceof AutoCloseable stream) {
+            stream.close();
+        }
+        entityManager.flush();
+        List<String> statements = new ArrayList<>(RecordingInspector.STATEMENTS);
+        assertFalse(statements.isEmpty(), name + " ran no SQL");
+
+        List<String> scans = new ArrayList<>();
+        for (String sql : statements) {
+            String plan = explain(sql);
+            if (scansWholeTable(plan)) {
+                scans.add(plan);
+            }
+        }
+        if (!scans.isEmpty() && !EXPECTED_SCANS.containsKey(name)) {
+            failures.add(name + " scans a table:\n  " + String.join("\n  ", scans));
+        } else if (scans.isEmpty() && EXPECTED_SCANS.containsKey(name)) {
+            failures.add(name + " no longer scans; remove it from EXPECTED_SCANS");
+        }
+    }
+
+    /**
+     * Reads the access path from the plan. A seek counts as indexed when one of its key
+     * conditions narrows the rows down, so a seek on {@code deleted_at IS NULL} alone
+     * does not, and a LIKE left to filter the rows the seek yields means every one of
+     * them is read. An index read in order and cut off by a row limit, like the
+     * latest-N feeds and the keyset pages, only touches the rows it returns.
+     */
+    private boolean scansWholeTable(String plan) {
+        Matcher access = ACCESS_PATH.matcher(plan);
+        if (!access.find()) {
+            throw new IllegalStateException("No access path in plan: " + plan);
+        }
+        if (plan.contains(".tableScan")) {
+            return true;
+        }
+        String condition = access.group(2);
+        if (plan.contains(" LIKE ") && (condition == null || !condition.contains(" LIKE "))) {
+            return true;
+        }
+        boolean limited = plan.contains("FETCH FIRST") || plan.contains("FETCH NEXT");
+        if (condition == null) {
+            return !(limited && plan.contains("/* index sorted */"));
+        }
+        boolean narrows = Arrays.stream(condition.split(" AND ")).anyMatch(key -> !key.equals(ACTIVE));
+        return !narrows && !(limited && activeRowsInOrderOf(plan));
+    }
+
+    /**
+     * Whether the plan's order can be read from an index in order: the primary key, or
+     * an index on {@code deleted_at} followed by the first ORDER BY column. H2 prices an
+     * empty table and may pick another index on {@code deleted_at}; MySQL, which appends
+     * the id to every secondary index, uses the one that avoids the sort.
+     */
+    private boolean activeRowsInOrderOf(String plan) {
+        Matcher order = ORDER_BY.matcher(plan);
+        if (!order.find()) {
+            return false;
+        }
+        String selectList = plan.substring("SELECT ".length(), plan.indexOf(" FROM "));
+        String column = selectList.split(", ")[Integer.parseInt(order.group(1)) - 1];
+        column = column.substring(column.lastIndexOf('.') + 1).replace("\"", "");
+        if (column.equals("ID")) {
+            return true;
+        }
+        Integer indexes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEX_COLUMNS lead JOIN INFORMATION_SCHEMA.INDEX_COLUMNS next "
+                        + "ON next.INDEX_NAME = lead.INDEX_NAME AND next.TABLE_NAME = lead.TABLE_NAME "
+                        + "WHERE lead.TABLE_NAME = 'DOCUMENTS' AND lead.ORDINAL_POSITION = 1 "
+                        + "AND lead.COLUMN_NAME = 'DELETED_AT' AND next.ORDINAL_POSITION = 2 AND next.COLUMN_NAME = ?",
+                Integer.class, column);
+        return indexes != null && indexes > 0;
+    }
+
+    private static String cursorValue(String sortBy) {
+        return switch (sortBy) {
+            case "createdAt", "updatedAt" -> LocalDateTime.now().toString();
+            case "size", "id" -> "1";
+            default -> "report";
+        };
+    }
+
+    /**
+     * Placeholder arguments; the plans H2 picks depend on the shape of the query, not
+     * on the values.
+     */
+    private static Object[] arguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] arguments = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            arguments[i] = argument(types[i]);
+        }
+        return arguments;
+    }
+
+    private static Object argument(Class<?> type) {
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        }
+        if (type == String.class) {
+            return "report";
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (Pageable.class.isAssignableFrom(type)) {
+            // The listings sort by creation date. The second page of an empty table
+            // makes Spring Data issue the count query too.
+            return PageRequest.of(1, 1, Sort.by(Sort.Direction.DESC, "createdAt"));
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return List.of(1L, 2L);
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        throw new IllegalArgumentException("No placeholder for parameter type " + type.getName());
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+                    ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                return plan.getString(1).replaceAll("\\s+", " ");
+            }
+        });
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.examly.springapp.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    @Test
+    void titleMatchesRankAboveFileNameMatches() {
+        InvertedIndex index = new InvertedIndex();
+        put(index, 1, 10L, "Minutes", "budget.pdf");
+        put(index, 2, 10L, "Budget", "minutes.pdf");
+
+        assertEquals(List.of(2L, 1L), index.search("budget", null, 0, 10).getIds());
+    }
+
+    @Test
+    void rarerTermsWeighMore() {
+        InvertedIndex index = new InvertedIndex();
+        put(index, 1, 10L, "Quarterly report", "a.pdf");
+        put(index, 2, 10L, "Annual report", "b.pdf");
+        put(index, 3, 10L, "Report draft", "c.pdf");
+
+        // Both match "report"; only one matches the rarer "annual"
+        SearchResult result = index.search("annual report", null, 0, 10);
+        assertEquals(List.of(2L), result.getIds());
+        assertEquals(1, result.getTotalHits());
+        assertEquals(3, index.search("report", null, 0, 10).getTotalHits());
+    }
+
+    @Test
+    void shorterDocumentsRankAboveLongerOnes() {
+        InvertedIndex index = new InvertedIndex();
+        put(index, 1, 10L, "Invoice for the office chairs and desks", "x.pdf");
+        put(index, 2, 10L, "Invoice", "y.pdf");
+
+        assertEquals(List.of(2L, 1L), index.search("invoice", null, 0, 10).getIds());
+    }
+
+    @Test
+    void lastTermMatchesAsAPrefixBelowAnExactMatch() {
+        InvertedIndex index = new InvertedIndex();
+        put(index, 1, 10L, "Contracts", "a.pdf");
+        put(index, 2, 10L, "Contract", "b.pdf");
+        put(index, 3, 10L, "Invoice", "c.pdf");
+
+        assertEquals(List.of(2L, 1L), index.search("contract", null, 0, 10).getIds());
+        // Neither is the word typed, so they score alike
+        assertEquals(List.of(1L, 2L), index.search("contr", null, 0, 10).getIds());
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        InvertedIndex index = new InvertedIndex();
+        put(index, 1, 10L, "Tax return", "a.pdf");
+
+        assertEquals(0, index.search("tax invoice", null, 0, 10).getTotalHits());
+    }
+
+    @Test
+    void ownerFilterAndPaging() {
+        InvertedIndex index = new InvertedIndex();
+        for (long id = 1; id <= 5; id++) {
+            put(index, id, id % 2, "Notes", "notes.txt");
+        }
+
+        assertEquals(List.of(1L, 3L, 5L), index.search("notes", 1L, 0, 10).getIds());
+        // Equal scores are ordered by id
+        SearchResult page = index.search("notes", null, 2, 2);
+        assertEquals(List.of(3L, 4L), page.getIds());
+        assertEquals(5, page.getTotalHits());
+    }
+
+    @Test
+    void replacedAndRemovedDocumentsNoLongerMatch() {
+        InvertedIndex index = new InvertedIndex();
+        put(index, 1, 10L, "Draft", "a.pdf");
+        put(index, 1, 10L, "Final", "a.pdf");
+        put(index, 2, 10L, "Draft", "b.pdf");
+        index.remove(2);
+
+        assertEquals(0, index.search("draft", null, 0, 10).getTotalHits());
+        assertEquals(List.of(1L), index.search("final", null, 0, 10).getIds());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void segmentAndJournalRestoreTheIndex() throws IOException {
+        InvertedIndex index = new InvertedIndex();
+        put(index, 1, 10L, "Budget", "budget.xlsx");
+        put(index, 2, null, "Minutes", "minutes.docx");
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        index.writeSegment(new DataOutputStream(segment));
+
+        ByteArrayOutputStream journal = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(journal);
+        InvertedIndex.writePut(out, 3, 11L, InvertedIndex.termFrequencies("Budget plan", "plan.pdf"));
+        InvertedIndex.writeRemove(out, 2);
+        InvertedIndex.writePut(out, 1, 10L, InvertedIndex.termFrequencies("Budget 2025", "budget.xlsx"));
+        // Then a crash partway through the next record
+        ByteArrayOutputStream torn = new ByteArrayOutputStream();
+        InvertedIndex.writeRemove(new DataOutputStream(torn), 3);
+        byte[] records = journal.toByteArray();
+        byte[] withTornRecord = Arrays.copyOf(records, records.length + 4);
+        System.arraycopy(torn.toByteArray(), 0, withTornRecord, records.length, 4);
+
+        InvertedIndex loaded = InvertedIndex.readSegment(
+                new DataInputStream(new ByteArrayInputStream(segment.toByteArray())));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(withTornRecord));
+        assertThrows(EOFException.class, () -> {
+            while (true) {
+                loaded.replay(in);
+            }
+        });
+
+        assertEquals(2, loaded.size());
+        assertEquals(List.of(1L, 3L), loaded.search("budget", null, 0, 10).getIds());
+        assertEquals(List.of(3L), loaded.search("budget", 11L, 0, 10).getIds());
+        assertEquals(List.of(1L), loaded.search("2025", null, 0, 10).getIds());
+        assertEquals(0, loaded.search("minutes", null, 0, 10).getTotalHits());
+    }
+
+    @Test
+    void otherFilesAreNotReadAsSegments() {
+        byte[] notASegment = new byte[16];
+        IOException e = assertThrows(IOException.class, () -> InvertedIndex.readSegment(
+                new DataInputStream(new ByteArrayInputStream(notASegment))));
+        assertTrue(e.getMessage().contains("segment"));
+    }
+
+    private static void put(InvertedIndex index, long id, Long ownerId, String title, String fileName) {
+        index.put(id, ownerId, InvertedIndex.termFrequencies(title, fileName));
+    }
+}
@@ -0,0 +1,156 @@
+package com.examly.springapp.search;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.repository.DocumentRepository;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.service.DocumentService;
+import com.examly.springapp.support.JpaSliceTest;
+import com.examly.springapp.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JpaSliceTest
+// Each change runs in a transaction of its own, to be committed or rolled back
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SearchIndexServiceTest {
+
+    private static Path directory;
+
+    @DynamicPropertySource
+    static void searchIndex(DynamicPropertyRegistry registry) throws Exception {
+        directory = Files.createTempDirectory("search-index");
+        registry.add("search.index.enabled", () -> "true");
+        registry.add("search.index.directory", directory::toString);
+    }
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void loaded() throws Exception {
+        if (!searchIndexService.isReady()) {
+            searchIndexService.init();
+            awaitReady(searchIndexService);
+        }
+    }
+
+    @Test
+    void uploadIsSearchableOnceCommitted() {
+        String word = uniqueWord();
+        Long ownerId = TestUsers.save(userRepository).getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            documentService.createDocument(newDocument(ownerId, word));
+            assertEquals(0, hits(word));
+        });
+
+        assertEquals(1, hits(word));
+    }
+
+    @Test
+    void rolledBackUploadIsNotIndexed() {
+        String word = uniqueWord();
+        Long ownerId = TestUsers.save(userRepository).getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            documentService.createDocument(newDocument(ownerId, word));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, hits(word));
+    }
+
+    @Test
+    void rolledBackTrashKeepsTheDocumentSearchable() {
+        String word = uniqueWord();
+        Long ownerId = TestUsers.save(userRepository).getId();
+        Long id = documentService.createDocument(newDocument(ownerId, word)).getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            documentService.moveToTrash(id);
+            status.setRollbackOnly();
+        });
+        assertEquals(1, hits(word));
+
+        documentService.moveToTrash(id);
+        assertEquals(0, hits(word));
+    }
+
+    @Test
+    void restartLoadsTheSegmentAndJournal() throws Exception {
+        String word = uniqueWord();
+        Long ownerId = TestUsers.save(userRepository).getId();
+        Long id = documentService.createDocument(newDocument(ownerId, word)).getId();
+
+        SearchIndexService restarted = new SearchIndexService();
+        ReflectionTestUtils.setField(restarted, "documentRepository", documentRepository);
+        ReflectionTestUtils.setField(restarted, "enabled", true);
+        ReflectionTestUtils.setField(restarted, "directory", directory.toString());
+        ReflectionTestUtils.setField(restarted, "compactAfter", 10000);
+        restarted.init();
+        awaitReady(restarted);
+        try {
+            assertEquals(List.of(id), restarted.search(word, ownerId, 0, 10).getIds());
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    private int hits(String word) {
+        return searchIndexService.search(word, null, 0, 10).getTotalHits();
+    }
+
+    private static void awaitReady(SearchIndexService service) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!service.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(service.isReady());
+    }
+
+    private static Document newDocument(Long ownerId, String title) {
+        Document document = new Document();
+        document.setTitle(title);
+        document.setFileName(title + ".pdf");
+        document.setFileType("application/pdf");
+        document.setSize(1000L);
+        document.setOwnerId(ownerId);
+        return document;
+    }
+
+    private static String uniqueWord() {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            word.append((char) ('a' + ThreadLocalRandom.current().nextInt(26)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.examly.springapp.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenizerTest {
+
+    @Test
+    void splitsAtPunctuationAndBetweenLettersAndDigits() {
+        assertEquals(List.of("report", "2024", "q", "3", "pdf"), Tokenizer.tokenize("Report_2024-Q3.pdf"));
+    }
+
+    @Test
+    void foldsCaseAndAccents() {
+        assertEquals(List.of("zoe", "cafe"), Tokenizer.tokenize("Zoë CAFÉ"));
+        assertEquals(Tokenizer.fold("zoe"), Tokenizer.fold("Zoë"));
+    }
+
+    @Test
+    void longTermsAreCut() {
+        String term = "a".repeat(100);
+        assertEquals(List.of("a".repeat(64)), Tokenizer.tokenize(term));
+    }
+
+    @Test
+    void nothingToTokenize() {
+        assertTrue(Tokenizer.tokenize(null).isEmpty());
+        assertTrue(Tokenizer.tokenize("").isEmpty());
+        assertTrue(Tokenizer.tokenize(" -_. ").isEmpty());
+    }
+}
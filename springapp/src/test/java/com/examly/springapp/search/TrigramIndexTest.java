@@ -0,0 +1,100 @@
+package com.examly.springapp.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigramIndexTest {
+
+    @Test
+    void nameStartsRankAboveWordAndEmailStartsAboveSubstrings() {
+        TrigramIndex index = users();
+
+        // "lovelace smith", then "lovebird@example.com" before "lovelace" in "ada lovelace", then "glovelady"
+        assertEquals(List.of(1L, 3L, 2L, 4L), index.search("Love", 10));
+    }
+
+    @Test
+    void queriesShorterThanATrigramOnlyMatchPrefixes() {
+        TrigramIndex index = users();
+
+        assertEquals(List.of(1L, 3L, 2L), index.search("lo", 10));
+        assertEquals(List.of(1L, 3L, 2L), index.search("l", 10));
+        assertEquals(List.of(), index.search(" ", 10));
+    }
+
+    @Test
+    void searchStopsAtTheLimit() {
+        TrigramIndex index = users();
+
+        assertEquals(List.of(1L, 3L), index.search("love", 2));
+        assertEquals(List.of(1L, 3L, 2L), index.search("love", 3));
+        assertEquals(List.of(), index.search("love", 0));
+    }
+
+    @Test
+    void sharingEveryTrigramIsNotAMatch() {
+        TrigramIndex index = new TrigramIndex();
+        // Has "ana" and "nan", the trigrams of "anana", but not "anana" itself
+        index.put(1, "Nanab Ana", "nanab@example.com");
+        index.put(2, "Banana", "b@example.com");
+
+        assertEquals(List.of(2L), index.search("anana", 10));
+    }
+
+    @Test
+    void putReplacesAndRemoveForgets() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Ada", "ada@example.com");
+        index.put(1, "Grace", "grace@example.com");
+        index.put(2, "Adam", "adam@example.com");
+
+        assertEquals(List.of(2L), index.search("ada", 10));
+        assertEquals(List.of(1L), index.search("grace", 10));
+
+        index.remove(2);
+        index.remove(3);
+        assertEquals(List.of(), index.search("ada", 10));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void compactionDropsDeadSlotsAndKeepsLiveUsers() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Ada Lovelace", "ada@example.com");
+        for (long id = 2; id <= 1100; id++) {
+            index.put(id, "Temporary " + id, "temp" + id + "@example.com");
+        }
+        for (long id = 2; id <= 1100; id++) {
+            index.remove(id);
+        }
+
+        assertTrue(slots(index) < 1100, "Index still holds " + slots(index) + " slots");
+        assertEquals(1, index.size());
+        assertEquals(List.of(1L), index.search("lovelace", 10));
+        assertEquals(List.of(1L), index.search("velac", 10));
+        assertEquals(List.of(), index.search("temp", 10));
+
+        index.put(2, "Charles Babbage", "charles@example.com");
+        assertEquals(List.of(2L), index.search("babb", 10));
+        assertEquals(List.of(1L), index.search("ada", 10));
+    }
+
+    private static TrigramIndex users() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(4, "Glovelady", "g@example.com");
+        index.put(2, "Ada Lovelace", "ada@example.com");
+        index.put(3, "Bob", "lovebird@example.com");
+        index.put(1, "Lovelace Smith", "smith@example.com");
+        index.put(5, "Grace Hopper", "grace@example.com");
+        return index;
+    }
+
+    private static int slots(TrigramIndex index) {
+        return ((List<?>) ReflectionTestUtils.getField(index, "slots")).size();
+    }
+}
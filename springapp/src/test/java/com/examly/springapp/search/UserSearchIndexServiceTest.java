@@ -0,0 +1,65 @@
+package com.examly.springapp.search;
+
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class UserSearchIndexServiceTest {
+
+    @Test
+    void changesMadeWhileLoadingAreAppliedOnceTheIndexIsReady() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UserRepository userRepository = mock(UserRepository.class);
+        doAnswer(invocation -> {
+            loading.countDown();
+            release.await(1, TimeUnit.MINUTES);
+            // The snapshot the loader read, from before the changes below
+            return List.of(user(1L, "Ada Lovelace"), user(2L, "Grace Hopper"));
+        }).when(userRepository).findByIdGreaterThan(anyLong(), any(Pageable.class));
+        UserSearchIndexService service = new UserSearchIndexService();
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "enabled", true);
+
+        service.init();
+        assertTrue(loading.await(1, TimeUnit.MINUTES), "Loader never started");
+        service.index(user(1L, "Ada King"));
+        service.remove(2L);
+        service.index(user(3L, "Alan Turing"));
+        assertNull(service.search("ada", 10));
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (!service.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(service.isReady());
+        assertEquals(List.of(1L), service.search("king", 10));
+        assertEquals(List.of(), service.search("lovelace", 10));
+        assertEquals(List.of(), service.search("grace", 10));
+        assertEquals(List.of(3L), service.search("turing", 10));
+    }
+
+    private static User user(Long id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail("user-" + id + "@example.com");
+        return user;
+    }
+}
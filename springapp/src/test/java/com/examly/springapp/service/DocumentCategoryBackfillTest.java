@@ -0,0 +1,135 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.repository.DocumentRepository;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.support.JpaSliceTest;
+import com.examly.springapp.support.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+
+@JpaSliceTest
+@TestPropertySource(properties = "category.backfill.batch-size=2")
+// The backfill commits a transaction per batch
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DocumentCategoryBackfillTest {
+
+    @Autowired
+    private DocumentCategoryBackfill documentCategoryBackfill;
+
+    @Autowired
+    private DocumentStatsService documentStatsService;
+
+    @MockitoSpyBean
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void uncategorizedDocumentsAreCategorizedInIdOrderedBatches() {
+        documentCategoryBackfill.run();
+        Long ownerId = TestUsers.save(userRepository).getId();
+        List<Long> ids = new ArrayList<>();
+        for (String fileName : new String[] { "a.png", "b.mp4", "c.pdf", "d.png", "e.bin" }) {
+            ids.add(documentRepository.save(document(ownerId, fileName)).getId());
+        }
+        clearCategories(ids);
+        clearInvocations(documentRepository);
+
+        assertEquals(5, documentCategoryBackfill.run());
+
+        ArgumentCaptor<Long> afterIds = ArgumentCaptor.forClass(Long.class);
+        verify(documentRepository, atLeastOnce()).findUncategorizedAfter(afterIds.capture(), any(Pageable.class));
+        // Two to a batch; the third is short, so it is the last
+        assertEquals(List.of(0L, ids.get(1), ids.get(3)), afterIds.getAllValues());
+        assertEquals(List.of("IMAGE", "VIDEO", "DOCUMENT", "IMAGE", "OTHER"),
+                column("category", ids, String.class));
+        assertEquals(0, documentCategoryBackfill.run());
+    }
+
+    @Test
+    void categorizingBumpsTheVersionAndLeavesCategorizedRowsAlone() {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        Long uncategorized = documentRepository.save(document(ownerId, "photo.jpg")).getId();
+        Long categorized = documentRepository.save(document(ownerId, "song.mp3")).getId();
+        clearCategories(List.of(uncategorized));
+        List<Long> before = column("version", List.of(uncategorized, categorized), Long.class);
+
+        assertEquals(Integer.valueOf(1), new TransactionTemplate(transactionManager).execute(status ->
+                documentRepository.setCategory(Document.Category.IMAGE, List.of(uncategorized, categorized))));
+
+        assertEquals(List.of(before.get(0) + 1, before.get(1)),
+                column("version", List.of(uncategorized, categorized), Long.class));
+        assertEquals(List.of("IMAGE", "AUDIO"), column("category", List.of(uncategorized, categorized), String.class));
+    }
+
+    @Test
+    void statsAreRecountedWithTheNewCategories() {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        List<Long> ids = new ArrayList<>();
+        for (String fileName : new String[] { "a.png", "b.png", "c.mp3" }) {
+            ids.add(documentRepository.save(document(ownerId, fileName)).getId());
+        }
+        clearCategories(ids);
+        documentStatsService.reconcile();
+        assertEquals(0, documentStatsService.getForOwner(ownerId).getImageCount());
+
+        documentCategoryBackfill.run();
+
+        assertEquals(2, documentStatsService.getForOwner(ownerId).getImageCount());
+        assertEquals(1, documentStatsService.getForOwner(ownerId).getAudioCount());
+    }
+
+    // As rows written before the column existed
+    private void clearCategories(List<Long> ids) {
+        new NamedParameterJdbcTemplate(jdbc).update("UPDATE documents SET category = NULL WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids));
+    }
+
+    private <T> List<T> column(String column, List<Long> ids, Class<T> type) {
+        List<T> values = new ArrayList<>();
+        for (Long id : ids) {
+            values.add(jdbc.queryForObject("SELECT " + column + " FROM documents WHERE id = ?", type, id));
+        }
+        return values;
+    }
+
+    private static Document document(Long ownerId, String fileName) {
+        Document document = new Document();
+        document.setOwnerId(ownerId);
+        document.setTitle(fileName);
+        document.setFileName(fileName);
+        document.setFileType("application/octet-stream");
+        document.setSize(100L);
+        document.setFileUrl("key-" + System.nanoTime());
+        document.setVisibility(Document.Visibility.PRIVATE);
+        return document;
+    }
+}
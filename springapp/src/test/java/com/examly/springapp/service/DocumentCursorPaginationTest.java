@@ -0,0 +1,81 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.DocumentListItemDTO;
+import com.examly.springapp.model.Document;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.support.JpaSliceTest;
+import com.examly.springapp.support.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@JpaSliceTest
+class DocumentCursorPaginationTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void pagesFollowTheSortWithIdsBreakingTies() {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        List<Document> saved = new ArrayList<>();
+        for (String title : List.of("b", "a", "c", "a", "b", "a")) {
+            saved.add(newDocument(ownerId, title));
+        }
+
+        Comparator<Document> byTitle = Comparator.comparing(Document::getTitle).thenComparing(Document::getId);
+        assertEquals(saved.stream().sorted(byTitle).map(Document::getId).toList(),
+                allPages(ownerId, "title", "asc"));
+        assertEquals(saved.stream().sorted(byTitle.reversed()).map(Document::getId).toList(),
+                allPages(ownerId, "title", "desc"));
+    }
+
+    @Test
+    void documentWithoutTitleOrSizeIsListed() {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        Document document = new Document();
+        document.setFileName("untitled.txt");
+        document.setOwnerId(ownerId);
+        Document saved = documentService.createDocument(document);
+
+        assertEquals("untitled.txt", saved.getTitle());
+        assertEquals(List.of(saved.getId()), allPages(ownerId, "size", "asc"));
+    }
+
+    @Test
+    void otherColumnsCannotBePaginated() {
+        assertThrows(IllegalArgumentException.class,
+                () -> documentService.getDocumentsAfter(null, "", 2, "fileType", "asc", null));
+    }
+
+    private List<Long> allPages(Long ownerId, String sortBy, String sortDir) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = "";
+        DocumentService.CursorPage page;
+        do {
+            page = documentService.getDocumentsAfter(ownerId, cursor, 2, sortBy, sortDir, null);
+            page.getContent().stream().map(DocumentListItemDTO::getId).forEach(ids::add);
+            cursor = page.getNextCursor();
+        } while (page.isHasNext());
+        return ids;
+    }
+
+    private Document newDocument(Long ownerId, String title) {
+        Document document = new Document();
+        document.setTitle(title);
+        document.setFileName(title + ".pdf");
+        document.setFileType("application/pdf");
+        document.setSize(1000L);
+        document.setOwnerId(ownerId);
+        return documentService.createDocument(document);
+    }
+}
@@ -0,0 +1,164 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.model.DocumentStats;
+import com.examly.springapp.repository.DocumentRepository;
+import com.examly.springapp.repository.DocumentStatsRepository;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.support.JpaSliceTest;
+import com.examly.springapp.support.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@JpaSliceTest
+// Each change commits its own transaction, as concurrent requests would
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DocumentStatsServiceTest {
+
+    @Autowired
+    private DocumentStatsService documentStatsService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentStatsRepository documentStatsRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void changesForOtherOwnersDoNotWait() throws Exception {
+        Long busyOwner = TestUsers.save(userRepository).getId();
+        Long otherOwner = TestUsers.save(userRepository).getId();
+        CountDownLatch counted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        // Holds its owner's row until told to commit
+        CompletableFuture<Void> busy = CompletableFuture.runAsync(() -> transaction().executeWithoutResult(status -> {
+            documentStatsService.recordChange(document(busyOwner, 100));
+            counted.countDown();
+            await(finish);
+        }));
+        counted.await(10, TimeUnit.SECONDS);
+        try {
+            CompletableFuture.runAsync(() -> documentStatsService.recordChange(document(otherOwner, 10)))
+                    .get(5, TimeUnit.SECONDS);
+        } finally {
+            finish.countDown();
+        }
+        busy.get(10, TimeUnit.SECONDS);
+
+        assertEquals(100, documentStatsService.getForOwner(busyOwner).getActiveBytes());
+        assertEquals(10, documentStatsService.getForOwner(otherOwner).getActiveBytes());
+    }
+
+    @Test
+    void firstChangesForAnOwnerWaitForEachOtherAndBothCount() throws Exception {
+        documentStatsService.reconcile();
+        Long ownerId = TestUsers.save(userRepository).getId();
+        CountDownLatch counted = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+
+        // Creates the owner's row and holds it until told to commit
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transaction().executeWithoutResult(status -> {
+            documentStatsService.recordChange(document(ownerId, 100));
+            counted.countDown();
+            await(finish);
+        }));
+        counted.await(10, TimeUnit.SECONDS);
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> transaction().executeWithoutResult(
+                status -> documentStatsService.recordChange(document(ownerId, 10))));
+        try {
+            Thread.sleep(200);
+            assertFalse(second.isDone(), "Second change did not wait for the first one's row");
+        } finally {
+            finish.countDown();
+        }
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        assertEquals(110, documentStatsService.getForOwner(ownerId).getActiveBytes());
+        assertFalse(documentStatsRepository.createIfAbsent(ownerId));
+    }
+
+    @Test
+    void totalsIncludeEveryOwnerAndUnownedDocuments() {
+        documentStatsService.reconcile();
+        DocumentStats before = documentStatsService.getGlobal();
+
+        documentStatsService.recordChange(document(TestUsers.save(userRepository).getId(), 100));
+        documentStatsService.recordChange(document(TestUsers.save(userRepository).getId(), 20));
+        documentStatsService.recordChange(document(null, 3));
+
+        DocumentStats after = documentStatsService.getGlobal();
+        assertEquals(before.getActiveCount() + 3, after.getActiveCount());
+        assertEquals(before.getActiveBytes() + 123, after.getActiveBytes());
+    }
+
+    @Test
+    void changeRolledBackLeavesTheCountersAlone() {
+        documentStatsService.reconcile();
+        Long ownerId = TestUsers.save(userRepository).getId();
+        DocumentStats before = documentStatsService.getGlobal();
+
+        transaction().executeWithoutResult(status -> {
+            documentStatsService.recordChange(document(ownerId, 100));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, documentStatsService.getForOwner(ownerId).getActiveBytes());
+        assertEquals(before.getActiveBytes(), documentStatsService.getGlobal().getActiveBytes());
+    }
+
+    @Test
+    void reconcileCorrectsRowsWrittenAroundTheService() {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        documentStatsService.recordChange(document(ownerId, 5));
+        // Saved without being counted
+        documentRepository.save(document(ownerId, 100));
+        documentRepository.save(document(ownerId, 200));
+
+        documentStatsService.reconcile();
+
+        DocumentStats owner = documentStatsService.getForOwner(ownerId);
+        assertEquals(2, owner.getActiveCount());
+        assertEquals(300, owner.getActiveBytes());
+    }
+
+    private TransactionTemplate transaction() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private static Document document(Long ownerId, long size) {
+        Document document = new Document();
+        document.setOwnerId(ownerId);
+        document.setTitle("Stats");
+        document.setFileName("stats.pdf");
+        document.setFileType("application/pdf");
+        document.setSize(size);
+        return document;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
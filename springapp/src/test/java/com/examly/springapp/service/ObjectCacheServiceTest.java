@@ -0,0 +1,83 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.storage.InMemoryStorageBackend;
+import com.examly.springapp.storage.StorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class ObjectCacheServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final StorageBackend storageBackend = spy(new InMemoryStorageBackend());
+    private final ObjectCacheService cache = new ObjectCacheService();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(cache, "storageBackend", storageBackend);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "directory", directory.toString());
+        ReflectionTestUtils.setField(cache, "maxSizeBytes", 10L);
+        ReflectionTestUtils.setField(cache, "maxObjectSize", 8L);
+        ReflectionTestUtils.setField(cache, "pinSeconds", 60L);
+        cache.init();
+    }
+
+    @Test
+    void fileHandedOutIsNotEvictedBeforeItIsOpened() throws Exception {
+        put("a", 6);
+        put("b", 6);
+
+        ObjectCacheService.CachedFile a = cache.get("a");
+        // Over the limit, but a was just handed out
+        ObjectCacheService.CachedFile b = cache.get("b");
+
+        assertTrue(Files.exists(a.getPath()));
+        assertArrayEquals(new byte[6], Files.readAllBytes(a.getPath()));
+        assertNotNull(b);
+    }
+
+    @Test
+    void unpinnedFilesAreEvicted() throws Exception {
+        ReflectionTestUtils.setField(cache, "pinSeconds", 0L);
+        put("a", 6);
+        put("b", 6);
+
+        ObjectCacheService.CachedFile a = cache.get("a");
+        Thread.sleep(5);
+        cache.get("b");
+
+        assertFalse(Files.exists(a.getPath()));
+    }
+
+    @Test
+    void oversizeObjectIsNotDownloaded() throws Exception {
+        put("large", 9);
+
+        assertNull(cache.get("large"));
+        assertNull(cache.get("large"));
+        verify(storageBackend, never()).getObjectRange(eq("large"), any(), any(), any());
+    }
+
+    private void put(String key, int size) throws Exception {
+        storageBackend.putObject(key, new ByteArrayInputStream(new byte[size]), size, "application/octet-stream");
+    }
+}
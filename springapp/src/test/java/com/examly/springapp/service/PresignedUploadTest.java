@@ -0,0 +1,100 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.model.UploadSession;
+import com.examly.springapp.repository.UploadSessionRepository;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.storage.StorageBackend;
+import com.examly.springapp.support.JpaSliceTest;
+import com.examly.springapp.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * The in-memory backend stands in for the bucket; the client's PUT to the presigned
+ * URL is a plain write to the session's key.
+ */
+@JpaSliceTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PresignedUploadTest {
+
+    private static final byte[] CONTENT = "%PDF-1.4 test content".getBytes();
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @MockitoSpyBean
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private UploadSessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void presignedUploads() {
+        doReturn(true).when(storageBackend).supportsPresignedUploads();
+        doReturn("https://bucket.example/upload").when(storageBackend)
+                .generatePresignedUploadUrl(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void laterWritesToTheUploadUrlDoNotChangeTheDocument() throws Exception {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        UploadSession session = uploadSessionService.createPresignedSession(ownerId, "Report", "report.pdf",
+                "application/pdf", (long) CONTENT.length).getSession();
+        clientPut(session, CONTENT);
+
+        Document saved = uploadSessionService.finalizePresigned(session.getId(), ownerId);
+        clientPut(session, "something else entirely, and larger".getBytes());
+
+        assertNotEquals(session.getStorageKey(), saved.getFileUrl());
+        assertEquals(CONTENT.length, saved.getSize());
+        try (InputStream stored = storageBackend.getObject(saved.getFileUrl())) {
+            assertArrayEquals(CONTENT, stored.readAllBytes());
+        }
+    }
+
+    @Test
+    void uploadOfTheWrongSizeIsDeleted() throws Exception {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        UploadSession session = uploadSessionService.createPresignedSession(ownerId, "Report", "report.pdf",
+                "application/pdf", (long) CONTENT.length + 1).getSession();
+        clientPut(session, CONTENT);
+        List<String> before = storageBackend.listObjects(null);
+
+        assertThrows(IllegalStateException.class, () -> uploadSessionService.finalizePresigned(session.getId(), ownerId));
+
+        assertEquals(UploadSession.Status.ABORTED, sessionRepository.findById(session.getId()).orElseThrow().getStatus());
+        assertNull(storageBackend.headObject(session.getStorageKey()));
+        // Nor is the copy left behind
+        List<String> after = new ArrayList<>(storageBackend.listObjects(null));
+        after.add(session.getStorageKey());
+        assertEquals(before.stream().sorted().toList(), after.stream().sorted().toList());
+    }
+
+    private void clientPut(UploadSession session, byte[] body) throws Exception {
+        storageBackend.putObject(session.getStorageKey(), new ByteArrayInputStream(body), body.length,
+                "application/pdf");
+    }
+}
@@ -0,0 +1,234 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.model.Settings;
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.DocumentRepository;
+import com.examly.springapp.repository.RateLimitCounterRepository;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.support.JpaSliceTest;
+import com.examly.springapp.support.TestUsers;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reads of cached entities must not reach the database, and every way the application
+ * changes those entities must be visible to the next read.
+ */
+@JpaSliceTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=com.examly.springapp.cache.BoundedCacheRegionFactory",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+// Each call runs and commits in its own transaction, as separate requests would
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SettingsService settingsService;
+
+    @Autowired
+    private CacheMetricsService cacheMetricsService;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RateLimitCounterRepository rateLimitCounterRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void resetStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void readingADocumentAgainCostsNoQuery() {
+        Long id = newDocument("cached.pdf").getId();
+        documentService.getDocumentById(id);
+
+        statistics.clear();
+        Document document = documentService.getDocumentById(id);
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals("cached.pdf", document.getFileName());
+        // Lifecycle callbacks still run for documents assembled from the cache
+        assertNotNull(document.getCountedStats());
+    }
+
+    @Test
+    void updatesAreVisibleToTheNextRead() {
+        Long id = newDocument("draft.pdf").getId();
+        documentService.getDocumentById(id);
+
+        Document changes = new Document();
+        changes.setTitle("Final");
+        changes.setVisibility(Document.Visibility.PUBLIC);
+        documentService.updateDocument(id, changes);
+
+        Document document = documentService.getDocumentById(id);
+        assertEquals("Final", document.getTitle());
+        assertEquals(Document.Visibility.PUBLIC, document.getVisibility());
+    }
+
+    @Test
+    void staleCopyCannotOverwriteANewerVersion() {
+        Long id = newDocument("draft.pdf").getId();
+        Document stale = documentService.getDocumentById(id);
+
+        Document changes = new Document();
+        changes.setTitle("Final");
+        documentService.updateDocument(id, changes);
+
+        stale.setVisibility(Document.Visibility.PUBLIC);
+        assertThrows(OptimisticLockingFailureException.class, () -> documentRepository.save(stale));
+        Document document = documentService.getDocumentById(id);
+        assertEquals("Final", document.getTitle());
+        assertEquals(Document.Visibility.PRIVATE, document.getVisibility());
+    }
+
+    @Test
+    void deletedDocumentsAreNotServedFromTheCache() {
+        Long id = newDocument("gone.pdf").getId();
+        documentService.getDocumentById(id);
+
+        documentService.deleteDocument(id);
+
+        assertThrows(EntityNotFoundException.class, () -> documentService.getDocumentById(id));
+    }
+
+    @Test
+    void bulkDeletesEvictTheDeletedDocuments() {
+        Long first = newDocument("one.pdf").getId();
+        Long second = newDocument("two.pdf").getId();
+        documentService.getDocumentById(first);
+        documentService.getDocumentById(second);
+
+        documentService.deleteDocumentRows(List.of(first, second));
+
+        assertFalse(documentRepository.findById(first).isPresent());
+        assertFalse(documentRepository.findById(second).isPresent());
+    }
+
+    @Test
+    void emailChangesAreVisibleToLookupsByEmail() {
+        User user = TestUsers.save(userRepository);
+        String oldEmail = user.getEmail();
+        userService.getUserByEmail(oldEmail);
+        statistics.clear();
+        userService.getUserByEmail(oldEmail);
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        String newEmail = "moved-" + System.nanoTime() + "@example.com";
+        userService.updateUser(user.getId(), null, newEmail);
+
+        assertFalse(userRepository.findByEmail(oldEmail).isPresent());
+        assertEquals(user.getId(), userService.getUserByEmail(newEmail).getId());
+        assertEquals(newEmail, userService.getUserById(user.getId()).getEmail());
+    }
+
+    @Test
+    void settingsChangesAreVisibleImmediately() {
+        // The first read creates the record, which invalidates the cached lookup
+        settingsService.getSettings();
+        settingsService.getSettings();
+        statistics.clear();
+        settingsService.getSettings();
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        Settings changes = settingsService.getSettings();
+        changes.setMaxStoragePerUser("3 GB");
+        settingsService.updateSettings(changes);
+
+        assertEquals("3 GB", settingsService.getSettings().getMaxStoragePerUser());
+        assertEquals(3L * 1024 * 1024 * 1024, settingsService.getMaxStorageBytes());
+    }
+
+    @Test
+    void storageReservationsLeaveCachedDocumentsCached() {
+        Document cached = newDocument("kept.pdf");
+        documentService.getDocumentById(cached.getId());
+
+        // A new owner, so the reservation creates the owner's stats row
+        Long ownerId = TestUsers.save(userRepository).getId();
+        storageQuotaService.release(storageQuotaService.reserve(ownerId, 100));
+
+        statistics.clear();
+        documentService.getDocumentById(cached.getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void newRateLimitBucketsLeaveCachedDocumentsCached() {
+        Document cached = newDocument("limited.pdf");
+        documentService.getDocumentById(cached.getId());
+
+        rateLimitCounterRepository.createIfAbsent(System.nanoTime(), System.currentTimeMillis());
+
+        statistics.clear();
+        documentService.getDocumentById(cached.getId());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void hitsAreReportedPerRegion() {
+        Long id = newDocument("metrics.pdf").getId();
+        documentService.getDocumentById(id);
+        documentService.getDocumentById(id);
+
+        Map<String, Object> documents = cacheMetricsService.getRegionStats().stream()
+                .filter(region -> "documents".equals(region.get("region")))
+                .findFirst().orElseThrow();
+        assertTrue((Long) documents.get("hits") >= 2);
+        assertTrue((Double) documents.get("hitRatio") > 0);
+    }
+
+    private Document newDocument(String fileName) {
+        Document document = new Document();
+        document.setTitle(fileName);
+        document.setFileName(fileName);
+        document.setFileType("application/pdf");
+        document.setSize(1000L);
+        document.setFileUrl("key-" + System.nanoTime());
+        document.setOwnerId(TestUsers.save(userRepository).getId());
+        document.setVisibility(Document.Visibility.PRIVATE);
+        return documentService.createDocument(document);
+    }
+}
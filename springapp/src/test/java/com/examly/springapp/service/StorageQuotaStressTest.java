@@ -0,0 +1,131 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.DocumentStats;
+import com.examly.springapp.model.Settings;
+import com.examly.springapp.model.StorageReservation;
+import com.examly.springapp.repository.DocumentRepository;
+import com.examly.springapp.repository.DocumentStatsRepository;
+import com.examly.springapp.repository.StorageReservationRepository;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.support.JpaSliceTest;
+import com.examly.springapp.support.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads upload to one account at once, each reserving storage, then either
+ * recording the document or abandoning the upload. However the requests interleave,
+ * the account must never end up holding more than its limit.
+ */
+@JpaSliceTest
+// Each thread commits its own transactions, as concurrent requests would
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StorageQuotaStressTest {
+
+    private static final long LIMIT = 1024 * 1024;
+    private static final int THREADS = 16;
+    private static final int UPLOADS_PER_THREAD = 50;
+
+    @Autowired
+    private StorageQuotaService storageQuotaService;
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private SettingsService settingsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentStatsRepository documentStatsRepository;
+
+    @Autowired
+    private StorageReservationRepository reservationRepository;
+
+    @Test
+    void concurrentUploadsNeverExceedTheLimit() throws Exception {
+        Settings settings = new Settings();
+        settings.setMaxStoragePerUser("1 MB");
+        settingsService.updateSettings(settings);
+        Long ownerId = TestUsers.save(userRepository).getId();
+
+        AtomicInteger recorded = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < UPLOADS_PER_THREAD; i++) {
+                    long size = random.nextLong(10_000, 120_000);
+                    StorageReservation reservation = storageQuotaService.reserve(ownerId, size);
+                    if (reservation == null) {
+                        rejected.incrementAndGet();
+                        continue;
+                    }
+                    if (random.nextInt(4) == 0) {
+                        // Upload failed after reserving
+                        storageQuotaService.release(reservation);
+                        released.incrementAndGet();
+                    } else {
+                        // The stored object may be smaller than reserved, never larger
+                        documentService.recordUpload(ownerId, "doc", "doc.bin", "application/octet-stream",
+                                size - random.nextLong(0, 1000), "key-" + size + "-" + i, null, reservation);
+                        recorded.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        long storedBytes = documentRepository.aggregateStatsForOwner(ownerId).map(DocumentStats::getActiveBytes).orElse(0L);
+        DocumentStats counters = documentStatsRepository.findById(ownerId).orElseThrow();
+
+        assertTrue(storedBytes <= LIMIT, "Stored " + storedBytes + " bytes with a limit of " + LIMIT);
+        assertEquals(storedBytes, counters.getActiveBytes(), "Usage counter drifted from the documents table");
+        assertEquals(0, counters.getReservedBytes(), "Settled and released reservations left bytes reserved");
+        assertEquals(0, reservationRepository.count());
+        assertEquals(THREADS * UPLOADS_PER_THREAD, recorded.get() + released.get() + rejected.get());
+        // The limit was actually contended
+        assertTrue(rejected.get() > 0 && recorded.get() > 0);
+    }
+
+    @Test
+    void releasingTwiceGivesTheBytesBackOnce() {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        StorageReservation reservation = storageQuotaService.reserve(ownerId, 1000);
+
+        storageQuotaService.release(reservation);
+        storageQuotaService.release(reservation);
+
+        assertEquals(0, documentStatsRepository.findById(ownerId).orElseThrow().getReservedBytes());
+    }
+}
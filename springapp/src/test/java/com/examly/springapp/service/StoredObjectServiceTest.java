@@ -0,0 +1,84 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.repository.StoredObjectRepository;
+import com.examly.springapp.storage.StorageBackend;
+import com.examly.springapp.support.JpaSliceTest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two uploads of the same content, where the first one's document is deleted while
+ * the second is between its PUT and registering the object.
+ */
+@JpaSliceTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StoredObjectServiceTest {
+
+    private static final byte[] CONTENT = "shared content".getBytes();
+
+    @Autowired
+    private StoredObjectService storedObjectService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StoredObjectRepository storedObjectRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Test
+    void objectReleasedBeforeRegistrationIsReported() throws Exception {
+        String key = uploadedThenReleasedDuringSecondUpload();
+
+        assertFalse(storedObjectService.register(key, "digest", CONTENT.length));
+        assertTrue(storedObjectRepository.findById(key).isEmpty());
+    }
+
+    @Test
+    void objectReleasedBeforeRegistrationIsUploadedAgain() throws Exception {
+        String key = uploadedThenReleasedDuringSecondUpload();
+
+        fileStorageService.register(key, "digest", CONTENT.length, () -> put(key));
+
+        assertNotNull(storageBackend.headObject(key));
+        assertEquals(1, storedObjectRepository.findById(key).orElseThrow().getReferenceCount());
+    }
+
+    @Test
+    void registeringExistingContentAddsAReference() throws Exception {
+        String key = StoredObjectService.keyForDigest(UUID.randomUUID().toString());
+        put(key);
+        assertTrue(storedObjectService.register(key, "digest", CONTENT.length));
+        assertTrue(storedObjectService.register(key, "digest", CONTENT.length));
+
+        assertEquals(2, storedObjectRepository.findById(key).orElseThrow().getReferenceCount());
+    }
+
+    private String uploadedThenReleasedDuringSecondUpload() throws IOException {
+        String key = StoredObjectService.keyForDigest(UUID.randomUUID().toString());
+        put(key);
+        assertTrue(storedObjectService.register(key, "digest", CONTENT.length));
+
+        // The second upload found no row before the first registered, so it PUTs too
+        put(key);
+        assertTrue(storedObjectService.release(key));
+        return key;
+    }
+
+    private void put(String key) throws IOException {
+        storageBackend.putObject(key, new ByteArrayInputStream(CONTENT), CONTENT.length, "text/plain");
+    }
+}
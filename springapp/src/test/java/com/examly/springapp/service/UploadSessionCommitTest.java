@@ -0,0 +1,132 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Document;
+import com.examly.springapp.model.UploadSession;
+import com.examly.springapp.repository.DocumentRepository;
+import com.examly.springapp.repository.UploadSessionRepository;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.storage.StorageBackend;
+import com.examly.springapp.support.JpaSliceTest;
+import com.examly.springapp.support.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+
+@JpaSliceTest
+// Each commit runs its own transactions, as concurrent requests would
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UploadSessionCommitTest {
+
+    private static final byte[] CONTENT = "%PDF-1.4 test content".getBytes();
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @MockitoSpyBean
+    private DocumentService documentService;
+
+    @Autowired
+    private UploadSessionRepository sessionRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Test
+    void concurrentCommitsRecordOneDocument() throws Exception {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        String sessionId = uploadedSession(ownerId);
+
+        int callers = 8;
+        Set<Long> documentIds = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        List<Future<?>> commits = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            commits.add(pool.submit(() -> {
+                start.await();
+                try {
+                    documentIds.add(uploadSessionService.commit(sessionId, ownerId).getId());
+                } catch (IllegalStateException e) {
+                    // Turned away while another commit was completing the upload
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> commit : commits) {
+            commit.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        // Whoever was turned away gets the same document on retry
+        documentIds.add(uploadSessionService.commit(sessionId, ownerId).getId());
+        assertEquals(1, documentIds.size(), documentIds.toString());
+        assertEquals(1, documentRepository.findAll().stream().filter(d -> ownerId.equals(d.getOwnerId())).count());
+        assertEquals(UploadSession.Status.COMMITTED, sessionRepository.findById(sessionId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void commitIsRetriedAfterRecordingFails() throws Exception {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        String sessionId = uploadedSession(ownerId);
+        doThrow(new IllegalStateException("Database unavailable"))
+                .doCallRealMethod()
+                .when(documentService).recordUpload(anyLong(), anyString(), anyString(), anyString(), anyLong(),
+                        anyString(), isNull(), any());
+
+        assertThrows(IllegalStateException.class, () -> uploadSessionService.commit(sessionId, ownerId));
+        UploadSession session = sessionRepository.findById(sessionId).orElseThrow();
+        assertEquals(UploadSession.Status.COMPLETING, session.getStatus());
+        assertNotNull(storageBackend.headObject(session.getStorageKey()));
+
+        Document saved = uploadSessionService.commit(sessionId, ownerId);
+        assertEquals(CONTENT.length, saved.getSize());
+        assertEquals(UploadSession.Status.COMMITTED, sessionRepository.findById(sessionId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void chunksAreRejectedOnceCommitted() throws Exception {
+        Long ownerId = TestUsers.save(userRepository).getId();
+        String sessionId = uploadedSession(ownerId);
+        uploadSessionService.commit(sessionId, ownerId);
+
+        assertThrows(IllegalStateException.class, () -> uploadSessionService.uploadChunk(sessionId, ownerId, 2,
+                new ByteArrayInputStream(CONTENT), CONTENT.length));
+        assertEquals(UploadSession.Status.COMMITTED, sessionRepository.findById(sessionId).orElseThrow().getStatus());
+    }
+
+    private String uploadedSession(Long ownerId) throws Exception {
+        UploadSession session = uploadSessionService.createSession(ownerId, "Report", "report.pdf", "application/pdf",
+                (long) CONTENT.length);
+        uploadSessionService.uploadChunk(session.getId(), ownerId, 1, new ByteArrayInputStream(CONTENT), CONTENT.length);
+        return session.getId();
+    }
+}
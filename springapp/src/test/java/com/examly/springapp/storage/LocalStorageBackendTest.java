@@ -0,0 +1,45 @@
+package com.examly.springapp.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalStorageBackendTest {
+
+    @TempDir
+    Path directory;
+
+    private final LocalStorageBackend backend = new LocalStorageBackend();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(backend, "directory", directory.toString());
+        backend.init();
+    }
+
+    @Test
+    void shortBodyLeavesTheStoredObjectAlone() throws IOException {
+        byte[] original = "original".getBytes();
+        backend.putObject("doc", new ByteArrayInputStream(original), original.length, "text/plain");
+
+        assertThrows(IOException.class,
+                () -> backend.putObject("doc", new ByteArrayInputStream("short".getBytes()), 100, "text/plain"));
+
+        try (InputStream in = backend.getObject("doc")) {
+            assertArrayEquals(original, in.readAllBytes());
+        }
+        try (var temp = Files.list(directory.resolve(".tmp"))) {
+            assertArrayEquals(new Object[0], temp.toArray());
+        }
+    }
+}
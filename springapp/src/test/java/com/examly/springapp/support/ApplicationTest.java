@@ -0,0 +1,26 @@
+package com.examly.springapp.support;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The whole application with MockMvc, on the same H2 setup as {@link JpaSliceTest}.
+ * Rate limiting is off so tests can make as many requests as they need.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:h2-test.properties", properties = "rate-limit.enabled=false")
+public @interface ApplicationTest {
+}
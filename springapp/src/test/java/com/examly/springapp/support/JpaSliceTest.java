@@ -0,0 +1,31 @@
+package com.examly.springapp.support;
+
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * JPA slice against an in-memory H2 database in MySQL mode, with in-memory storage and
+ * the search indexes off. Each distinct test configuration gets its own database; a
+ * test adds or overrides properties with its own {@code @TestPropertySource}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// The application's explicit @ComponentScan pulls every bean into the slice, including ones that need Jackson
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(locations = "classpath:h2-test.properties")
+public @interface JpaSliceTest {
+}
@@ -0,0 +1,31 @@
+package com.examly.springapp.support;
+
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.UserRepository;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Users for tests, each with an email no other test uses.
+ */
+public final class TestUsers {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private TestUsers() {
+    }
+
+    public static User save(UserRepository userRepository) {
+        return save(userRepository, "user-" + SEQUENCE.incrementAndGet() + "-" + System.nanoTime() + "@example.com",
+                "unused");
+    }
+
+    public static User save(UserRepository userRepository, String email, String passwordHash) {
+        User user = new User();
+        user.setName("Test User");
+        user.setEmail(email);
+        user.setPasswordHash(passwordHash);
+        user.setRole(User.Role.USER);
+        return userRepository.save(user);
+    }
+}
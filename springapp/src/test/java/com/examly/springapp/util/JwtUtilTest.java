@@ -0,0 +1,101 @@
+package com.examly.springapp.util;
+
+import com.examly.springapp.model.User;
+import com.examly.springapp.security.AuthenticatedUser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "mySecretKeymySecretKeymySecretKeymySecretKeymySecretKeymySecretKey";
+    private static final int CACHE_SIZE = 100;
+    private static final int THREADS = 8;
+
+    @Test
+    void verifiedTokensStayWithinTheBoundUnderConcurrentRequests() throws Exception {
+        JwtUtil jwtUtil = jwtUtil(86400000);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> requests = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            requests.add(pool.submit(() -> {
+                for (long i = 0; i < 500; i++) {
+                    long id = thread * 1000L + i;
+                    AuthenticatedUser user = jwtUtil.verify(jwtUtil.generateToken(user(id)));
+                    assertNotNull(user);
+                    assertEquals(id, user.getId());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> request : requests) {
+            request.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        // A thread that finds another one trimming skips it, so the bound may be overshot by one entry per thread
+        Map<?, ?> verified = (Map<?, ?>) ReflectionTestUtils.getField(jwtUtil, "verified");
+        assertTrue(verified.size() <= CACHE_SIZE + THREADS, "Cache holds " + verified.size() + " tokens");
+    }
+
+    @Test
+    void cachedTokenIsRejectedOnceExpired() throws Exception {
+        // The exp claim is in whole seconds, so this expires one to two seconds from now
+        JwtUtil jwtUtil = jwtUtil(2000);
+        String token = jwtUtil.generateToken(user(1L));
+        assertNotNull(jwtUtil.verify(token));
+
+        Thread.sleep(2100);
+
+        assertNull(jwtUtil.verify(token));
+    }
+
+    @Test
+    void tokenWithAnUnknownRoleIsInvalid() {
+        JwtUtil jwtUtil = jwtUtil(86400000);
+        String token = Jwts.builder()
+                .setSubject("user-1@example.com")
+                .claim(JwtUtil.USER_ID_CLAIM, 1L)
+                .claim(JwtUtil.ROLE_CLAIM, "SUPERUSER")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .compact();
+
+        assertNull(jwtUtil.verify(token));
+        assertFalse(jwtUtil.isTokenValid(token));
+    }
+
+    private static JwtUtil jwtUtil(int expirationMillis) {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "EXPIRATION", expirationMillis);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheSize", CACHE_SIZE);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("user-" + id + "@example.com");
+        user.setRole(User.Role.USER);
+        return user;
+    }
+}